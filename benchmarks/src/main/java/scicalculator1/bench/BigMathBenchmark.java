@@ -0,0 +1,156 @@
+package scicalculator1.bench;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import scicalculator1.exception.CalculatorException;
+import scicalculator1.util.AngleUnit;
+import scicalculator1.util.BigMath;
+
+/**
+ * BigMath kernels against the textbook series they replace: Taylor without
+ * argument reduction for exp and sin, the atanh series on the whole argument
+ * for ln, and Newton at full precision from a poor seed for sqrt. Average
+ * time per call, since a call takes microseconds to milliseconds
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class BigMathBenchmark {
+
+    private static final int SIZE = 16;
+    private static final int MASK = SIZE - 1;
+
+    @Param({"50", "500"})
+    public int digits;
+
+    private final BigDecimal[] inputs = new BigDecimal[SIZE];
+    private MathContext mc;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        mc = new MathContext(digits, RoundingMode.HALF_EVEN);
+        // Arguments in (0.5, 8), with a full set of digits
+        for (int i = 0; i < SIZE; i++) {
+            BigDecimal third = BigDecimal.ONE.divide(BigDecimal.valueOf(3 + i), mc);
+            inputs[i] = BigDecimal.valueOf(0.5 + i * 0.45).add(third, mc);
+        }
+    }
+
+    private BigDecimal next() {
+        return inputs[index++ & MASK];
+    }
+
+    // ======== KERNELS ========
+    @Benchmark
+    public BigDecimal sqrt() throws CalculatorException {
+        return BigMath.sqrt(next(), mc);
+    }
+
+    @Benchmark
+    public BigDecimal exp() throws CalculatorException {
+        return BigMath.exp(next(), mc);
+    }
+
+    @Benchmark
+    public BigDecimal ln() throws CalculatorException {
+        return BigMath.ln(next(), mc);
+    }
+
+    @Benchmark
+    public BigDecimal sinRadians() {
+        return BigMath.sin(next(), AngleUnit.RADIANS, mc);
+    }
+
+    @Benchmark
+    public BigDecimal sinDegrees() {
+        return BigMath.sin(next(), AngleUnit.DEGREES, mc);
+    }
+
+    @Benchmark
+    public BigDecimal atan() {
+        return BigMath.atan(next(), AngleUnit.RADIANS, mc);
+    }
+
+    @Benchmark
+    public BigDecimal power() throws CalculatorException {
+        return BigMath.power(next(), inputs[(index + 7) & MASK], mc);
+    }
+
+    // ======== NAIVE BASELINES ========
+    @Benchmark
+    public BigDecimal sqrtNaive() {
+        BigDecimal x = next();
+        BigDecimal two = BigDecimal.valueOf(2);
+        BigDecimal y = x;
+        BigDecimal previous = BigDecimal.ZERO;
+        while (y.compareTo(previous) != 0) {
+            previous = y;
+            y = y.add(x.divide(y, mc)).divide(two, mc);
+        }
+        return y;
+    }
+
+    @Benchmark
+    public BigDecimal expNaive() {
+        BigDecimal x = next();
+        BigDecimal sum = BigDecimal.ONE;
+        BigDecimal term = BigDecimal.ONE;
+        for (int i = 1; term.compareTo(BigDecimal.ZERO) != 0 && term.abs().compareTo(epsilon()) > 0; i++) {
+            term = term.multiply(x, mc).divide(BigDecimal.valueOf(i), mc);
+            sum = sum.add(term, mc);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public BigDecimal lnNaive() {
+        BigDecimal x = next();
+        BigDecimal z = x.subtract(BigDecimal.ONE).divide(x.add(BigDecimal.ONE), mc);
+        BigDecimal z2 = z.multiply(z, mc);
+        BigDecimal power = z;
+        BigDecimal sum = z;
+        for (int i = 3;; i += 2) {
+            power = power.multiply(z2, mc);
+            BigDecimal term = power.divide(BigDecimal.valueOf(i), mc);
+            if (term.abs().compareTo(epsilon()) <= 0) {
+                break;
+            }
+            sum = sum.add(term, mc);
+        }
+        return sum.add(sum);
+    }
+
+    @Benchmark
+    public BigDecimal sinNaive() {
+        BigDecimal x = next();
+        BigDecimal x2 = x.multiply(x, mc);
+        BigDecimal term = x;
+        BigDecimal sum = x;
+        for (int i = 2; term.abs().compareTo(epsilon()) > 0; i += 2) {
+            term = term.multiply(x2, mc).divide(BigDecimal.valueOf((long) i * (i + 1)), mc).negate();
+            sum = sum.add(term, mc);
+        }
+        return sum;
+    }
+
+    private BigDecimal epsilon() {
+        return BigDecimal.ONE.movePointLeft(digits + 1);
+    }
+}
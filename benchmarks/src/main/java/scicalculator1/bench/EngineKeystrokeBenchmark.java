@@ -0,0 +1,127 @@
+package scicalculator1.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import scicalculator1.exception.CalculatorException;
+import scicalculator1.model.CalculatorEngine;
+import scicalculator1.model.CalculatorState;
+import scicalculator1.model.Operation;
+
+/**
+ * Realistic keystroke sequences driven through CalculatorEngine, each ending
+ * with a read of the display text the way the controller does after every key
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class EngineKeystrokeBenchmark {
+
+    private final CalculatorEngine engine = new CalculatorEngine();
+
+    /**
+     * 123.45 + 67 × 8 =
+     */
+    @Benchmark
+    public String arithmeticSequence() throws CalculatorException {
+        engine.clearAll();
+        engine.inputDigit(1);
+        engine.inputDigit(2);
+        engine.inputDigit(3);
+        engine.inputDecimal();
+        engine.inputDigit(4);
+        engine.inputDigit(5);
+        engine.performBinaryOperation(Operation.ADD);
+        engine.inputDigit(6);
+        engine.inputDigit(7);
+        engine.performBinaryOperation(Operation.MULTIPLY);
+        engine.inputDigit(8);
+        engine.calculateResult();
+        return engine.getDisplay();
+    }
+
+    /**
+     * 30 sin, x², + 2 √ =
+     */
+    @Benchmark
+    public String scientificSequence() throws CalculatorException {
+        engine.clearAll();
+        engine.inputDigit(3);
+        engine.inputDigit(0);
+        engine.performUnaryOperation(Operation.SIN);
+        engine.performUnaryOperation(Operation.SQUARE);
+        engine.performBinaryOperation(Operation.ADD);
+        engine.inputDigit(2);
+        engine.performUnaryOperation(Operation.SQRT);
+        engine.calculateResult();
+        return engine.getDisplay();
+    }
+
+    /**
+     * 42 MS, 8 M+, 5 M-, MR × 2 =, MC
+     */
+    @Benchmark
+    public String memorySequence() throws CalculatorException {
+        engine.clearAll();
+        engine.inputDigit(4);
+        engine.inputDigit(2);
+        engine.memoryStore();
+        engine.inputDigit(8);
+        engine.memoryAdd();
+        engine.inputDigit(5);
+        engine.memorySubtract();
+        engine.memoryRecall();
+        engine.performBinaryOperation(Operation.MULTIPLY);
+        engine.inputDigit(2);
+        engine.calculateResult();
+        engine.memoryClear();
+        return engine.getDisplay();
+    }
+
+    /**
+     * 9 ÷ 0 = followed by C, exercising the error state
+     */
+    @Benchmark
+    public String errorSequence() throws CalculatorException {
+        engine.clearAll();
+        engine.inputDigit(9);
+        engine.performBinaryOperation(Operation.DIVIDE);
+        engine.inputDigit(0);
+        engine.calculateResult();
+        String display = engine.getDisplay();
+        engine.clearEntry();
+        return display;
+    }
+
+    /**
+     * The arithmetic sequence through the pure state transitions, without the
+     * session field
+     */
+    @Benchmark
+    public String arithmeticSequencePure() {
+        CalculatorState s = CalculatorState.initial();
+        s = engine.inputDigit(s, 1);
+        s = engine.inputDigit(s, 2);
+        s = engine.inputDigit(s, 3);
+        s = engine.inputDecimal(s);
+        s = engine.inputDigit(s, 4);
+        s = engine.inputDigit(s, 5);
+        s = engine.performBinaryOperation(s, Operation.ADD);
+        s = engine.inputDigit(s, 6);
+        s = engine.inputDigit(s, 7);
+        s = engine.performBinaryOperation(s, Operation.MULTIPLY);
+        s = engine.inputDigit(s, 8);
+        s = engine.calculateResult(s);
+        return s.getDisplayText();
+    }
+}
@@ -0,0 +1,55 @@
+package scicalculator1.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import scicalculator1.exception.CalculatorException;
+import scicalculator1.model.CalculatorEngine;
+import scicalculator1.model.CompiledExpression;
+import scicalculator1.model.OperationCache;
+
+/**
+ * Compiled expression evaluation over a small set of recurring inputs, the
+ * dashboard pattern the operation cache is meant for. Compare cacheSize = 0
+ * (no cache) with a cache large enough for the working set
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ExpressionBenchmark {
+
+    private static final int DISTINCT_INPUTS = 256;
+
+    @Param({"0", "4096"})
+    public int cacheSize;
+
+    private final CalculatorEngine engine = new CalculatorEngine();
+    private CompiledExpression expression;
+    private double[] stack;
+    private int index;
+
+    @Setup
+    public void setUp() throws CalculatorException {
+        engine.setCache(cacheSize > 0 ? new OperationCache(cacheSize) : null);
+        expression = engine.compile("x! / 10^(x / 20) + sin(x)^2 + log(x + 1)");
+        stack = expression.newStack();
+    }
+
+    @Benchmark
+    public double evaluate() {
+        double x = index++ % DISTINCT_INPUTS * 0.5;
+        return expression.evaluate(engine, x, stack);
+    }
+}
@@ -0,0 +1,90 @@
+package scicalculator1.bench;
+
+import java.text.DecimalFormat;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import scicalculator1.util.DisplayFormatter;
+import scicalculator1.util.FormatUtils;
+
+/**
+ * Display formatting and parsing. The DecimalFormat baseline reproduces the
+ * formatting path FormatUtils used before the shortest-digit formatter, so the
+ * two can be compared in the same run
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class FormatBenchmark {
+
+    private static final int SIZE = 1024;
+    private static final int MASK = SIZE - 1;
+
+    private final double[] values = new double[SIZE];
+    private final String[] texts = new String[SIZE];
+    private final DisplayFormatter formatter = new DisplayFormatter();
+    private final char[] buffer = new char[DisplayFormatter.MAX_LENGTH];
+    private final StringBuilder builder = new StringBuilder(64);
+    private DecimalFormat legacyFormat;
+    private DecimalFormat legacyScientific;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        legacyFormat = new DecimalFormat("0.##########");
+        legacyScientific = new DecimalFormat("0.##########E0");
+        Random random = new Random(42);
+        for (int i = 0; i < SIZE; i++) {
+            // Mostly everyday magnitudes with some scientific-notation values
+            double magnitude = Math.pow(10, random.nextInt(24) - 8);
+            values[i] = (random.nextDouble() - 0.5) * magnitude;
+            texts[i] = FormatUtils.formatNumber(values[i]);
+        }
+    }
+
+    private int next() {
+        return index++ & MASK;
+    }
+
+    @Benchmark
+    public String formatNumber() {
+        return FormatUtils.formatNumber(values[next()]);
+    }
+
+    @Benchmark
+    public StringBuilder formatNumberIntoBuilder() {
+        builder.setLength(0);
+        return FormatUtils.formatNumber(values[next()], builder);
+    }
+
+    @Benchmark
+    public int formatIntoCharArray() {
+        return formatter.format(values[next()], buffer, 0);
+    }
+
+    @Benchmark
+    public String formatLegacyDecimalFormat() {
+        double value = values[next()];
+        if (FormatUtils.shouldUseScientific(value)) {
+            return legacyScientific.format(value);
+        }
+        return FormatUtils.truncateDisplay(legacyFormat.format(value));
+    }
+
+    @Benchmark
+    public double parseNumber() {
+        return FormatUtils.parseNumber(texts[next()]);
+    }
+}
@@ -0,0 +1,101 @@
+package scicalculator1.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import scicalculator1.exception.CalculatorException;
+import scicalculator1.model.CalculatorEngine;
+import scicalculator1.model.CalculatorState;
+import scicalculator1.model.KeystrokeJournal;
+import scicalculator1.model.Operation;
+
+/**
+ * Keystroke journal throughput in events per second: replaying a journal of
+ * a million events, and recording keystrokes with different sync batches
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+
+    private static final int EVENTS = 1_000_000;
+    private static final int KEYS_PER_CALCULATION = 6;
+
+    @Param({"0", "1024"})
+    public int syncBatch;
+
+    private Path replayFile;
+    private Path recordFile;
+    private CalculatorEngine engine;
+    private KeystrokeJournal journal;
+
+    @Setup
+    public void setUp() throws IOException, CalculatorException {
+        replayFile = Files.createTempFile("replay", ".journal");
+        CalculatorEngine recorder = new CalculatorEngine();
+        try (KeystrokeJournal journal = KeystrokeJournal.open(replayFile, 0)) {
+            recorder.setJournal(journal);
+            for (int i = 0; i < EVENTS / KEYS_PER_CALCULATION; i++) {
+                calculate(recorder, i);
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void openJournal() throws IOException {
+        recordFile = Files.createTempFile("record", ".journal");
+        journal = KeystrokeJournal.open(recordFile, syncBatch);
+        engine = new CalculatorEngine();
+        engine.setJournal(journal);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeJournal() throws IOException {
+        journal.close();
+        Files.delete(recordFile);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(replayFile);
+    }
+
+    private static void calculate(CalculatorEngine engine, int i) throws CalculatorException {
+        engine.inputDigit(i % 10);
+        engine.inputDecimal();
+        engine.inputDigit(5);
+        engine.performBinaryOperation(i % 2 == 0 ? Operation.ADD : Operation.MULTIPLY);
+        engine.inputDigit(7);
+        engine.calculateResult();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS / KEYS_PER_CALCULATION * KEYS_PER_CALCULATION)
+    public CalculatorState replay() throws IOException {
+        return KeystrokeJournal.replay(replayFile, new CalculatorEngine());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS_PER_CALCULATION)
+    public void record() throws CalculatorException {
+        calculate(engine, 3);
+    }
+}
@@ -0,0 +1,144 @@
+package scicalculator1.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import scicalculator1.exception.CalculatorException;
+import scicalculator1.util.AngleUnit;
+import scicalculator1.util.MathUtils;
+
+/**
+ * Throughput of the MathUtils kernels. Each invocation walks a small table of
+ * operands so the JIT cannot fold the call into a constant
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MathUtilsBenchmark {
+
+    private static final int SIZE = 1024;
+    private static final int MASK = SIZE - 1;
+
+    private final double[] angles = new double[SIZE];
+    private final double[] positives = new double[SIZE];
+    private final int[] factorials = new int[SIZE];
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < SIZE; i++) {
+            angles[i] = random.nextDouble() * 720.0 - 360.0;
+            positives[i] = random.nextDouble() * 1.0e6 + 1.0e-3;
+            factorials[i] = random.nextInt(MathUtils.MAX_FACTORIAL + 1);
+        }
+    }
+
+    private int next() {
+        return index++ & MASK;
+    }
+
+    @Benchmark
+    public double sin() {
+        return MathUtils.sin(angles[next()]);
+    }
+
+    @Benchmark
+    public double cos() {
+        return MathUtils.cos(angles[next()]);
+    }
+
+    @Benchmark
+    public double tan() {
+        return MathUtils.tanOrError(angles[next()]);
+    }
+
+    @Benchmark
+    public double sinRadians() {
+        return MathUtils.sin(angles[next()], AngleUnit.RADIANS);
+    }
+
+    @Benchmark
+    public double sinGradians() {
+        return MathUtils.sin(angles[next()], AngleUnit.GRADIANS);
+    }
+
+    /**
+     * The conversion-first path sin(toRadians(x)) that degree-native
+     * reduction replaced, kept as a baseline
+     */
+    @Benchmark
+    public double sinViaRadians() {
+        return Math.sin(Math.toRadians(angles[next()]));
+    }
+
+    @Benchmark
+    public double tanViaRadians() {
+        double radians = Math.toRadians(angles[next()]);
+        return Math.abs(Math.cos(radians)) < 1e-10 ? Double.NaN : Math.tan(radians);
+    }
+
+    @Benchmark
+    public double sqrt() {
+        return MathUtils.sqrtOrError(positives[next()]);
+    }
+
+    @Benchmark
+    public double log10() {
+        return MathUtils.log10OrError(positives[next()]);
+    }
+
+    @Benchmark
+    public double ln() {
+        return MathUtils.lnOrError(positives[next()]);
+    }
+
+    @Benchmark
+    public double power() {
+        int i = next();
+        return MathUtils.powerOrError(positives[i], angles[i] / 100.0);
+    }
+
+    @Benchmark
+    public double factorial() {
+        return MathUtils.factorialOrError(factorials[next()]);
+    }
+
+    @Benchmark
+    public double gamma() {
+        return MathUtils.gamma(positives[next()] % 170.0);
+    }
+
+    @Benchmark
+    public double lgamma() {
+        return MathUtils.lgamma(positives[next()]);
+    }
+
+    // ======== ERROR PATH ========
+    @Benchmark
+    public void divideByZeroThrowing(Blackhole bh) {
+        try {
+            bh.consume(MathUtils.safeDivide(positives[next()], 0.0));
+        } catch (CalculatorException e) {
+            bh.consume(e);
+        }
+    }
+
+    @Benchmark
+    public double divideByZeroOrError() {
+        return MathUtils.divideOrError(positives[next()], 0.0);
+    }
+}
@@ -0,0 +1,54 @@
+package scicalculator1.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import scicalculator1.model.MemoryBank;
+
+/**
+ * Concurrent additions to a shared MemoryBank: every thread on one register,
+ * and each thread on its own
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MemoryBankBenchmark {
+
+    private final MemoryBank bank = new MemoryBank();
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Register {
+
+        int number;
+
+        @Setup
+        public void setUp(MemoryBankBenchmark benchmark) {
+            number = benchmark.threads.getAndIncrement() % MemoryBank.REGISTERS;
+        }
+    }
+
+    @Benchmark
+    public double sharedRegister() {
+        return bank.add(0, 1.0);
+    }
+
+    @Benchmark
+    public double ownRegister(Register register) {
+        return bank.add(register.number, 1.0);
+    }
+}
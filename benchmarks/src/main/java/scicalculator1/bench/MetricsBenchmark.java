@@ -0,0 +1,75 @@
+package scicalculator1.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import scicalculator1.model.CalculatorEngine;
+import scicalculator1.model.CalculatorState;
+import scicalculator1.model.EngineMetrics;
+import scicalculator1.model.Operation;
+
+/**
+ * Cost of EngineMetrics on the pure transitions: no metrics attached,
+ * attached but disabled, and recording
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MetricsBenchmark {
+
+    private static final int SIZE = 1024;
+    private static final int MASK = SIZE - 1;
+
+    @Param({"none", "disabled", "enabled"})
+    public String metrics;
+
+    private final CalculatorEngine engine = new CalculatorEngine();
+    private final CalculatorState[] states = new CalculatorState[SIZE];
+    private int index;
+
+    @Setup
+    public void setUp() {
+        if (!metrics.equals("none")) {
+            EngineMetrics attached = new EngineMetrics();
+            attached.setEnabled(metrics.equals("enabled"));
+            engine.setMetrics(attached);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < SIZE; i++) {
+            CalculatorState s = CalculatorState.initial();
+            for (int digits = 1 + random.nextInt(4); digits > 0; digits--) {
+                s = engine.inputDigit(s, random.nextInt(10));
+            }
+            states[i] = s;
+        }
+    }
+
+    private CalculatorState next() {
+        return states[index++ & MASK];
+    }
+
+    @Benchmark
+    public CalculatorState add() {
+        CalculatorState s = engine.performBinaryOperation(next(), Operation.ADD);
+        s = engine.inputDigit(s, 7);
+        return engine.calculateResult(s);
+    }
+
+    @Benchmark
+    public CalculatorState sin() {
+        return engine.performUnaryOperation(next(), Operation.SIN);
+    }
+}
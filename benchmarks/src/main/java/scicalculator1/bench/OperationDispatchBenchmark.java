@@ -0,0 +1,73 @@
+package scicalculator1.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import scicalculator1.exception.CalculatorException;
+import scicalculator1.exception.ErrorCode;
+import scicalculator1.model.CalculatorEngine;
+import scicalculator1.model.CompiledExpression;
+import scicalculator1.model.OperationDefinition;
+import scicalculator1.model.OperationRegistry;
+import scicalculator1.util.AngleUnit;
+import scicalculator1.util.MathUtils;
+
+/**
+ * Built-in operations, dispatched by the engine's switch, against plugin
+ * operations with the same kernels, called through the registry's
+ * functional interfaces. The expression mixes four named operations with
+ * arithmetic, so the plugin call site sees four kernels and goes
+ * megamorphic, as it does for any realistic expression
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class OperationDispatchBenchmark {
+
+    private static final int DISTINCT_INPUTS = 256;
+
+    @Param({"switch", "plugin"})
+    public String dispatch;
+
+    private final CalculatorEngine engine = new CalculatorEngine();
+    private CompiledExpression expression;
+    private double[] stack;
+    private int index;
+
+    @Setup
+    public void setUp() throws CalculatorException {
+        OperationRegistry registry = OperationRegistry.getDefault();
+        if (registry.find("psin") == null) {
+            // The engine's kernels, in its default angle unit
+            registry.register(OperationDefinition.unary("psin", "psin", x -> MathUtils.sin(x, AngleUnit.DEGREES)));
+            registry.register(OperationDefinition.unary("plog", "plog", Math::log10)
+                    .withDomain(x -> x > 0, ErrorCode.LOG_DOMAIN));
+            registry.register(OperationDefinition.binary("ppow", "ppow", MathUtils::powerOrError));
+            registry.register(OperationDefinition.binary("pmod", "pmod", (l, r) -> l % r)
+                    .withDomain(r -> !MathUtils.isZeroDivisor(r), ErrorCode.MODULO_BY_ZERO));
+        }
+        engine.setCache(null);
+        expression = engine.compile(dispatch.equals("switch")
+                ? "sin(x) + log(x + 1) * 3 - (x ^ 1.5) mod 7"
+                : "psin(x) + plog(x + 1) * 3 - (x ppow 1.5) pmod 7");
+        stack = expression.newStack();
+    }
+
+    @Benchmark
+    public double evaluate() {
+        double x = index++ % DISTINCT_INPUTS * 0.5;
+        return expression.evaluate(engine, x, stack);
+    }
+}
@@ -0,0 +1,79 @@
+package scicalculator1.bench;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import scicalculator1.exception.CalculatorException;
+import scicalculator1.model.CalculatorEngine;
+import scicalculator1.model.CompiledExpression;
+import scicalculator1.model.ParallelEvaluator;
+
+/**
+ * Lookup-table generation over a million points with pools of increasing
+ * size. Milliseconds per table; parallelism 0 means one worker per available
+ * processor
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ParallelEvaluatorBenchmark {
+
+    @Param({"1", "2", "4", "0"})
+    public int parallelism;
+
+    @Param({"8192"})
+    public int grainSize;
+
+    @Param({"1048576"})
+    public int points;
+
+    private ForkJoinPool pool;
+    private ParallelEvaluator evaluator;
+    private CompiledExpression expression;
+    private double[] inputs;
+    private double[] out;
+    private long[] errors;
+
+    @Setup
+    public void setUp() throws CalculatorException {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        CalculatorEngine engine = new CalculatorEngine();
+        evaluator = new ParallelEvaluator(engine, pool, grainSize);
+        expression = engine.compile("sin(x)^2 + log(x + 1) / sqrt(x + 2)");
+        inputs = new double[points];
+        for (int i = 0; i < points; i++) {
+            inputs[i] = i * 0.001;
+        }
+        out = new double[points];
+        errors = new long[(points + 63) >>> 6];
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int evaluateArray() {
+        return evaluator.evaluate(expression, inputs, out, errors);
+    }
+
+    @Benchmark
+    public int evaluateRange() {
+        return evaluator.evaluate(expression, 0.0, 0.001, out, errors);
+    }
+}
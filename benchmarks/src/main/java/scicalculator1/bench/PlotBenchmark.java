@@ -0,0 +1,64 @@
+package scicalculator1.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import scicalculator1.exception.CalculatorException;
+import scicalculator1.model.CalculatorEngine;
+import scicalculator1.model.CompiledExpression;
+import scicalculator1.model.FunctionPlot;
+import scicalculator1.model.PlotPath;
+
+/**
+ * Work per frame while panning a plot whose tiles are sampled: decimating
+ * the view to pixel columns. With 262144 samples per tile a view holds about
+ * a million samples; a frame at 60 fps has 16.7 ms. Average time per frame
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PlotBenchmark {
+
+    private static final int WIDTH = 720;
+    // Pixels panned before the view jumps back
+    private static final int PAN = 720;
+
+    @Param({"256", "262144"})
+    public int samplesPerTile;
+
+    private final PlotPath path = new PlotPath();
+    private FunctionPlot plot;
+    private int offset;
+
+    @Setup
+    public void setUp() throws CalculatorException {
+        CalculatorEngine engine = new CalculatorEngine();
+        plot = new FunctionPlot(engine, CompiledExpression.compile("sin(x) + sin(7 × x) / 3"), samplesPerTile);
+        // Sample every tile the pan crosses
+        for (int start = 0; start <= PAN; start += WIDTH / 4) {
+            while (plot.computeTile(start - 360, start + 360, WIDTH)) {
+                // Next missing tile
+            }
+        }
+    }
+
+    @Benchmark
+    public PlotPath pan() {
+        // One pixel per frame, one unit of x per pixel
+        int start = offset++ % PAN;
+        plot.decimate(start - 360, start + 360, WIDTH, path);
+        return path;
+    }
+}
@@ -0,0 +1,99 @@
+package scicalculator1.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import scicalculator1.util.AngleUnit;
+import scicalculator1.util.VectorMath;
+
+/**
+ * SIMD kernels against the scalar loops on one column. Throughput is columns
+ * per millisecond. One divisor in 64 is zero and about half the square roots
+ * are negative, so the error masks are exercised
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class VectorMathBenchmark {
+
+    @Param({"scalar", "simd"})
+    public String implementation;
+
+    @Param({"4096"})
+    public int size;
+
+    private VectorMath math;
+    private double[] left;
+    private double[] right;
+    private double[] out;
+    private long[] errors;
+
+    @Setup
+    public void setUp() {
+        math = implementation.equals("simd") ? VectorMath.getDefault() : VectorMath.scalar();
+        if (implementation.equals("simd") && !math.isVectorized()) {
+            throw new IllegalStateException("Vector API not available");
+        }
+        Random random = new Random(42);
+        left = new double[size];
+        right = new double[size];
+        for (int i = 0; i < size; i++) {
+            left[i] = random.nextDouble() * 720.0 - 360.0;
+            right[i] = random.nextInt(64) == 0 ? 0.0 : random.nextDouble() * 4.0 - 2.0;
+        }
+        out = new double[size];
+        errors = new long[(size + 63) >>> 6];
+    }
+
+    @Benchmark
+    public double[] add() {
+        math.add(left, right, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] multiply() {
+        math.multiply(left, right, out);
+        return out;
+    }
+
+    @Benchmark
+    public int divide() {
+        return math.divide(left, right, out, errors);
+    }
+
+    @Benchmark
+    public int sqrt() {
+        return math.sqrt(left, out, errors);
+    }
+
+    @Benchmark
+    public int power() {
+        return math.power(right, left, out, errors);
+    }
+
+    @Benchmark
+    public double[] sinDegrees() {
+        math.sin(left, AngleUnit.DEGREES, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] cosDegrees() {
+        math.cos(left, AngleUnit.DEGREES, out);
+        return out;
+    }
+}
@@ -0,0 +1,22 @@
+package scicalculator1;
+
+import scicalculator1.controller.HeadlessController;
+
+/**
+ * Entry point for the headless batch evaluator. Unlike
+ * {@link SciCalculator1} it is not a JavaFX Application, so the toolkit is
+ * never loaded and it runs on machines without a display
+ */
+public final class Batch {
+
+    private Batch() {
+    }
+
+    /**
+     * Main entry point
+     * @param args The {@link HeadlessController} options and file names
+     */
+    public static void main(String[] args) {
+        System.exit(HeadlessController.run(args));
+    }
+}
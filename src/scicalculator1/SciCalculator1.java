@@ -1,44 +1,83 @@
 package scicalculator1;
 
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.logging.Logger;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import scicalculator1.controller.CalculatorController;
+import scicalculator1.controller.HeadlessController;
 
 /**
  * Main application class for the Scientific Calculator
- * Entry point for the JavaFX application
+ * Entry point for the JavaFX application. The batch evaluator has its own
+ * entry point, {@link Batch}, which runs without JavaFX
  *
  * @author Abdelrahman
  */
 public class SciCalculator1 extends Application {
 
+    private static final Logger LOG = Logger.getLogger(SciCalculator1.class.getName());
+
+    private CalculatorController controller;
+
     @Override
     public void start(Stage primaryStage) throws Exception {
+        long startNanos = System.nanoTime();
+
         // Load the FXML file
         FXMLLoader loader = new FXMLLoader(getClass().getResource("view/CalculatorView.fxml"));
         Parent root = loader.load();
+        controller = loader.getController();
 
         // Create the scene
-        Scene scene = new Scene(root, 480, 760);
+        Scene scene = new Scene(root, 720, 760);
 
         // Configure the stage
         primaryStage.setTitle("Scientific Calculator");
         primaryStage.setScene(scene);
-        primaryStage.setMinWidth(400);
+        primaryStage.setMinWidth(640);
         primaryStage.setMinHeight(600);
         primaryStage.setResizable(true);
 
+        // Once the first frame is laid out, log the startup time and build
+        // the deferred part of the keypad
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                scene.removePostLayoutPulseListener(this);
+                LOG.info(String.format(Locale.ROOT, "Time to first frame: %.1f ms",
+                        (System.nanoTime() - startNanos) / 1e6));
+                Platform.runLater(controller::showScientificKeys);
+            }
+        });
+
         // Show the application
         primaryStage.show();
     }
 
+    @Override
+    public void stop() {
+        if (controller != null) {
+            controller.shutdown();
+        }
+    }
+
     /**
      * Main entry point
-     * @param args Command line arguments
+     * @param args Command line arguments; "--batch" followed by the
+     * {@link HeadlessController} options runs the batch evaluator, though
+     * this class still needs JavaFX to load; use {@link Batch} on headless
+     * machines
      */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            Batch.main(Arrays.copyOfRange(args, 1, args.length));
+        }
         launch(args);
     }
 }
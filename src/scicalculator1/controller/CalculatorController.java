@@ -6,17 +6,55 @@
  */
 package scicalculator1.controller;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.animation.AnimationTimer;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+import javafx.css.PseudoClass;
 import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
 import javafx.fxml.FXML;
-import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.TextField;
+import javafx.scene.control.TextInputControl;
+import javafx.scene.control.ToggleButton;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.GridPane;
-import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.util.Duration;
+import scicalculator1.exception.CalculatorException;
+import scicalculator1.model.AsyncCalculator;
+import scicalculator1.model.CalculationHistory;
 import scicalculator1.model.CalculatorEngine;
+import scicalculator1.model.CalculatorState;
+import scicalculator1.model.CalculatorStore;
+import scicalculator1.model.CompiledExpression;
+import scicalculator1.model.FunctionPlot;
+import scicalculator1.model.InputPipeline;
+import scicalculator1.model.KeystrokeJournal;
 import scicalculator1.model.Operation;
-import scicalculator1.exception.CalculatorException;
+import scicalculator1.model.OperationDefinition;
+import scicalculator1.model.OperationRegistry;
 import scicalculator1.util.FormatUtils;
+import scicalculator1.view.FunctionPlotView;
 
 public class CalculatorController {
 
@@ -25,151 +63,449 @@ public class CalculatorController {
     private Label resultLabel;   // big number
     @FXML
     private Label historyLabel;  // small expression
+    @FXML
+    private ListView<String> historyList;  // past calculations, newest first
 
-    // ======== UI CONTAINERS (for runtime styling) ========
+    // ======== UI CONTAINERS ========
     @FXML
     private GridPane keypad;     // fx:id on the GridPane with all keys
+
+    // ======== PLOT MODE ========
+    @FXML
+    private ToggleButton plotToggle;
+    @FXML
+    private VBox plotPane;       // shown in place of the keypad
+    @FXML
+    private TextField plotInput;
     @FXML
-    private HBox memoryBar;      // fx:id on the memory bar HBox
+    private FunctionPlotView plotView;
 
-    // ======== TOGGLE BUTTONS (for 2nd function) ========
+    // ======== BUSY STATE ========
     @FXML
-    private Button sinButton;
+    private ProgressIndicator busyIndicator;
     @FXML
+    private Button cancelButton;
+    // Quick operations finish before this and never show the indicator
+    private final PauseTransition busyDelay = new PauseTransition(Duration.millis(150));
+
+    // ======== TOGGLE BUTTONS (for 2nd function) ========
+    // Created with the scientific rows by showScientificKeys()
+    private Button sinButton;
     private Button cosButton;
-    @FXML
     private Button tanButton;
+    private Button modButton;
     @FXML
     private Button lnButton;
-    private Button modButton; // Will be found programmatically
     @FXML
     private Button secondButton;
 
     // ======== BACKEND ENGINE ========
+    // Only the input worker touches the engine; handlers submit their work
     private CalculatorEngine engine;
+    private InputPipeline input;
+    // Runs the operations that may take long, with cancellation and a deadline
+    private AsyncCalculator async;
+    // Latest state published by the input worker
+    private volatile CalculatorState snapshot;
+    // Calculations the engine completes, shown in historyList
+    private CalculationHistory calculations;
+    private HistoryItems historyItems;
+    // Keeps the memory register and history across runs; null if unavailable
+    private CalculatorStore store;
+    // Records this session's keys for recovery after a crash; null if unavailable
+    private KeystrokeJournal journal;
 
     // ======== 2ND FUNCTION STATE ========
     private boolean isSecondActive = false;
 
-    // ======== COLORS (no CSS file) ========
-    private static final String COL_BG = "#202020"; // window & display bg
-    private static final String COL_BTN = "#313131"; // button base
-    private static final String COL_BTN_HOVER = "#3a3a3a";
-    private static final String COL_PRESSED = "#4bbefa"; // pressed & equals
-    private static final String COL_TEXT = "#ffffff";
-    private static final String COL_TEXT_DARK = "#000000";
-    private static final String BASE_BORDER = "-fx-border-color:" + COL_BG + "; -fx-border-radius:6; -fx-background-radius:6;";
+    // ======== RENDERING ========
+    // Set while a frame is scheduled; cleared before rendering so that later
+    // changes schedule the next one
+    private final AtomicBoolean renderPending = new AtomicBoolean();
+    // Renders once at the next pulse, then stops so idle frames cost nothing
+    private final AnimationTimer renderer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            stop();
+            renderPending.set(false);
+            render();
+        }
+    };
+
+    // History shown at the next frame, written by the input worker
+    private volatile History history = History.EMPTY;
+
+    private static final Logger LOG = Logger.getLogger(CalculatorController.class.getName());
+
+    // File of the memory register and history; -Dscicalculator.store overrides it
+    private static final Path STORE_PATH = Paths.get(System.getProperty("scicalculator.store",
+            Paths.get(System.getProperty("user.home"), ".scicalculator", "calculator.dat").toString()));
+
+    // Journal of the running session, next to the store; -Dscicalculator.journal overrides it
+    private static final Path JOURNAL_PATH = Paths.get(System.getProperty("scicalculator.journal",
+            STORE_PATH.resolveSibling("session.journal").toString()));
+    // Events between forced syncs; a crash loses at most the last few keys
+    private static final int JOURNAL_SYNC_BATCH = 16;
 
-    // ======== INITIALIZE: style everything at runtime ========
+    private static final KeyCombination PASTE = new KeyCodeCombination(KeyCode.V, KeyCombination.SHORTCUT_DOWN);
+
+    // Highlights the 2nd key while secondary functions are active (see calculator.css)
+    private static final PseudoClass SELECTED = PseudoClass.getPseudoClass("selected");
+
+    // ======== INITIALIZE ========
     @FXML
     private void initialize() {
         // Initialize backend engine
         engine = new CalculatorEngine();
-
-        // Style memory chips
-        if (memoryBar != null) {
-            for (Node n : memoryBar.getChildren()) {
-                if (n instanceof Button) {
-                    styleChip((Button) n);
-                }
+        calculations = openStore();
+        openJournal();
+        engine.setHistory(calculations);
+        snapshot = engine.getState();
+        historyItems = new HistoryItems(calculations);
+        historyList.setItems(historyItems);
+        input = new InputPipeline(engine, InputPipeline.DEFAULT_CAPACITY, state -> {
+            snapshot = state;
+            if (store != null) {
+                store.setMemory(state.getMemory());
+            }
+            updateDisplay();
+        });
+        async = new AsyncCalculator(engine);
+        busyDelay.setOnFinished(e -> setBusy(async.getRunningCount() > 0));
+        async.setBusyListener(count -> Platform.runLater(() -> {
+            if (count > 0) {
+                busyDelay.playFromStart();
+            } else {
+                busyDelay.stop();
+                setBusy(false);
             }
+        }));
+        render();
+    }
+
+    /**
+     * Restore the memory register and history of the last run. Without the
+     * store file they are kept in memory only
+     */
+    private CalculationHistory openStore() {
+        try {
+            store = CalculatorStore.open(STORE_PATH, CalculationHistory.DEFAULT_CAPACITY);
+            engine.setState(engine.getState().withMemory(store.getMemory()));
+            return store.getHistory();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Cannot open " + STORE_PATH + ", history will not be kept", e);
+            return new CalculationHistory(CalculationHistory.DEFAULT_CAPACITY);
         }
+    }
 
-        // Style all keypad buttons uniformly
-        if (keypad != null) {
-            for (Node n : keypad.getChildren()) {
-                if (n instanceof Button) {
-                    Button b = (Button) n;
-                    boolean isEquals = "=".equals(b.getText());
-                    // Find the mod button to enable toggling
-                    if ("mod".equals(b.getText())) {
-                        this.modButton = b;
-                    }
-                    styleKey(b, isEquals);
-                }
+    /**
+     * Restore the session a crash interrupted and start recording this one.
+     * The memory register is kept from the store, which is updated after
+     * every burst of input and so is newer than the journal's last sync
+     */
+    private void openJournal() {
+        double memory = engine.getState().getMemory();
+        try {
+            journal = KeystrokeJournal.recover(JOURNAL_PATH, engine, JOURNAL_SYNC_BATCH);
+            engine.setState(engine.getState().withMemory(memory));
+            // Attach again so that replay starts from the store's memory
+            engine.setJournal(journal);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Cannot open " + JOURNAL_PATH + ", the session will not be recovered", e);
+        }
+    }
+
+    /**
+     * Stop the background threads and write the store back, when the
+     * application exits. After a clean exit the store holds everything worth
+     * keeping, so the journal is removed
+     */
+    public void shutdown() {
+        input.close();
+        async.close();
+        plotView.dispose();
+        if (journal != null) {
+            engine.setJournal(null);
+            try {
+                journal.close();
+                Files.deleteIfExists(JOURNAL_PATH);
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Cannot close " + JOURNAL_PATH, e);
             }
         }
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Cannot close " + STORE_PATH, e);
+            }
+        }
+    }
 
-        updateDisplay();
+    /**
+     * Run an engine interaction on the input worker, after any queued input.
+     * Input is dropped if the queue is full
+     */
+    private void submit(InputPipeline.Input action) {
+        input.submit(action);
     }
 
-    // Uniform style for keypad buttons (with hover/press simulation)
-    private void styleKey(Button b, boolean isEquals) {
-        b.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE); // responsive fill
-
-        if (isEquals) {
-            b.setStyle("-fx-font-size:18px; -fx-font-weight:700; "
-                    + "-fx-background-color:" + COL_PRESSED + "; "
-                    + "-fx-text-fill:" + COL_TEXT + "; "
-                    + BASE_BORDER + " -fx-padding:16;");
-            // Keep equals blue on press/release too:
-            //Hovering action
-            b.setOnMouseEntered(e -> b.setStyle("-fx-font-size:18px; -fx-font-weight:700; "
-                    + "-fx-background-color:" + COL_PRESSED + "; "
-                    + "-fx-text-fill:" + COL_TEXT + "; "
-                    + BASE_BORDER + " -fx-padding:16;"));
-            b.setOnMouseExited(e -> b.setStyle("-fx-font-size:18px; -fx-font-weight:700; "
-                    + "-fx-background-color:" + COL_PRESSED + "; "
-                    + "-fx-text-fill:" + COL_TEXT + "; "
-                    + BASE_BORDER + " -fx-padding:16;"));
-            //pressing action
-            b.setOnMousePressed(e -> b.setStyle("-fx-font-size:18px; -fx-font-weight:700; "
-                    + "-fx-background-color:" + COL_PRESSED + "; "
-                    + "-fx-text-fill:" + COL_TEXT + "; "
-                    + BASE_BORDER + " -fx-padding:16;"));
-            b.setOnMouseReleased(e -> {
-                if (b.isHover()) {
-                    b.setStyle("-fx-font-size:18px; -fx-font-weight:700; "
-                            + "-fx-background-color:" + COL_PRESSED + "; "
-                            + "-fx-text-fill:" + COL_TEXT + "; "
-                            + BASE_BORDER + " -fx-padding:16;");
+    /**
+     * Run an engine interaction that may take long in the background. The
+     * input worker waits for it, so later keys still apply in order, while
+     * the cancel key or the deadline can interrupt it
+     */
+    private void compute(InputPipeline.Input action) {
+        submit(engine -> {
+            AsyncCalculator.Computation<Void> computation = async.submit(() -> {
+                action.applyTo(engine);
+                return null;
+            });
+            try {
+                computation.join();
+            } catch (CancellationException e) {
+                showHistory("Cancelled");
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof TimeoutException) {
+                    showHistory("Timed out");
+                } else if (cause instanceof CancellationException) {
+                    showHistory("Cancelled");
+                } else if (cause instanceof CalculatorException) {
+                    // The display shows the error; the history says why, e.g.
+                    // which parenthesis of an expression is missing
+                    showHistory(cause.getMessage());
                 } else {
-                    b.setStyle("-fx-font-size:18px; -fx-font-weight:700; "
-                            + "-fx-background-color:" + COL_PRESSED + "; "
-                            + "-fx-text-fill:" + COL_TEXT + "; "
-                            + BASE_BORDER + " -fx-padding:16;");
+                    throw e;
                 }
-            });
+            } finally {
+                // Never let the next input race a computation that is stopping
+                computation.stopped().join();
+            }
+        });
+    }
+
+    @FXML
+    private void cancelComputation() {
+        async.cancelAll();
+    }
+
+    private void setBusy(boolean busy) {
+        busyIndicator.setVisible(busy);
+        cancelButton.setVisible(busy);
+    }
+
+    /**
+     * Add the scientific function rows (1-2) to the keypad. They are not in
+     * the FXML so that the first frame needs fewer nodes; the application
+     * calls this once that frame is shown. Later calls do nothing
+     */
+    public void showScientificKeys() {
+        if (sinButton != null) {
             return;
         }
+        // Row 1
+        addKey("x²", e -> square(), 1, 0);
+        addKey("√x", e -> sqrt(), 1, 1);
+        addKey("|x|", e -> abs(), 1, 2);
+        tanButton = addKey("tan", e -> tan(), 1, 3);
+        modButton = addKey("mod", this::handleOperator, 1, 4);
+
+        // Row 2
+        addKey("1/x", e -> reciprocal(), 2, 0);
+        sinButton = addKey("sin", e -> sin(), 2, 1);
+        cosButton = addKey("cos", e -> cos(), 2, 2);
+        addKey("n!", e -> factorial(), 2, 3);
+        addKey("÷", this::handleOperator, 2, 4);
+
+        // 2nd may have been pressed before the keys existed
+        if (isSecondActive) {
+            applySecondFunctions();
+        }
+    }
 
-        // Base / hover / pressed for normal keys
-        final String base = "-fx-font-size:18px; -fx-font-weight:500; "
-                + "-fx-background-color:" + COL_BTN + "; "
-                + "-fx-text-fill:" + COL_TEXT + "; "
-                + BASE_BORDER + " -fx-padding:16;";
-        final String hover = base.replace(COL_BTN, COL_BTN_HOVER);
-        final String pressed = "-fx-font-size:18px; -fx-font-weight:700; " //Bolder action when pressing
-                + "-fx-background-color:" + COL_PRESSED + "; "
-                + "-fx-text-fill:" + COL_TEXT + "; "
-                + BASE_BORDER + " -fx-padding:16;";
-
-        b.setStyle(base);
-        b.setOnMouseEntered(e -> b.setStyle(hover));
-        b.setOnMouseExited(e -> b.setStyle(base));
-        b.setOnMousePressed(e -> b.setStyle(pressed));
-        b.setOnMouseReleased(e -> b.setStyle(b.isHover() ? hover : base));
-    }
-
-    // Memory chip styling (rounded)
-    private void styleChip(Button b) {
-        final String base = "-fx-background-color:" + COL_BTN + "; -fx-text-fill:" + COL_TEXT + "; "
-                + "-fx-background-radius:16; -fx-border-radius:16; -fx-padding:6 12 6 12; -fx-border-color:" + COL_BG + ";";
-        final String hover = "-fx-background-color:" + COL_BTN_HOVER + "; -fx-text-fill:" + COL_TEXT + "; "
-                + "-fx-background-radius:16; -fx-border-radius:16; -fx-padding:6 12 6 12; -fx-border-color:" + COL_BG + ";";
-        final String pressed = "-fx-background-color:" + COL_PRESSED + "; -fx-text-fill:" + COL_TEXT_DARK + "; "
-                + "-fx-background-radius:16; -fx-border-radius:16; -fx-padding:6 12 6 12; -fx-border-color:" + COL_BG + ";";
-
-        b.setStyle(base);
-        b.setOnMouseEntered(e -> b.setStyle(hover));
-        b.setOnMouseExited(e -> b.setStyle(base));
-        b.setOnMousePressed(e -> b.setStyle(pressed));
-        b.setOnMouseReleased(e -> b.setStyle(b.isHover() ? hover : base));
+    private Button addKey(String text, EventHandler<ActionEvent> action, int row, int column) {
+        Button b = new Button(text);
+        b.setOnAction(action);
+        keypad.add(b, column, row);
+        return b;
     }
 
     // ======== DISPLAY UPDATE ========
+    /**
+     * Mark the display dirty. The labels are updated by the renderer at the
+     * next pulse, so a burst of input (paste, replay, key repeat) costs one
+     * layout and CSS pass per frame instead of one per event
+     */
     private void updateDisplay() {
-        resultLabel.setText(engine.getDisplay());
+        if (renderPending.compareAndSet(false, true)) {
+            if (Platform.isFxApplicationThread()) {
+                renderer.start();
+            } else {
+                Platform.runLater(renderer::start);
+            }
+        }
+    }
+
+    private void showHistory(String text) {
+        history = new History(text, null, 0.0);
+        updateDisplay();
+    }
+
+    // The text is only built if it is still current when the frame renders
+    private void showFunctionHistory(String function, double operand) {
+        history = new History(null, function, operand);
+        updateDisplay();
+    }
+
+    private String currentHistory() {
+        return history.getText();
+    }
+
+    // Copy the latest snapshot and history into the labels and list
+    private void render() {
+        resultLabel.setText(snapshot.getDisplayText());
+        historyLabel.setText(currentHistory());
+        historyItems.refresh();
+    }
+
+    @FXML
+    private void clearHistory() {
+        calculations.clear();
+        updateDisplay();
+    }
+
+    /**
+     * History label text: plain text, or a function applied to an operand
+     */
+    private static final class History {
+
+        static final History EMPTY = new History("", null, 0.0);
+
+        private final String text;
+        private final String function;
+        private final double operand;
+
+        History(String text, String function, double operand) {
+            this.text = text;
+            this.function = function;
+            this.operand = operand;
+        }
+
+        String getText() {
+            return function == null ? text : function + "(" + FormatUtils.formatNumber(operand) + ")";
+        }
+    }
+
+    /**
+     * Live, newest-first view of the calculation history for the list. Rows
+     * are formatted when the list asks for them, and it only asks for the
+     * visible ones, so the cost does not depend on the history's length. The
+     * range shown only moves in refresh(), on the FX thread; rows overwritten
+     * by the worker since then show as blank until the next refresh
+     */
+    private static final class HistoryItems extends ObservableListBase<String> {
+
+        private final CalculationHistory history;
+        private long start;
+        private long end;
+
+        HistoryItems(CalculationHistory history) {
+            this.history = history;
+            this.start = history.getStart();
+            this.end = start;
+            refresh();
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Row " + index + " of " + size());
+            }
+            String text = history.getText(end - 1 - index);
+            return text == null ? "" : text;
+        }
+
+        @Override
+        public int size() {
+            return (int) (end - start);
+        }
+
+        // Catch up with the history: old entries leave at the bottom, new
+        // ones arrive at the top
+        void refresh() {
+            long newEnd = history.getEnd();
+            long newStart = Math.max(Math.min(history.getStart(), newEnd), newEnd - history.getCapacity());
+            long kept = Math.min(Math.max(newStart, start), end);
+            if (kept > start) {
+                int removed = (int) (kept - start);
+                start = kept;
+                beginChange();
+                nextRemove(size(), Collections.nCopies(removed, ""));
+                endChange();
+            }
+            if (newEnd > end || newStart > start) {
+                int added = (int) (newEnd - Math.max(end, newStart));
+                start = newStart;
+                end = newEnd;
+                if (added > 0) {
+                    beginChange();
+                    nextAdd(0, added);
+                    endChange();
+                }
+            }
+        }
+    }
+
+    // ======== PLOT MODE ========
+    @FXML
+    private void togglePlot() {
+        boolean plotting = plotToggle.isSelected();
+        keypad.setVisible(!plotting);
+        plotPane.setVisible(plotting);
+        if (plotting) {
+            plotInput.requestFocus();
+        }
+    }
+
+    // The plot samples on its own thread through the engine's operation
+    // dispatch, which is thread-safe; it never changes the engine's state
+    @FXML
+    private void plotFunction() {
+        String text = plotInput.getText();
+        try {
+            plotView.setPlot(new FunctionPlot(engine, CompiledExpression.compile(text)));
+            showHistory("y = " + text);
+        } catch (CalculatorException e) {
+            showHistory(e.getMessage());
+        }
+    }
+
+    // ======== KEYBOARD & CLIPBOARD ========
+    // Typed characters queue as calculator keys (type-ahead), except in the
+    // plot's text field
+    @FXML
+    private void handleKeyTyped(KeyEvent e) {
+        if (e.getTarget() instanceof TextInputControl) {
+            return;
+        }
+        String text = e.getCharacter();
+        if (!text.isEmpty() && !text.equals(KeyEvent.CHAR_UNDEFINED) && !e.isShortcutDown()) {
+            input.type(text);
+            e.consume();
+        }
+    }
+
+    // Shortcut+V pastes numbers or expressions; the worker enters them
+    @FXML
+    private void handleKeyPressed(KeyEvent e) {
+        if (PASTE.match(e) && !(e.getTarget() instanceof TextInputControl)) {
+            String text = Clipboard.getSystemClipboard().getString();
+            if (text != null) {
+                compute(engine -> InputPipeline.type(engine, text));
+            }
+            e.consume();
+        }
     }
 
     // ======== DIGITS & DOT ========
@@ -177,97 +513,75 @@ public class CalculatorController {
     private void handleDigit(ActionEvent e) {
         String d = ((Button) e.getSource()).getText();
         int digit = Integer.parseInt(d);
-        engine.inputDigit(digit);
-        updateDisplay();
+        submit(engine -> engine.inputDigit(digit));
     }
 
     @FXML
     private void handleDot() {
-        engine.inputDecimal();
-        updateDisplay();
+        submit(engine -> engine.inputDecimal());
     }
 
     // ======== CLEAR / BACKSPACE ========
     @FXML
     private void handleClear() {
-        engine.clearAll();
-        historyLabel.setText("");
-        updateDisplay();
+        submit(engine -> {
+            engine.clearAll();
+            showHistory("");
+        });
     }
 
     @FXML
     private void handleClearEntry() {
-        engine.clearEntry();
-        historyLabel.setText("");
-        updateDisplay();
+        submit(engine -> {
+            engine.clearEntry();
+            showHistory("");
+        });
     }
 
     @FXML
     private void handleBackspace() {
-        engine.backspace();
-        updateDisplay();
+        submit(engine -> engine.backspace());
     }
 
     // ======== UNARY FUNCTIONS ========
     @FXML
     private void handlePercent() {
-        try {
+        compute(engine -> {
             String historyText = engine.performPercent();
-            historyLabel.setText(historyText);
-            updateDisplay();
-        } catch (CalculatorException ex) {
-            updateDisplay();
-        }
+            showHistory(historyText);
+        });
     }
 
     @FXML
     private void handleSign() {
-        try {
-            engine.performUnaryOperation(Operation.NEGATE);
-            updateDisplay();
-        } catch (CalculatorException ex) {
-            // Engine already sets error state internally
-            updateDisplay();
-        }
+        submit(engine -> engine.performUnaryOperation(Operation.NEGATE));
     }
 
     @FXML
     private void sqrt() {
-        try {
+        compute(engine -> {
             double v = FormatUtils.parseNumber(engine.getDisplay());
             engine.performUnaryOperation(Operation.SQRT);
-            historyLabel.setText("√(" + FormatUtils.formatNumber(v) + ")");
-            updateDisplay();
-        } catch (CalculatorException ex) {
-            // Engine already sets error state internally
-            updateDisplay();
-        }
+            showFunctionHistory("√", v);
+        });
     }
 
     @FXML
     private void square() {
-        try {
+        compute(engine -> {
             double v = FormatUtils.parseNumber(engine.getDisplay());
             engine.performUnaryOperation(Operation.SQUARE);
-            historyLabel.setText("sqr(" + FormatUtils.formatNumber(v) + ")");
-            updateDisplay();
-        } catch (CalculatorException ex) {
-            // Engine already sets error state internally
-            updateDisplay();
-        }
+            showFunctionHistory("sqr", v);
+        });
     }
 
     @FXML
     private void reciprocal() {
-        try {
+        compute(engine -> {
             double v = FormatUtils.parseNumber(engine.getDisplay());
             engine.performUnaryOperation(Operation.RECIPROCAL);
-            historyLabel.setText("1/(" + FormatUtils.formatNumber(v) + ")");
-            updateDisplay();
-        } catch (CalculatorException ex) {
-            // Engine already sets error state internally
-            updateDisplay();
-        }
+            showFunctionHistory("1/", v);
+        });
     }
 
     /**
@@ -277,80 +591,56 @@ public class CalculatorController {
      */
     @FXML
     private void abs() {
-        try {
+        compute(engine -> {
             double v = FormatUtils.parseNumber(engine.getDisplay());
             engine.performUnaryOperation(Operation.ABS);
-            historyLabel.setText("abs(" + FormatUtils.formatNumber(v) + ")");
-            updateDisplay();
-        } catch (CalculatorException ex) {
-            // Engine already sets error state internally
-            updateDisplay();
-        }
+            showFunctionHistory("abs", v);
+        });
     }
 
     @FXML
     private void exp() {
-        try {
+        compute(engine -> {
             double v = FormatUtils.parseNumber(engine.getDisplay());
             engine.performUnaryOperation(Operation.EXP);
-            historyLabel.setText("exp(" + FormatUtils.formatNumber(v) + ")");
-            updateDisplay();
-        } catch (CalculatorException ex) {
-            // Engine already sets error state internally
-            updateDisplay();
-        }
+            showFunctionHistory("exp", v);
+        });
     }
 
     @FXML
     private void tenPowX() {
-        try {
+        compute(engine -> {
             double v = FormatUtils.parseNumber(engine.getDisplay());
             engine.performUnaryOperation(Operation.TENPOWX);
-            historyLabel.setText("10^(" + FormatUtils.formatNumber(v) + ")");
-            updateDisplay();
-        } catch (CalculatorException ex) {
-            // Engine already sets error state internally
-            updateDisplay();
-        }
+            showFunctionHistory("10^", v);
+        });
     }
 
     @FXML
     private void log10() {
-        try {
+        compute(engine -> {
             double v = FormatUtils.parseNumber(engine.getDisplay());
             engine.performUnaryOperation(Operation.LOG);
-            historyLabel.setText("log(" + FormatUtils.formatNumber(v) + ")");
-            updateDisplay();
-        } catch (CalculatorException ex) {
-            // Engine already sets error state internally
-            updateDisplay();
-        }
+            showFunctionHistory("log", v);
+        });
     }
 
     @FXML
     private void ln() {
-        try {
+        compute(engine -> {
             double v = FormatUtils.parseNumber(engine.getDisplay());
             engine.performUnaryOperation(Operation.LN);
-            historyLabel.setText("ln(" + FormatUtils.formatNumber(v) + ")");
-            updateDisplay();
-        } catch (CalculatorException ex) {
-            // Engine already sets error state internally
-            updateDisplay();
-        }
+            showFunctionHistory("ln", v);
+        });
     }
 
     @FXML
     private void factorial() {
-        try {
+        compute(engine -> {
             double v = FormatUtils.parseNumber(engine.getDisplay());
             engine.performUnaryOperation(Operation.FACTORIAL);
-            historyLabel.setText("fact(" + FormatUtils.formatNumber(v) + ")");
-            updateDisplay();
-        } catch (CalculatorException ex) {
-            // Engine already sets error state internally
-            updateDisplay();
-        }
+            showFunctionHistory("fact", v);
+        });
     }
 
     // ======== TRIGONOMETRIC FUNCTIONS ========
@@ -359,15 +649,11 @@ public class CalculatorController {
      */
     @FXML
     private void sin() {
-        try {
+        compute(engine -> {
             double v = FormatUtils.parseNumber(engine.getDisplay());
             engine.performUnaryOperation(Operation.SIN);
-            historyLabel.setText("sin(" + FormatUtils.formatNumber(v) + ")");
-            updateDisplay();
-        } catch (CalculatorException ex) {
-            // Engine already sets error state internally
-            updateDisplay();
-        }
+            showFunctionHistory("sin", v);
+        });
     }
 
     /**
@@ -375,15 +661,11 @@ public class CalculatorController {
      */
     @FXML
     private void cos() {
-        try {
+        compute(engine -> {
             double v = FormatUtils.parseNumber(engine.getDisplay());
             engine.performUnaryOperation(Operation.COS);
-            historyLabel.setText("cos(" + FormatUtils.formatNumber(v) + ")");
-            updateDisplay();
-        } catch (CalculatorException ex) {
-            // Engine already sets error state internally
-            updateDisplay();
-        }
+            showFunctionHistory("cos", v);
+        });
     }
 
     /**
@@ -391,15 +673,11 @@ public class CalculatorController {
      */
     @FXML
     private void tan() {
-        try {
+        compute(engine -> {
             double v = FormatUtils.parseNumber(engine.getDisplay());
             engine.performUnaryOperation(Operation.TAN);
-            historyLabel.setText("tan(" + FormatUtils.formatNumber(v) + ")");
-            updateDisplay();
-        } catch (CalculatorException ex) {
-            // Engine already sets error state internally
-            updateDisplay();
-        }
+            showFunctionHistory("tan", v);
+        });
     }
 
     /**
@@ -407,15 +685,11 @@ public class CalculatorController {
      */
     @FXML
     private void asin() {
-        try {
+        compute(engine -> {
             double v = FormatUtils.parseNumber(engine.getDisplay());
             engine.performUnaryOperation(Operation.ASIN);
-            historyLabel.setText("asin(" + FormatUtils.formatNumber(v) + ")");
-            updateDisplay();
-        } catch (CalculatorException ex) {
-            // Engine already sets error state internally
-            updateDisplay();
-        }
+            showFunctionHistory("asin", v);
+        });
     }
 
     /**
@@ -423,15 +697,11 @@ public class CalculatorController {
      */
     @FXML
     private void acos() {
-        try {
+        compute(engine -> {
             double v = FormatUtils.parseNumber(engine.getDisplay());
             engine.performUnaryOperation(Operation.ACOS);
-            historyLabel.setText("acos(" + FormatUtils.formatNumber(v) + ")");
-            updateDisplay();
-        } catch (CalculatorException ex) {
-            // Engine already sets error state internally
-            updateDisplay();
-        }
+            showFunctionHistory("acos", v);
+        });
     }
 
     /**
@@ -439,108 +709,85 @@ public class CalculatorController {
      */
     @FXML
     private void atan() {
-        try {
+        compute(engine -> {
             double v = FormatUtils.parseNumber(engine.getDisplay());
             engine.performUnaryOperation(Operation.ATAN);
-            historyLabel.setText("atan(" + FormatUtils.formatNumber(v) + ")");
-            updateDisplay();
-        } catch (CalculatorException ex) {
-            // Engine already sets error state internally
-            updateDisplay();
-        }
+            showFunctionHistory("atan", v);
+        });
     }
 
     @FXML
     private void constPi() {
-        String historyText = engine.inputConstant(Math.PI);
-        historyLabel.setText(historyText);
-        updateDisplay();
+        submit(engine -> {
+            String historyText = engine.inputConstant(Math.PI);
+            showHistory(historyText);
+        });
     }
 
     @FXML
     private void constE() {
-        String historyText = engine.inputConstant(Math.E);
-        historyLabel.setText(historyText);
-        updateDisplay();
+        submit(engine -> {
+            String historyText = engine.inputConstant(Math.E);
+            showHistory(historyText);
+        });
     }
 
     // ======== BINARY OPS & EQUALS ========
     @FXML
     private void handleOperator(ActionEvent e) {
-        try {
-            String sym = ((Button) e.getSource()).getText();
+        String sym = ((Button) e.getSource()).getText();
+        compute(engine -> {
             Operation op = mapSymbolToOperation(sym);
 
             if (op != null) {
                 engine.performBinaryOperation(op);
-                historyLabel.setText(engine.getDisplay() + " " + sym);
-                updateDisplay();
+                showHistory(engine.getDisplay() + " " + sym);
             }
-        } catch (CalculatorException ex) {
-            // Engine already sets error state internally
-            updateDisplay();
-        }
+        });
     }
 
     @FXML
     private void handleEquals() {
-        try {
-            if (engine.getState().getCurrentOperation() != null) {
-                String currentDisplay = engine.getDisplay();
-                engine.calculateResult();
-                historyLabel.setText(historyLabel.getText() + " " + currentDisplay + " =");
-                updateDisplay();
+        compute(engine -> {
+            long sequence = calculations.getEnd();
+            engine.calculateResult();
+            String expression = calculations.getExpression(sequence);
+            if (expression != null) {
+                showHistory(expression + " =");
             }
-        } catch (CalculatorException ex) {
-            // Engine already sets error state internally
-            updateDisplay();
-        }
+        });
     }
 
     private Operation mapSymbolToOperation(String symbol) {
-        switch (symbol) {
-            case "+":
-                return Operation.ADD;
-            case "−":
-                return Operation.SUBTRACT;
-            case "×":
-                return Operation.MULTIPLY;
-            case "÷":
-                return Operation.DIVIDE;
-            case "mod":
-                return Operation.MODULO;
-            case "xʸ":
-                return Operation.POWER;
-            default:
-                return null;
-        }
+        OperationDefinition definition = OperationRegistry.getDefault().find(symbol);
+        // Plugin operations have no Operation; they are used in expressions
+        return definition == null || definition.isUnary() ? null : definition.getOperation();
     }
 
     // ======== MEMORY ========
     @FXML
     private void memClear() {
-        engine.memoryClear();
+        submit(engine -> engine.memoryClear());
     }
 
     @FXML
     private void memRecall() {
-        engine.memoryRecall();
-        updateDisplay();
+        submit(engine -> engine.memoryRecall());
     }
 
     @FXML
     private void memPlus() {
-        engine.memoryAdd();
+        submit(engine -> engine.memoryAdd());
     }
 
     @FXML
     private void memMinus() {
-        engine.memorySubtract();
+        submit(engine -> engine.memorySubtract());
     }
 
     @FXML
     private void memStore() {
-        engine.memoryStore();
+        submit(engine -> engine.memoryStore());
     }
 
     // ======== TOGGLE SECOND (2ⁿᵈ) BUTTON ========
@@ -552,8 +799,11 @@ public class CalculatorController {
     @FXML
     private void toggleSecond() {
         isSecondActive = !isSecondActive;
+        applySecondFunctions();
+    }
 
-        // Update button labels and actions based on toggle state
+    // Update button labels and actions based on toggle state
+    private void applySecondFunctions() {
         if (isSecondActive) {
             // Switch to secondary functions (inverse trig)
             if (sinButton != null) {
@@ -577,14 +827,6 @@ public class CalculatorController {
                 modButton.setText("%");
                 modButton.setOnAction(e -> handlePercent());
             }
-
-            // Highlight the 2nd button to show active state
-            if (secondButton != null) {
-                secondButton.setStyle("-fx-font-size:18px; -fx-font-weight:700; "
-                        + "-fx-background-color:" + COL_PRESSED + "; "
-                        + "-fx-text-fill:" + COL_TEXT + "; "
-                        + BASE_BORDER + " -fx-padding:16;");
-            }
         } else {
             // Switch back to primary functions
             if (sinButton != null) {
@@ -608,20 +850,11 @@ public class CalculatorController {
                 modButton.setText("mod");
                 modButton.setOnAction(this::handleOperator); // Revert to original operator handler
             }
-
-            // Reset the 2nd button style
-            if (secondButton != null) {
-                styleKey(secondButton, false);
-            }
         }
-    }
 
-    // ======== PARENTHESIS (DISABLED) ========
-    /**
-     * Placeholder for parenthesis functionality. Currently disabled in the UI.
-     */
-    @FXML
-    private void noopParen() {
-        // No operation - parenthesis buttons are disabled
+        // Highlight the 2nd button to show active state
+        if (secondButton != null) {
+            secondButton.pseudoClassStateChanged(SELECTED, isSecondActive);
+        }
     }
 }
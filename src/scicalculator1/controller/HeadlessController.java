@@ -0,0 +1,392 @@
+package scicalculator1.controller;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+import scicalculator1.exception.CalculatorException;
+import scicalculator1.exception.ErrorCode;
+import scicalculator1.model.CalculatorEngine;
+import scicalculator1.model.CompiledExpression;
+import scicalculator1.model.Operation;
+import scicalculator1.model.ParallelEvaluator;
+import scicalculator1.util.AngleUnit;
+import scicalculator1.util.AsciiDecimal;
+import scicalculator1.util.MathUtils;
+
+/**
+ * Command-line controller that applies an operation or formula to every row
+ * of a CSV or plain numeric file, without starting JavaFX. Launch it with
+ * {@link scicalculator1.Batch} or the runBatch Gradle task
+ *
+ * The input is memory-mapped one window at a time and parsed in place; rows
+ * are evaluated in fixed-size batches through the engine's batch API (or
+ * {@link ParallelEvaluator} for formulas) and written to the output in
+ * chunks, so memory use does not grow with the file. Each output line holds
+ * the result, or the name of its {@link ErrorCode}. A row with a missing or
+ * malformed field is an INVALID_RESULT whatever the operation would give
+ */
+public final class HeadlessController {
+
+    // Bytes of input mapped at once; a line must fit in one window
+    private static final long WINDOW_SIZE = 64L << 20;
+    // Rows evaluated together
+    private static final int BATCH_SIZE = 1 << 16;
+    // Output buffered before each write
+    private static final int OUTPUT_CHUNK = 1 << 20;
+
+    private static final double INVALID_INPUT = MathUtils.error(ErrorCode.INVALID_RESULT);
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: scicalculator1.Batch [options] <input> <output>",
+            "  --op <OPERATION>      Operation name, e.g. SQRT, SIN or POWER; binary",
+            "                        operations read a second column",
+            "  --expr <formula>      Formula in x, e.g. \"sqrt(x) + 1\"",
+            "  --column <n>          1-based column of x or the left operand (default 1)",
+            "  --column2 <n>         1-based column of the right operand (default column + 1)",
+            "  --delimiter <c>       Field separator (default ,)",
+            "  --header              Skip the first line and write a header",
+            "  --angle DEG|RAD|GRAD  Angle unit for trigonometry (default DEG)");
+
+    private final CalculatorEngine engine = new CalculatorEngine();
+    private final AsciiDecimal decimal = new AsciiDecimal();
+
+    // Options
+    private Path input;
+    private Path output;
+    private Operation operation;
+    private CompiledExpression expression;
+    private int column;
+    private int column2 = -1;
+    private byte delimiter = ',';
+    private boolean header;
+
+    // Current batch
+    private final double[] left = new double[BATCH_SIZE];
+    private final double[] right = new double[BATCH_SIZE];
+    private final double[] results = new double[BATCH_SIZE];
+    private final long[] errors = new long[BATCH_SIZE >>> 6];
+    // Rows of the batch with a missing or malformed field
+    private final long[] invalid = new long[BATCH_SIZE >>> 6];
+    private int batchCount;
+    private ParallelEvaluator evaluator;
+
+    // Output chunk
+    private FileChannel out;
+    private final byte[] chunk = new byte[OUTPUT_CHUNK];
+    private int chunkLength;
+
+    // Statistics
+    private boolean headerPending;
+    private long rows;
+    private long failures;
+
+    private HeadlessController() {
+    }
+
+    /**
+     * Run the batch evaluator
+     *
+     * @param args Options and file names
+     * @return The process exit status: 0 on success, 1 if evaluation failed,
+     * 2 for invalid arguments
+     */
+    public static int run(String[] args) {
+        HeadlessController controller = new HeadlessController();
+        try {
+            controller.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        } catch (CalculatorException e) {
+            System.err.println("Invalid formula: " + e.getMessage());
+            return 2;
+        }
+
+        long start = System.nanoTime();
+        try {
+            controller.process();
+        } catch (IOException e) {
+            System.err.println("Batch evaluation failed: " + e.getMessage());
+            return 1;
+        }
+        controller.report(System.out, System.nanoTime() - start);
+        return 0;
+    }
+
+    private void parseArguments(String[] args) throws CalculatorException {
+        int positional = 0;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--op":
+                    String name = value(args, ++i, arg).toUpperCase(Locale.ROOT);
+                    try {
+                        operation = Operation.valueOf(name);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown operation: " + name);
+                    }
+                    break;
+                case "--expr":
+                    expression = engine.compile(value(args, ++i, arg));
+                    break;
+                case "--column":
+                    column = columnIndex(value(args, ++i, arg));
+                    break;
+                case "--column2":
+                    column2 = columnIndex(value(args, ++i, arg));
+                    break;
+                case "--delimiter":
+                    String delimiterText = value(args, ++i, arg);
+                    if (delimiterText.equals("\\t")) {
+                        delimiterText = "\t";
+                    }
+                    if (delimiterText.length() != 1 || delimiterText.charAt(0) > 0x7f) {
+                        throw new IllegalArgumentException("Delimiter must be one ASCII character");
+                    }
+                    delimiter = (byte) delimiterText.charAt(0);
+                    break;
+                case "--header":
+                    header = true;
+                    break;
+                case "--angle":
+                    engine.setAngleUnit(angleUnit(value(args, ++i, arg)));
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                    if (positional == 0) {
+                        input = Paths.get(arg);
+                    } else if (positional == 1) {
+                        output = Paths.get(arg);
+                    } else {
+                        throw new IllegalArgumentException("Unexpected argument: " + arg);
+                    }
+                    positional++;
+            }
+        }
+        if (input == null || output == null) {
+            throw new IllegalArgumentException("Input and output files are required");
+        }
+        if ((operation == null) == (expression == null)) {
+            throw new IllegalArgumentException("Give exactly one of --op and --expr");
+        }
+        if (operation != null && !operation.isUnary() && column2 < 0) {
+            column2 = column + 1;
+        }
+        if (expression != null) {
+            evaluator = new ParallelEvaluator(engine);
+        }
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    private static int columnIndex(String text) {
+        try {
+            int index = Integer.parseInt(text);
+            if (index >= 1) {
+                return index - 1;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Column must be a positive number: " + text);
+    }
+
+    private static AngleUnit angleUnit(String text) {
+        for (AngleUnit unit : AngleUnit.values()) {
+            if (unit.getSymbol().equalsIgnoreCase(text) || unit.name().equalsIgnoreCase(text)) {
+                return unit;
+            }
+        }
+        throw new IllegalArgumentException("Unknown angle unit: " + text);
+    }
+
+    // ======== PROCESSING ========
+    private void process() throws IOException {
+        headerPending = header;
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+                FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            out = channel;
+            if (header) {
+                writeText(expression != null ? "result" : operation.name().toLowerCase(Locale.ROOT));
+            }
+
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long length = Math.min(WINDOW_SIZE, size - position);
+                MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int limit = (int) length;
+                int lineStart = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (window.get(i) == '\n') {
+                        readLine(window, lineStart, i);
+                        lineStart = i + 1;
+                    }
+                }
+                if (position + length == size) {
+                    // Last line without a line break
+                    if (lineStart < limit) {
+                        readLine(window, lineStart, limit);
+                    }
+                    position = size;
+                } else if (lineStart == 0) {
+                    throw new IOException("Line longer than " + WINDOW_SIZE + " bytes at offset " + position);
+                } else {
+                    // Map the next window from the start of the incomplete line
+                    position += lineStart;
+                }
+            }
+
+            evaluateBatch();
+            flush();
+        } finally {
+            out = null;
+        }
+    }
+
+    private void readLine(ByteBuffer window, int from, int to) throws IOException {
+        if (to > from && window.get(to - 1) == '\r') {
+            to--;
+        }
+        if (isBlank(window, from, to)) {
+            return;
+        }
+        if (headerPending) {
+            headerPending = false;
+            return;
+        }
+
+        double x = field(window, from, to, column);
+        double y = column2 >= 0 ? field(window, from, to, column2) : 0.0;
+        if (Double.isNaN(x) || Double.isNaN(y)) {
+            // Evaluated like any row, then reported as invalid
+            invalid[batchCount >>> 6] |= 1L << batchCount;
+            x = 0.0;
+            y = 0.0;
+        }
+        left[batchCount] = x;
+        right[batchCount] = y;
+        if (++batchCount == BATCH_SIZE) {
+            evaluateBatch();
+        }
+    }
+
+    /**
+     * Parse one field of a line; missing or malformed fields give NaN, which
+     * a plain decimal never parses to
+     */
+    private double field(ByteBuffer window, int from, int to, int index) {
+        int start = from;
+        for (int f = 0; f < index; f++) {
+            while (start < to && window.get(start) != delimiter) {
+                start++;
+            }
+            if (start == to) {
+                return INVALID_INPUT;
+            }
+            start++;
+        }
+        int end = start;
+        while (end < to && window.get(end) != delimiter) {
+            end++;
+        }
+        try {
+            return AsciiDecimal.parse(window, start, end);
+        } catch (NumberFormatException e) {
+            return INVALID_INPUT;
+        }
+    }
+
+    private static boolean isBlank(ByteBuffer window, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = window.get(i);
+            if (b != ' ' && b != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void evaluateBatch() throws IOException {
+        int n = batchCount;
+        if (n == 0) {
+            return;
+        }
+        // The batch APIs take the array length; only the last batch is short
+        double[] x = n == BATCH_SIZE ? left : Arrays.copyOf(left, n);
+        double[] y = n == BATCH_SIZE ? right : Arrays.copyOf(right, n);
+
+        if (expression != null) {
+            failures += evaluator.evaluate(expression, x, results, errors);
+        } else if (operation.isUnary()) {
+            failures += engine.evaluate(operation, x, results, errors);
+        } else {
+            failures += engine.evaluate(operation, x, y, results, errors);
+        }
+        for (int w = 0; w < invalid.length; w++) {
+            failures += Long.bitCount(invalid[w] & ~errors[w]);
+            errors[w] |= invalid[w];
+        }
+
+        for (int i = 0; i < n; i++) {
+            ensureCapacity(AsciiDecimal.MAX_LENGTH + 1);
+            if ((invalid[i >>> 6] & (1L << i)) != 0) {
+                writeText(ErrorCode.INVALID_RESULT.name());
+            } else if ((errors[i >>> 6] & (1L << i)) != 0) {
+                ErrorCode code = MathUtils.errorCode(results[i]);
+                writeText((code != null ? code : ErrorCode.INVALID_RESULT).name());
+            } else {
+                chunkLength += decimal.format(results[i], chunk, chunkLength);
+                chunk[chunkLength++] = '\n';
+            }
+        }
+        rows += n;
+        batchCount = 0;
+        Arrays.fill(invalid, 0L);
+    }
+
+    // ======== OUTPUT ========
+    private void writeText(String text) throws IOException {
+        ensureCapacity(text.length() + 1);
+        for (int i = 0; i < text.length(); i++) {
+            chunk[chunkLength++] = (byte) text.charAt(i);
+        }
+        chunk[chunkLength++] = '\n';
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (chunkLength + bytes > chunk.length) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, chunkLength);
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        chunkLength = 0;
+    }
+
+    private void report(PrintStream stream, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        stream.printf(Locale.ROOT, "Evaluated %d rows (%d errors) in %.3f s: %.0f rows/s%n",
+                rows, failures, seconds, seconds > 0 ? rows / seconds : 0.0);
+    }
+}
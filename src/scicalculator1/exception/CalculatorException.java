@@ -4,6 +4,10 @@ package scicalculator1.exception;
  * Base exception class for calculator-related errors
  * All custom calculator exceptions extend this class
  *
+ * Calculator exceptions describe bad input, not bugs, so they do not capture
+ * a stack trace. That keeps throwing cheap and lets {@link ErrorCode} hand out
+ * preallocated instances
+ *
  * @author Abdelrahman
  */
 public class CalculatorException extends Exception {
@@ -12,7 +16,7 @@ public class CalculatorException extends Exception {
      * Constructs a new CalculatorException with no detail message
      */
     public CalculatorException() {
-        super();
+        super(null, null, false, false);
     }
 
     /**
@@ -20,7 +24,7 @@ public class CalculatorException extends Exception {
      * @param message The detail message
      */
     public CalculatorException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 
     /**
@@ -29,7 +33,7 @@ public class CalculatorException extends Exception {
      * @param cause The cause of the exception
      */
     public CalculatorException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false, false);
     }
 
     /**
@@ -37,6 +41,6 @@ public class CalculatorException extends Exception {
      * @param cause The cause of the exception
      */
     public CalculatorException(Throwable cause) {
-        super(cause);
+        super(cause == null ? null : cause.toString(), cause, false, false);
     }
 }
@@ -0,0 +1,63 @@
+package scicalculator1.exception;
+
+/**
+ * Status codes for calculation errors. The hot path reports these as values
+ * (see {@code MathUtils.error}) instead of throwing; callers that still want
+ * exceptions get a shared, preallocated instance from {@link #exception()}
+ */
+public enum ErrorCode {
+    DIVISION_BY_ZERO(new DivisionByZeroException("Cannot divide by zero")),
+    MODULO_BY_ZERO(new DivisionByZeroException("Cannot perform modulo with zero")),
+    FACTORIAL_NEGATIVE(new InvalidExpressionException("Factorial is not defined for negative integers")),
+    FACTORIAL_OVERFLOW(new OverflowException("Factorial result is too large")),
+    TANGENT_UNDEFINED(new InvalidExpressionException("Tangent undefined at this angle")),
+    ASIN_DOMAIN(new InvalidExpressionException("Arc sine domain error: value must be between -1 and 1")),
+    ACOS_DOMAIN(new InvalidExpressionException("Arc cosine domain error: value must be between -1 and 1")),
+    LOG_DOMAIN(new InvalidExpressionException("Logarithm of non-positive number")),
+    LN_DOMAIN(new InvalidExpressionException("Natural log of non-positive number")),
+    SQRT_DOMAIN(new InvalidExpressionException("Square root of negative number")),
+    OVERFLOW(new OverflowException("Value is too large")),
+    INVALID_RESULT(new InvalidExpressionException("Result is not a number")),
+    UNKNOWN_OPERATION(new InvalidExpressionException("Unknown operation")),
+    SYNTAX_ERROR(new InvalidExpressionException("Invalid expression"));
+
+    private final CalculatorException exception;
+
+    ErrorCode(CalculatorException exception) {
+        this.exception = exception;
+    }
+
+    /**
+     * Get the shared exception for this error. It carries no stack trace, so
+     * it is safe to throw from any thread
+     *
+     * @return The preallocated exception
+     */
+    public CalculatorException exception() {
+        return exception;
+    }
+
+    /**
+     * Find the code whose shared exception was thrown
+     *
+     * @param exception An exception from {@link #exception()}
+     * @return The matching code, or INVALID_RESULT for any other exception
+     */
+    public static ErrorCode of(CalculatorException exception) {
+        for (ErrorCode code : values()) {
+            if (code.exception == exception) {
+                return code;
+            }
+        }
+        return INVALID_RESULT;
+    }
+
+    /**
+     * Get the human-readable description
+     *
+     * @return The error message
+     */
+    public String getMessage() {
+        return exception.getMessage();
+    }
+}
@@ -0,0 +1,403 @@
+package scicalculator1.model;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs engine operations that may take long (high-precision math, large
+ * factorials, table generation) in the background and returns them as
+ * futures. Each operation runs on its own virtual thread when the JVM has
+ * them (Java 21+), otherwise on a pooled daemon thread
+ *
+ * Cancelling a returned {@link Computation}, or passing its deadline,
+ * interrupts the thread running it. The {@link scicalculator1.util.BigMath}
+ * kernels and table generation check for interrupts and stop; because plain
+ * double operations finish quickly, callers that touch the engine next should
+ * wait for {@link Computation#stopped()}. Session operations are not queued
+ * against each other, so submit the next one after the previous has stopped
+ */
+public final class AsyncCalculator implements AutoCloseable {
+
+    /** Deadline applied when none is given */
+    public static final Duration DEFAULT_DEADLINE = Duration.ofSeconds(30);
+
+    // Table rows between interrupt checks and progress reports; whole bitmap words
+    private static final int TABLE_CHUNK = 1 << 16;
+
+    // Executors.newVirtualThreadPerTaskExecutor, looked up so that the code
+    // still compiles and runs on Java 17
+    private static final Method VIRTUAL_THREADS = findVirtualThreads();
+
+    private final CalculatorEngine engine;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final Set<Computation<?>> running = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger runningCount = new AtomicInteger();
+    private volatile Duration deadline = DEFAULT_DEADLINE;
+    private volatile IntConsumer busyListener;
+
+    /**
+     * Create a facade on virtual threads, or a cached daemon pool before Java 21
+     *
+     * @param engine The engine operations run on
+     */
+    public AsyncCalculator(CalculatorEngine engine) {
+        this(engine, newDefaultExecutor(), true);
+    }
+
+    /**
+     * Create a facade on a given executor, which the caller shuts down
+     *
+     * @param engine The engine operations run on
+     * @param executor Runs each operation
+     */
+    public AsyncCalculator(CalculatorEngine engine, ExecutorService executor) {
+        this(engine, executor, false);
+    }
+
+    private AsyncCalculator(CalculatorEngine engine, ExecutorService executor, boolean ownsExecutor) {
+        if (engine == null || executor == null) {
+            throw new IllegalArgumentException("Engine and executor must not be null");
+        }
+        this.engine = engine;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Check whether the default executor uses virtual threads
+     *
+     * @return True on Java 21 and later
+     */
+    public static boolean hasVirtualThreads() {
+        return VIRTUAL_THREADS != null;
+    }
+
+    private static Method findVirtualThreads() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            // Java 19 and 20 have it as a preview feature that may be disabled
+            ((ExecutorService) method.invoke(null)).shutdown();
+            return method;
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (InvocationTargetException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newDefaultExecutor() {
+        if (VIRTUAL_THREADS != null) {
+            try {
+                return (ExecutorService) VIRTUAL_THREADS.invoke(null);
+            } catch (IllegalAccessException e) {
+                // Fall back to platform threads
+            } catch (InvocationTargetException e) {
+                // Fall back to platform threads
+            }
+        }
+        AtomicInteger threads = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, "calculator-compute-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newCachedThreadPool(factory);
+    }
+
+    // ======== SETTINGS ========
+    /**
+     * Get the deadline applied to operations submitted without one
+     *
+     * @return The deadline, or null for none
+     */
+    public Duration getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Set the deadline for operations submitted without one. An operation
+     * still running when it passes fails with a TimeoutException
+     *
+     * @param deadline The deadline, or null for none
+     */
+    public void setDeadline(Duration deadline) {
+        if (deadline != null && (deadline.isZero() || deadline.isNegative())) {
+            throw new IllegalArgumentException("Deadline must be positive: " + deadline);
+        }
+        this.deadline = deadline;
+    }
+
+    /**
+     * Listen for changes in the number of running operations, e.g. to show a
+     * busy indicator. The listener is called from the threads that start and
+     * stop operations
+     *
+     * @param listener Receives the new count, or null to stop listening
+     */
+    public void setBusyListener(IntConsumer listener) {
+        this.busyListener = listener;
+    }
+
+    /**
+     * Get the number of operations that have not yet stopped running
+     *
+     * @return The count
+     */
+    public int getRunningCount() {
+        return runningCount.get();
+    }
+
+    // ======== OPERATIONS ========
+    /**
+     * Run work in the background with the default deadline
+     *
+     * @param <T> The result type
+     * @param work The work
+     * @return The result; cancel it to interrupt the work
+     */
+    public <T> Computation<T> submit(Callable<T> work) {
+        return submit(work, deadline);
+    }
+
+    /**
+     * Run work in the background
+     *
+     * @param <T> The result type
+     * @param work The work
+     * @param deadline Time allowed before the work is interrupted and the
+     * result fails with a TimeoutException, or null for none
+     * @return The result; cancel it to interrupt the work
+     */
+    public <T> Computation<T> submit(Callable<T> work, Duration deadline) {
+        Computation<T> computation = new Computation<>();
+        running.add(computation);
+        busyChanged(runningCount.incrementAndGet());
+        computation.stopped.whenComplete((ignored, error) -> {
+            running.remove(computation);
+            busyChanged(runningCount.decrementAndGet());
+        });
+        try {
+            computation.start(executor, work);
+        } catch (RejectedExecutionException e) {
+            computation.completeExceptionally(e);
+            computation.stopBeforeStart();
+        }
+        if (deadline != null) {
+            CompletableFuture.delayedExecutor(deadline.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+                if (computation.completeExceptionally(
+                        new TimeoutException("Not finished within " + deadline.toMillis() + " ms"))) {
+                    computation.interrupt();
+                }
+            });
+        }
+        return computation;
+    }
+
+    /**
+     * Apply a unary operation to the session in the background
+     *
+     * @param operation The operation
+     * @return The new session state
+     */
+    public Computation<CalculatorState> performUnaryOperation(Operation operation) {
+        return submit(() -> {
+            engine.performUnaryOperation(operation);
+            return engine.getState();
+        });
+    }
+
+    /**
+     * Apply a binary operation to the session in the background
+     *
+     * @param operation The operation
+     * @return The new session state
+     */
+    public Computation<CalculatorState> performBinaryOperation(Operation operation) {
+        return submit(() -> {
+            engine.performBinaryOperation(operation);
+            return engine.getState();
+        });
+    }
+
+    /**
+     * Complete the session's pending operation in the background
+     *
+     * @return The new session state
+     */
+    public Computation<CalculatorState> calculateResult() {
+        return submit(() -> {
+            engine.calculateResult();
+            return engine.getState();
+        });
+    }
+
+    /**
+     * Evaluate an expression on the session in the background
+     *
+     * @param expression The expression text
+     * @return The new session state
+     */
+    public Computation<CalculatorState> evaluateExpression(String expression) {
+        return submit(() -> {
+            engine.evaluateExpression(expression);
+            return engine.getState();
+        });
+    }
+
+    /**
+     * Generate a table of an expression over x = start + i × step in the
+     * background, following the batch conventions of {@link CalculatorEngine}
+     *
+     * @param expression The compiled expression
+     * @param start The first value of x
+     * @param step The distance between consecutive values of x
+     * @param out Receives the results; its length is the number of points
+     * @param errors Error bitmap of at least (n + 63) / 64 words, or null to
+     * skip reporting
+     * @param progress Receives the completed fraction after each chunk, or
+     * null
+     * @return The number of failed elements
+     */
+    public Computation<Integer> evaluate(CompiledExpression expression, double start, double step,
+            double[] out, long[] errors, DoubleConsumer progress) {
+        int n = out.length;
+        if (errors != null && errors.length < (n + 63) >>> 6) {
+            throw new IllegalArgumentException("Error bitmap too small for " + n + " elements");
+        }
+        return submit(() -> {
+            double[] stack = expression.newStack();
+            int failures = 0;
+            for (int from = 0; from < n; from += TABLE_CHUNK) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Table generation interrupted");
+                }
+                int to = Math.min(n, from + TABLE_CHUNK);
+                for (int i = from; i < to; i++) {
+                    out[i] = expression.evaluate(engine, start + i * step, stack);
+                }
+                failures += CalculatorEngine.markErrors(out, from, to, errors);
+                if (progress != null) {
+                    progress.accept((double) to / n);
+                }
+            }
+            return failures;
+        });
+    }
+
+    /**
+     * Cancel every running operation
+     */
+    public void cancelAll() {
+        for (Computation<?> computation : running) {
+            computation.cancel(true);
+        }
+    }
+
+    /**
+     * Cancel running operations and, if this facade created its executor,
+     * shut it down
+     */
+    @Override
+    public void close() {
+        cancelAll();
+        if (ownsExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void busyChanged(int count) {
+        IntConsumer listener = busyListener;
+        if (listener != null) {
+            listener.accept(count);
+        }
+    }
+
+    /**
+     * Result of a background operation. Cancelling it interrupts the thread
+     * running the work
+     *
+     * @param <T> The result type
+     */
+    public static final class Computation<T> extends CompletableFuture<T> {
+
+        private final CompletableFuture<Void> stopped = new CompletableFuture<>();
+        // Set by whichever comes first: the work starting, or it being dropped
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private volatile Future<?> task;
+
+        private Computation() {
+        }
+
+        private void start(ExecutorService executor, Callable<T> work) {
+            task = executor.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    complete(work.call());
+                } catch (Throwable e) {
+                    // Errors too, so that waiting callers are released
+                    completeExceptionally(e);
+                } finally {
+                    stopped.complete(null);
+                }
+            });
+            if (isDone()) {
+                interrupt();
+            }
+        }
+
+        private void stopBeforeStart() {
+            if (claimed.compareAndSet(false, true)) {
+                stopped.complete(null);
+            }
+        }
+
+        private void interrupt() {
+            Future<?> t = task;
+            if (t != null) {
+                t.cancel(true);
+            }
+            // A task cancelled before it ran never reaches its finally block
+            stopBeforeStart();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            interrupt();
+            return cancelled;
+        }
+
+        /**
+         * Get a future that completes once the work is no longer running. It
+         * may complete later than this result when the result was cancelled
+         * or timed out
+         *
+         * @return The stop signal
+         */
+        public CompletableFuture<Void> stopped() {
+            return stopped;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package scicalculator1.model;
+
+import java.nio.ByteBuffer;
+import scicalculator1.util.FormatUtils;
+import scicalculator1.util.MathUtils;
+
+/**
+ * Fixed-capacity record of completed calculations. Entries are kept as
+ * primitives in a ring of fixed-size slots, so adding one is O(1), allocates
+ * nothing and, once the ring is full, overwrites the oldest. The ring lives in
+ * a ByteBuffer, on the heap or mapped from a {@link CalculatorStore} file
+ *
+ * Each entry has a sequence number, counting from 0 for the first entry ever
+ * added. The retained entries are the sequences from {@link #getStart()} to
+ * {@link #getEnd()}, exclusive; both only grow, so a reader on another thread
+ * can read them without locking and ask for any sequence in between. Text is
+ * only built when an entry is read, e.g. for the rows a list view shows
+ */
+public final class CalculationHistory {
+
+    /** Default number of retained entries */
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    // Layout: the start and end sequences, then one slot per entry
+    private static final int START = 0;
+    private static final int END = 8;
+    private static final int SLOTS = 16;
+    // Slot layout: left operand, right operand, result, operation ordinal
+    private static final int SLOT_BYTES = 32;
+    private static final int LEFT = 0;
+    private static final int RIGHT = 8;
+    private static final int RESULT = 16;
+    private static final int OPERATION = 24;
+
+    private static final int MAX_CAPACITY = (Integer.MAX_VALUE - SLOTS) / SLOT_BYTES;
+
+    private final int capacity;
+    private final ByteBuffer buffer;
+
+    // Copies of the stored range, written under the lock; volatile so that
+    // readers see a consistent range without it
+    private volatile long start;
+    private volatile long end;
+
+    /**
+     * Create an empty history
+     *
+     * @param capacity The largest number of retained entries
+     */
+    public CalculationHistory(int capacity) {
+        this(ByteBuffer.allocate(bytesFor(capacity)), capacity);
+    }
+
+    /**
+     * Use the entries already in a buffer laid out by this class, e.g. a
+     * mapped file. Only the stored range is read, so this is O(1); a range
+     * that does not fit the capacity is reset to empty
+     *
+     * @param buffer At least {@link #bytesFor(int)} bytes, from position 0
+     * @param capacity The capacity the buffer was laid out for
+     */
+    CalculationHistory(ByteBuffer buffer, int capacity) {
+        if (buffer.capacity() < bytesFor(capacity)) {
+            throw new IllegalArgumentException("Buffer too small for " + capacity + " entries");
+        }
+        this.capacity = capacity;
+        this.buffer = buffer;
+        long storedStart = buffer.getLong(START);
+        long storedEnd = buffer.getLong(END);
+        if (storedStart < 0 || storedStart > storedEnd || storedEnd - storedStart > capacity) {
+            storedStart = 0;
+            storedEnd = 0;
+            buffer.putLong(START, 0);
+            buffer.putLong(END, 0);
+        }
+        this.start = storedStart;
+        this.end = storedEnd;
+    }
+
+    /**
+     * Get the size of the buffer layout for a capacity
+     *
+     * @param capacity The number of entries
+     * @return The size in bytes
+     */
+    static int bytesFor(int capacity) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_CAPACITY + ": " + capacity);
+        }
+        return SLOTS + capacity * SLOT_BYTES;
+    }
+
+    /**
+     * Get the largest number of retained entries
+     *
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the sequence of the oldest retained entry
+     *
+     * @return The sequence, equal to {@link #getEnd()} when empty
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * Get the sequence the next entry will have
+     *
+     * @return The number of entries ever added
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * Get the number of retained entries
+     *
+     * @return The size
+     */
+    public synchronized int size() {
+        return (int) (end - start);
+    }
+
+    /**
+     * Add a completed calculation
+     *
+     * @param operation The operation
+     * @param left The first operand, or the only one of a unary operation
+     * @param right The second operand; ignored for a unary operation
+     * @param result The result, a NaN carrying an
+     * {@link scicalculator1.exception.ErrorCode} if it failed
+     */
+    public synchronized void add(Operation operation, double left, double right, double result) {
+        long sequence = end;
+        int slot = offset(sequence);
+        buffer.putDouble(slot + LEFT, left);
+        buffer.putDouble(slot + RIGHT, right);
+        buffer.putDouble(slot + RESULT, result);
+        buffer.put(slot + OPERATION, (byte) operation.ordinal());
+        // The range moves after the slot is written, so a reader of the
+        // stored copy never sees a half-written entry in it
+        if (sequence - start == capacity) {
+            start = sequence - capacity + 1;
+            buffer.putLong(START, start);
+        }
+        end = sequence + 1;
+        buffer.putLong(END, end);
+    }
+
+    /**
+     * Drop every entry. Sequences are not reused
+     */
+    public synchronized void clear() {
+        start = end;
+        buffer.putLong(START, start);
+    }
+
+    /**
+     * Check whether an entry is still retained
+     *
+     * @param sequence The entry's sequence
+     * @return False if it was overwritten, cleared or not yet added
+     */
+    public synchronized boolean contains(long sequence) {
+        return sequence >= start && sequence < end;
+    }
+
+    /**
+     * Get an entry's operation
+     *
+     * @param sequence The entry's sequence
+     * @return The operation
+     * @throws IndexOutOfBoundsException If the entry is not retained
+     */
+    public synchronized Operation getOperation(long sequence) {
+        return operationAt(slot(sequence));
+    }
+
+    /**
+     * Get an entry's first operand
+     *
+     * @param sequence The entry's sequence
+     * @return The operand
+     * @throws IndexOutOfBoundsException If the entry is not retained
+     */
+    public synchronized double getLeft(long sequence) {
+        return buffer.getDouble(slot(sequence) + LEFT);
+    }
+
+    /**
+     * Get an entry's second operand
+     *
+     * @param sequence The entry's sequence
+     * @return The operand; meaningless for a unary operation
+     * @throws IndexOutOfBoundsException If the entry is not retained
+     */
+    public synchronized double getRight(long sequence) {
+        return buffer.getDouble(slot(sequence) + RIGHT);
+    }
+
+    /**
+     * Get an entry's result
+     *
+     * @param sequence The entry's sequence
+     * @return The result, a NaN carrying an error code if it failed
+     * @throws IndexOutOfBoundsException If the entry is not retained
+     */
+    public synchronized double getResult(long sequence) {
+        return buffer.getDouble(slot(sequence) + RESULT);
+    }
+
+    /**
+     * Describe an entry's calculation, e.g. "12 + 3" or "sin(30)"
+     *
+     * @param sequence The entry's sequence
+     * @return The text, or null if the entry is not retained
+     */
+    public synchronized String getExpression(long sequence) {
+        if (!contains(sequence)) {
+            return null;
+        }
+        return appendExpression(slot(sequence), new StringBuilder()).toString();
+    }
+
+    /**
+     * Describe an entry with its result, e.g. "12 + 3 = 15"
+     *
+     * @param sequence The entry's sequence
+     * @return The text, or null if the entry is not retained
+     */
+    public synchronized String getText(long sequence) {
+        if (!contains(sequence)) {
+            return null;
+        }
+        int slot = slot(sequence);
+        StringBuilder text = appendExpression(slot, new StringBuilder()).append(" = ");
+        double result = buffer.getDouble(slot + RESULT);
+        if (MathUtils.isValidNumber(result)) {
+            FormatUtils.formatNumber(result, text);
+        } else {
+            text.append("Error");
+        }
+        return text.toString();
+    }
+
+    // Offset of a retained entry's slot
+    private int slot(long sequence) {
+        if (sequence < start || sequence >= end) {
+            throw new IndexOutOfBoundsException("Entry " + sequence + " not in [" + start + ", " + end + ")");
+        }
+        return offset(sequence);
+    }
+
+    private int offset(long sequence) {
+        return SLOTS + (int) (sequence % capacity) * SLOT_BYTES;
+    }
+
+    private Operation operationAt(int slot) {
+        int ordinal = buffer.get(slot + OPERATION);
+        return ordinal >= 0 && ordinal < OPERATIONS.length ? OPERATIONS[ordinal] : Operation.ADD;
+    }
+
+    private StringBuilder appendExpression(int slot, StringBuilder text) {
+        Operation operation = operationAt(slot);
+        String symbol = operation.getSymbol();
+        double operand = buffer.getDouble(slot + LEFT);
+        if (!operation.isUnary()) {
+            FormatUtils.formatNumber(operand, text).append(' ').append(symbol).append(' ');
+            return FormatUtils.formatNumber(buffer.getDouble(slot + RIGHT), text);
+        }
+        switch (operation) {
+            case FACTORIAL:
+            case PERCENT:
+                return FormatUtils.formatNumber(operand, text).append(symbol);
+            case SQUARE:
+            case RECIPROCAL:
+            case ABS:
+                // Symbols written around x, e.g. 1/x
+                int x = symbol.indexOf('x');
+                text.append(symbol, 0, x);
+                return FormatUtils.formatNumber(operand, text).append(symbol, x + 1, symbol.length());
+            case NEGATE:
+                text.append("negate(");
+                break;
+            default:
+                text.append(symbol).append('(');
+                break;
+        }
+        return FormatUtils.formatNumber(operand, text).append(')');
+    }
+}
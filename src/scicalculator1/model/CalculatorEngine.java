@@ -1,392 +1,1255 @@
 package scicalculator1.model;
 
+import java.math.BigDecimal;
 import scicalculator1.exception.*;
+import scicalculator1.util.AngleUnit;
 import scicalculator1.util.FormatUtils;
 import scicalculator1.util.MathUtils;
+import scicalculator1.util.VectorMath;
 
 /**
  * Core calculation engine for the scientific calculator Handles all
  * mathematical operations and state management
  *
+ * The engine has two layers. The state-passing methods (for example
+ * {@link #inputDigit(CalculatorState, int)}) are pure transitions from one
+ * immutable {@link CalculatorState} to the next and never modify instance
+ * state, so a single engine can serve any number of sessions on any number of
+ * threads without locking. The only engine settings they read are the angle
+ * unit used by the trigonometric operations and the numeric backend. The
+ * no-argument methods drive one session held by this engine, as used by the UI
+ *
+ * The memory registers M0-M99 live in a {@link MemoryBank} that sessions may
+ * share, not in the state. Storing to a register is therefore only a session
+ * method; the pure {@link #memoryRecall(CalculatorState, MemoryBank, int)}
+ * reads whichever bank it is given
+ *
+ * With an exact {@link NumericBackend} the interactive transitions calculate in
+ * BigDecimal; expressions and the batch methods always use double
+ *
  * @author Abdelrahman
  */
 public class CalculatorEngine {
 
-    private CalculatorState state;
+    // Attach the shared, JMX-published metrics to every engine
+    private static final boolean METRICS = Boolean.getBoolean("scicalculator.metrics");
+
+    // Session state for the convenience methods; each transition swaps the reference
+    private volatile CalculatorState state;
+
+    // Unit for trigonometric arguments and inverse trigonometric results
+    private volatile AngleUnit angleUnit = AngleUnit.DEGREES;
+
+    // Optional memoization of expensive operations; may be shared between engines
+    private volatile OperationCache cache;
+
+    // Number system of the interactive transitions
+    private volatile NumericBackend backend = NumericBackend.DOUBLE;
+
+    // Optional record of every session input, for replay after a crash
+    private volatile KeystrokeJournal journal;
+
+    // Optional operation counts and latencies; may be shared between engines
+    private volatile EngineMetrics metrics;
+
+    // Optional record of the calculations the session completes
+    private volatile CalculationHistory history;
+
+    // Registers M0-M99; may be shared between engines
+    private volatile MemoryBank memoryBank = new MemoryBank();
+
+    // Last compiled expression and its operand stack, reused while the text is unchanged
+    private CompiledExpression compiledExpression;
+    private double[] expressionStack;
+
+    /**
+     * Constructor initializes the calculator engine
+     */
+    public CalculatorEngine() {
+        this.state = CalculatorState.initial();
+        if (METRICS) {
+            this.metrics = EngineMetrics.shared();
+        }
+    }
+
+    // ======== SESSION METHODS ========
+    /**
+     * Process a digit input
+     *
+     * @param digit The digit to append (0-9)
+     */
+    public void inputDigit(int digit) {
+        state = inputDigit(state, digit);
+        if (digit >= 0 && digit <= 9) {
+            record(KeystrokeJournal.DIGIT + digit);
+        }
+    }
+
+    /**
+     * Process a decimal point input
+     */
+    public void inputDecimal() {
+        state = inputDecimal(state);
+        record(KeystrokeJournal.DECIMAL);
+    }
+
+    /**
+     * Input a mathematical constant
+     *
+     * @param value The constant value (e.g., Math.PI, Math.E)
+     * @return A formatted string describing the constant for history display
+     */
+    public String inputConstant(double value) {
+        state = inputConstant(state, value);
+        KeystrokeJournal journal = this.journal;
+        if (journal != null) {
+            journal.appendConstant(value);
+        }
+
+        // Return symbol for history display
+        if (value == Math.PI) {
+            return "\u03c0";
+        } else if (value == Math.E) {
+            return "e";
+        }
+        return "";
+    }
+
+    /**
+     * Process a binary operation (operations that require two operands)
+     *
+     * @param operation The operation to perform
+     * @throws CalculatorException If the operation fails
+     */
+    public void performBinaryOperation(Operation operation) throws CalculatorException {
+        CalculatorState before = state;
+        state = performBinaryOperation(before, operation);
+        record(KeystrokeJournal.BINARY, operation.ordinal());
+        // Chaining completes the pending operation
+        if (!before.isNewInput()) {
+            remember(before, state);
+        }
+    }
+
+    /**
+     * Process a unary operation (operations that require one operand)
+     *
+     * @param operation The operation to perform
+     * @throws CalculatorException If the operation fails
+     */
+    public void performUnaryOperation(Operation operation) throws CalculatorException {
+        CalculatorState before = state;
+        state = performUnaryOperation(before, operation);
+        record(KeystrokeJournal.UNARY, operation.ordinal());
+        CalculationHistory history = this.history;
+        if (history != null && !before.isError()) {
+            history.add(operation, operandOf(before), 0.0, resultOf(state));
+        }
+    }
+
+    /**
+     * Process percent operation with context-aware behavior If there's a
+     * pending operation, calculates percentage of the stored value Otherwise,
+     * converts the current value to a percentage (divides by 100)
+     *
+     * @return A formatted string describing the operation for history display
+     * @throws CalculatorException If the operation fails
+     */
+    public String performPercent() throws CalculatorException {
+        CalculatorState before = state;
+        CalculatorState after = performPercent(before);
+        state = after;
+        record(KeystrokeJournal.PERCENT);
+
+        if (before.isError() || after.isError()) {
+            return "";
+        }
+        double currentValue = before.getOperand();
+        if (before.getCurrentOperation() != null) {
+            return FormatUtils.formatNumber(before.getStoredValue()) + " × " + FormatUtils.formatNumber(currentValue) + "%";
+        }
+        return FormatUtils.formatNumber(currentValue) + "%";
+    }
+
+    /**
+     * Evaluate a whole infix expression (with parentheses and precedence) and
+     * show its result. The variable x is bound to the current display value.
+     * A malformed expression puts the engine in its error state
+     *
+     * @param expression The expression text, e.g. "2 × (3 + 4)"
+     * @throws CalculatorException If the expression cannot be compiled; its
+     * message says why
+     */
+    public void evaluateExpression(String expression) throws CalculatorException {
+        KeystrokeJournal journal = this.journal;
+        try {
+            CompiledExpression compiled = compile(expression);
+            state = evaluateExpression(state, compiled, expressionStack);
+        } catch (CalculatorException e) {
+            state = state.withError(ErrorCode.SYNTAX_ERROR);
+            throw e;
+        } finally {
+            if (journal != null) {
+                journal.appendExpression(expression);
+            }
+        }
+    }
+
+    /**
+     * Compile an expression, reusing the previous compiled form when the text
+     * is unchanged
+     *
+     * @param expression The expression text
+     * @return The compiled expression
+     * @throws CalculatorException If the expression is malformed
+     */
+    public CompiledExpression compile(String expression) throws CalculatorException {
+        CompiledExpression cached = compiledExpression;
+        if (cached != null && cached.getSource().equals(expression)) {
+            return cached;
+        }
+        cached = CompiledExpression.compile(expression);
+        compiledExpression = cached;
+        expressionStack = cached.newStack();
+        return cached;
+    }
+
+    /**
+     * Calculate the result of pending operations
+     *
+     * @throws CalculatorException If calculation fails
+     */
+    public void calculateResult() throws CalculatorException {
+        CalculatorState before = state;
+        state = calculateResult(before);
+        record(KeystrokeJournal.CALCULATE);
+        remember(before, state);
+    }
+
+    /**
+     * Clear the current input (CE - Clear Entry)
+     */
+    public void clearEntry() {
+        state = clearEntry(state);
+        record(KeystrokeJournal.CLEAR_ENTRY);
+    }
+
+    /**
+     * Clear all values and reset calculator (C - Clear)
+     */
+    public void clearAll() {
+        state = CalculatorState.initial();
+        record(KeystrokeJournal.CLEAR_ALL);
+    }
+
+    /**
+     * Delete the last character from current input
+     */
+    public void backspace() {
+        state = backspace(state);
+        record(KeystrokeJournal.BACKSPACE);
+    }
+
+    /**
+     * Get the current calculator state
+     *
+     * @return The current state
+     * @author Muahmmadjibril
+     */
+    public CalculatorState getState() {
+        return state;
+    }
+
+    /**
+     * Replace the session state, e.g. to restore a saved snapshot. The new
+     * state is not journaled
+     *
+     * @param state The new state
+     */
+    public void setState(CalculatorState state) {
+        this.state = state;
+    }
+
+    /**
+     * Get the current display value
+     *
+     * @return The display text
+     */
+    public String getDisplay() {
+        return state.getDisplayText();
+    }
+
+    /**
+     * Get the angle unit used by the trigonometric operations
+     *
+     * @return The angle unit, DEGREES by default
+     */
+    public AngleUnit getAngleUnit() {
+        return angleUnit;
+    }
+
+    /**
+     * Switch between degree, radian and gradian mode
+     *
+     * @param angleUnit The new angle unit
+     */
+    public void setAngleUnit(AngleUnit angleUnit) {
+        if (angleUnit == null) {
+            throw new IllegalArgumentException("Angle unit must not be null");
+        }
+        this.angleUnit = angleUnit;
+        record(KeystrokeJournal.ANGLE_UNIT, angleUnit.ordinal());
+    }
+
+    /**
+     * Get the memoization cache
+     *
+     * @return The cache, or null when caching is off
+     */
+    public OperationCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Memoize expensive operations in a cache. One cache can be shared by
+     * several engines
+     *
+     * @param cache The cache, or null to turn caching off
+     */
+    public void setCache(OperationCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Get the number system used by the interactive transitions
+     *
+     * @return The backend, DOUBLE by default
+     */
+    public NumericBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Switch between double and arbitrary-precision decimal arithmetic
+     *
+     * @param backend The new backend
+     */
+    public void setBackend(NumericBackend backend) {
+        if (backend == null) {
+            throw new IllegalArgumentException("Numeric backend must not be null");
+        }
+        this.backend = backend;
+        KeystrokeJournal journal = this.journal;
+        if (journal != null) {
+            journal.appendBackend(backend);
+        }
+    }
+
+    /**
+     * Get the keystroke journal
+     *
+     * @return The journal, or null when inputs are not recorded
+     */
+    public KeystrokeJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Record every session input to a journal, starting with a snapshot of the
+     * memory register, angle unit and backend for replay to start from. The
+     * caller keeps ownership and closes it
+     *
+     * @param journal The journal, or null to stop recording
+     */
+    public void setJournal(KeystrokeJournal journal) {
+        this.journal = journal;
+        if (journal != null) {
+            journal.appendSnapshot(state.getMemory(), angleUnit, backend);
+        }
+    }
+
+    /**
+     * Get the operation metrics
+     *
+     * @return The metrics, or null when operations are not measured
+     */
+    public EngineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Count and time every operation this engine dispatches
+     *
+     * @param metrics The metrics, or null to stop measuring
+     */
+    public void setMetrics(EngineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Store current display value to memory
+     */
+    public void memoryStore() {
+        state = memoryStore(state);
+        record(KeystrokeJournal.MEMORY_STORE);
+    }
+
+    /**
+     * Recall memory value to display
+     */
+    public void memoryRecall() {
+        state = memoryRecall(state);
+        record(KeystrokeJournal.MEMORY_RECALL);
+    }
+
+    /**
+     * Add current display value to memory
+     */
+    public void memoryAdd() {
+        state = memoryAdd(state);
+        record(KeystrokeJournal.MEMORY_ADD);
+    }
+
+    /**
+     * Subtract current display value from memory
+     */
+    public void memorySubtract() {
+        state = memorySubtract(state);
+        record(KeystrokeJournal.MEMORY_SUBTRACT);
+    }
+
+    /**
+     * Clear memory
+     */
+    public void memoryClear() {
+        state = state.withMemory(0.0);
+        record(KeystrokeJournal.MEMORY_CLEAR);
+    }
+
+    /**
+     * Store current display value to a register of the memory bank
+     *
+     * @param register The register number, 0-99
+     */
+    public void memoryStore(int register) {
+        storeRegister(memoryBank, register, state);
+        record(KeystrokeJournal.REGISTER_STORE, register);
+    }
+
+    /**
+     * Recall a register of the memory bank to display
+     *
+     * @param register The register number, 0-99
+     */
+    public void memoryRecall(int register) {
+        state = memoryRecall(state, memoryBank, register);
+        record(KeystrokeJournal.REGISTER_RECALL, register);
+    }
+
+    /**
+     * Add current display value to a register of the memory bank
+     *
+     * @param register The register number, 0-99
+     */
+    public void memoryAdd(int register) {
+        addToRegister(memoryBank, register, state, 1.0);
+        record(KeystrokeJournal.REGISTER_ADD, register);
+    }
+
+    /**
+     * Subtract current display value from a register of the memory bank
+     *
+     * @param register The register number, 0-99
+     */
+    public void memorySubtract(int register) {
+        addToRegister(memoryBank, register, state, -1.0);
+        record(KeystrokeJournal.REGISTER_SUBTRACT, register);
+    }
+
+    /**
+     * Clear a register of the memory bank
+     *
+     * @param register The register number, 0-99
+     */
+    public void memoryClear(int register) {
+        memoryBank.clear(register);
+        record(KeystrokeJournal.REGISTER_CLEAR, register);
+    }
+
+    /**
+     * Get the registers M0-M99
+     *
+     * @return The memory bank
+     */
+    public MemoryBank getMemoryBank() {
+        return memoryBank;
+    }
+
+    /**
+     * Use a memory bank, e.g. one shared by several engines so that their
+     * sessions accumulate into the same registers
+     *
+     * @param memoryBank The bank
+     */
+    public void setMemoryBank(MemoryBank memoryBank) {
+        if (memoryBank == null) {
+            throw new IllegalArgumentException("Memory bank must not be null");
+        }
+        this.memoryBank = memoryBank;
+    }
+
+    /**
+     * Get the calculation history
+     *
+     * @return The history, or null when calculations are not recorded
+     */
+    public CalculationHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Record every calculation the session completes: pending binary
+     * operations, whether finished by equals or by chaining, and unary
+     * operations. The history may be read from any thread
+     *
+     * @param history The history, or null to stop recording
+     */
+    public void setHistory(CalculationHistory history) {
+        this.history = history;
+    }
+
+    // Record the pending operation of before, completed in after
+    private void remember(CalculatorState before, CalculatorState after) {
+        CalculationHistory history = this.history;
+        Operation operation = before.getCurrentOperation();
+        if (history != null && operation != null && !before.isError()) {
+            history.add(operation, before.getStoredValue(), operandOf(before), resultOf(after));
+        }
+    }
+
+    private static double operandOf(CalculatorState s) {
+        try {
+            return s.getOperand();
+        } catch (NumberFormatException e) {
+            return MathUtils.error(ErrorCode.INVALID_RESULT);
+        }
+    }
+
+    private static double resultOf(CalculatorState s) {
+        return s.isError() ? MathUtils.error(s.getErrorCode()) : s.getCurrentValue();
+    }
 
-    /**
-     * Constructor initializes the calculator engine
-     */
-    public CalculatorEngine() {
-        this.state = new CalculatorState();
+    private void record(int event) {
+        KeystrokeJournal journal = this.journal;
+        if (journal != null) {
+            journal.append(event);
+        }
+    }
+
+    private void record(int event, int operand) {
+        KeystrokeJournal journal = this.journal;
+        if (journal != null) {
+            journal.append(event, operand);
+        }
     }
 
+    // ======== STATE TRANSITIONS ========
     /**
      * Process a digit input
      *
+     * @param s The current state
      * @param digit The digit to append (0-9)
+     * @return The next state
      */
-    public void inputDigit(int digit) {
-        if (state.isError()) {
-            state.reset();
+    public CalculatorState inputDigit(CalculatorState s, int digit) {
+        if (s.isError()) {
+            s = CalculatorState.initial();
         }
 
-        if (state.isNewInput()) {
-            state.setDisplayText(String.valueOf(digit));
-            state.setNewInput(false);
-        } else {
-            String current = state.getDisplayText();
-            if (!current.equals("0") || digit != 0) {
-                state.setDisplayText(current + digit);
-            }
+        if (s.isNewInput()) {
+            return s.withEntry(String.valueOf(digit));
         }
+        String current = s.getDisplayText();
+        if (!current.equals("0") || digit != 0) {
+            return s.withEntry(current + digit);
+        }
+        return s;
     }
 
     /**
      * Process a decimal point input
+     *
+     * @param s The current state
+     * @return The next state
      */
-    public void inputDecimal() {
-        if (state.isError()) {
-            state.reset();
+    public CalculatorState inputDecimal(CalculatorState s) {
+        if (s.isError()) {
+            s = CalculatorState.initial();
         }
 
-        if (state.isNewInput()) {
-            state.setDisplayText("0.");
-            state.setNewInput(false);
-        } else if (!state.getDisplayText().contains(".")) {
-            state.setDisplayText(state.getDisplayText() + ".");
+        if (s.isNewInput()) {
+            return s.withEntry("0.");
+        } else if (!s.getDisplayText().contains(".")) {
+            return s.withEntry(s.getDisplayText() + ".");
         }
+        return s;
     }
 
     /**
      * Input a mathematical constant
      *
+     * @param s The current state
      * @param value The constant value (e.g., Math.PI, Math.E)
-     * @return A formatted string describing the constant for history display
+     * @return The next state
      */
-    public String inputConstant(double value) {
-        if (state.isError()) {
-            state.reset();
+    public CalculatorState inputConstant(CalculatorState s, double value) {
+        if (s.isError()) {
+            s = CalculatorState.initial();
         }
-
-        state.setDisplayText(FormatUtils.formatNumber(value));
-        state.setNewInput(true);
-
-        // Return symbol for history display
-        if (value == Math.PI) {
-            return "\u03c0";
-        } else if (value == Math.E) {
-            return "e";
+        NumericBackend backend = this.backend;
+        if (backend.isExact()) {
+            return s.withValue(backend.constant(value), true);
         }
-        return "";
+        return s.withValue(value, true);
     }
 
     /**
      * Process a binary operation (operations that require two operands)
      *
+     * @param s The current state
      * @param operation The operation to perform
-     * @throws CalculatorException If the operation fails
+     * @return The next state
      */
-    public void performBinaryOperation(Operation operation) throws CalculatorException {
-        if (state.isError()) {
-            return;
+    public CalculatorState performBinaryOperation(CalculatorState s, Operation operation) {
+        if (s.isError()) {
+            return s;
+        }
+        NumericBackend backend = this.backend;
+        if (backend.isExact()) {
+            return performBinaryOperationExact(s, operation, backend);
         }
 
         try {
             // Parse current display value
-            double currentValue = FormatUtils.parseNumber(state.getDisplayText());
+            double currentValue = s.getOperand();
 
             // If there's a pending operation, calculate it first (chaining)
-            if (state.getCurrentOperation() != null && !state.isNewInput()) {
-                double storedValue = state.getStoredValue();
-                double result = executeBinaryOperation(storedValue, currentValue, state.getCurrentOperation());
+            if (s.getCurrentOperation() != null && !s.isNewInput()) {
+                double result = executeBinaryOperation(s.getStoredValue(), currentValue, s.getCurrentOperation());
 
                 // Validate result
                 if (!MathUtils.isValidNumber(result)) {
-                    state.setError(true);
-                    state.setDisplayText("Error");
-                    return;
+                    return s.withError(MathUtils.errorCode(result));
                 }
 
-                // Check for overflow
-                MathUtils.checkOverflow(result);
-
                 // Update display and current value
-                state.setDisplayText(FormatUtils.formatNumber(result));
-                state.setCurrentValue(result);
+                s = s.withValue(result, s.isNewInput());
                 currentValue = result;
             }
 
             // Store the current value for the next operation
-            state.setStoredValue(currentValue);
-            state.setCurrentOperation(operation);
-            state.setNewInput(true);
+            return s.withPendingOperation(currentValue, operation);
 
-        } catch (CalculatorException e) {
-            state.setError(true);
-            state.setDisplayText("Error");
-            state.setCurrentOperation(null);
         } catch (NumberFormatException e) {
-            state.setError(true);
-            state.setDisplayText("Error");
-            state.setCurrentOperation(null);
+            return s.withError(ErrorCode.INVALID_RESULT);
         }
     }
 
     /**
      * Process a unary operation (operations that require one operand)
      *
+     * @param s The current state
      * @param operation The operation to perform
-     * @throws CalculatorException If the operation fails
+     * @return The next state
      */
-    public void performUnaryOperation(Operation operation) throws CalculatorException {
-        if (state.isError()) {
-            return;
+    public CalculatorState performUnaryOperation(CalculatorState s, Operation operation) {
+        if (s.isError()) {
+            return s;
+        }
+        NumericBackend backend = this.backend;
+        if (backend.isExact()) {
+            return performUnaryOperationExact(s, operation, backend);
         }
 
         try {
             // Parse current display value
-            double currentValue = FormatUtils.parseNumber(state.getDisplayText());
+            double currentValue = s.getOperand();
 
             // Execute the unary operation
             double result = executeUnaryOperation(currentValue, operation);
 
             // Validate result
             if (!MathUtils.isValidNumber(result)) {
-                state.setError(true);
-                state.setDisplayText("Error");
-                return;
+                return s.withError(MathUtils.errorCode(result));
             }
 
-            // Check for overflow
-            MathUtils.checkOverflow(result);
-
             // Format and display result
-            state.setDisplayText(FormatUtils.formatNumber(result));
-            state.setCurrentValue(result);
-            state.setNewInput(true);
+            return s.withValue(result, true);
 
-        } catch (CalculatorException e) {
-            state.setError(true);
-            state.setDisplayText("Error");
         } catch (NumberFormatException e) {
-            state.setError(true);
-            state.setDisplayText("Error");
+            return s.withError(ErrorCode.INVALID_RESULT);
         }
     }
 
     /**
-     * Process percent operation with context-aware behavior If there's a
-     * pending operation, calculates percentage of the stored value Otherwise,
-     * converts the current value to a percentage (divides by 100)
+     * Process percent operation with context-aware behavior
      *
-     * @return A formatted string describing the operation for history display
-     * @throws CalculatorException If the operation fails
+     * @param s The current state
+     * @return The next state
      */
-    public String performPercent() throws CalculatorException {
-        if (state.isError()) {
-            return "";
+    public CalculatorState performPercent(CalculatorState s) {
+        if (s.isError()) {
+            return s;
+        }
+        NumericBackend backend = this.backend;
+        if (backend.isExact()) {
+            return performPercentExact(s, backend);
         }
 
         try {
-            double currentValue = FormatUtils.parseNumber(state.getDisplayText());
+            double currentValue = s.getOperand();
 
-            if (state.getCurrentOperation() != null) {
+            if (s.getCurrentOperation() != null) {
                 // Percent of first operand
-                double firstOperand = state.getStoredValue();
-                double result = firstOperand * (currentValue / 100.0);
+                double result = s.getStoredValue() * (currentValue / 100.0);
 
                 // Validate result
                 if (!MathUtils.isValidNumber(result)) {
-                    state.setError(true);
-                    state.setDisplayText("Error");
-                    return "";
+                    return s.withError(MathUtils.errorCode(result));
                 }
 
-                // Check for overflow
-                MathUtils.checkOverflow(result);
-
-                state.setDisplayText(FormatUtils.formatNumber(result));
-                state.setCurrentValue(result);
-                return FormatUtils.formatNumber(firstOperand) + " × " + FormatUtils.formatNumber(currentValue) + "%";
+                return s.withValue(result, s.isNewInput());
             } else {
                 // Simple percent conversion
                 double result = currentValue / 100.0;
 
                 // Validate result
                 if (!MathUtils.isValidNumber(result)) {
-                    state.setError(true);
-                    state.setDisplayText("Error");
-                    return "";
+                    return s.withError(MathUtils.errorCode(result));
                 }
 
-                state.setDisplayText(FormatUtils.formatNumber(result));
-                state.setCurrentValue(result);
-                state.setNewInput(true);
-                return FormatUtils.formatNumber(currentValue) + "%";
+                return s.withValue(result, true);
             }
-        } catch (CalculatorException e) {
-            state.setError(true);
-            state.setDisplayText("Error");
-            return "";
         } catch (NumberFormatException e) {
-            state.setError(true);
-            state.setDisplayText("Error");
-            return "";
+            return s.withError(ErrorCode.INVALID_RESULT);
         }
     }
 
     /**
      * Calculate the result of pending operations
      *
-     * @throws CalculatorException If calculation fails
+     * @param s The current state
+     * @return The next state
      */
-    public void calculateResult() throws CalculatorException {
-        if (state.isError() || state.getCurrentOperation() == null) {
-            return;
+    public CalculatorState calculateResult(CalculatorState s) {
+        if (s.isError() || s.getCurrentOperation() == null) {
+            return s;
+        }
+        NumericBackend backend = this.backend;
+        if (backend.isExact()) {
+            return calculateResultExact(s, backend);
         }
 
         try {
             // Parse current display value (second operand)
-            double currentValue = FormatUtils.parseNumber(state.getDisplayText());
+            double currentValue = s.getOperand();
 
-            // Get stored value (first operand)
-            double storedValue = state.getStoredValue();
-
-            // Execute the pending operation
-            double result = executeBinaryOperation(storedValue, currentValue, state.getCurrentOperation());
+            // Execute the pending operation against the stored first operand
+            double result = executeBinaryOperation(s.getStoredValue(), currentValue, s.getCurrentOperation());
 
             // Validate result
             if (!MathUtils.isValidNumber(result)) {
-                state.setError(true);
-                state.setDisplayText("Error");
-                state.setCurrentOperation(null);
-                return;
+                return s.withError(MathUtils.errorCode(result));
             }
 
-            // Check for overflow
-            MathUtils.checkOverflow(result);
-
             // Format and display result
-            state.setDisplayText(FormatUtils.formatNumber(result));
-            state.setCurrentValue(result);
-            state.setStoredValue(0);
-            state.setCurrentOperation(null);
-            state.setNewInput(true);
+            return s.withCompletedResult(result);
 
-        } catch (CalculatorException e) {
-            state.setError(true);
-            state.setDisplayText("Error");
-            state.setCurrentOperation(null);
         } catch (NumberFormatException e) {
-            state.setError(true);
-            state.setDisplayText("Error");
-            state.setCurrentOperation(null);
+            return s.withError(ErrorCode.INVALID_RESULT);
         }
     }
 
     /**
-     * Clear the current input (CE - Clear Entry)
+     * Evaluate a compiled expression and show its result. The variable x is
+     * bound to the current display value
+     *
+     * @param s The current state
+     * @param compiled The compiled expression
+     * @param stack Operand stack from {@link CompiledExpression#newStack()},
+     * owned by the calling thread
+     * @return The next state
      */
-    public void clearEntry() {
-        state.setDisplayText("0");
-        state.setCurrentValue(0);
-        state.setNewInput(true);
-        state.setError(false);
+    public CalculatorState evaluateExpression(CalculatorState s, CompiledExpression compiled, double[] stack) {
+        try {
+            double x = s.getOperand();
+            double result = compiled.evaluate(this, x, stack);
+
+            // Validate result
+            if (!MathUtils.isValidNumber(result)) {
+                return s.withError(MathUtils.errorCode(result));
+            }
+
+            return s.withCompletedResult(result);
+
+        } catch (NumberFormatException e) {
+            return s.withError(ErrorCode.INVALID_RESULT);
+        }
     }
 
     /**
-     * Clear all values and reset calculator (C - Clear)
+     * Clear the current input (CE - Clear Entry)
+     *
+     * @param s The current state
+     * @return The next state
      */
-    public void clearAll() {
-        state.reset();
+    public CalculatorState clearEntry(CalculatorState s) {
+        return s.withClearedEntry();
     }
 
     /**
      * Delete the last character from current input
+     *
+     * @param s The current state
+     * @return The next state
      */
-    public void backspace() {
-        if (state.isError() || state.isNewInput()) {
-            return;
+    public CalculatorState backspace(CalculatorState s) {
+        if (s.isError() || s.isNewInput()) {
+            return s;
         }
 
-        String current = state.getDisplayText();
+        String current = s.getDisplayText();
         if (current.length() > 1) {
-            state.setDisplayText(current.substring(0, current.length() - 1));
-        } else {
-            state.setDisplayText("0");
-            state.setNewInput(true);
+            return s.withEntry(current.substring(0, current.length() - 1));
         }
+        return s.withValue(0.0, true);
     }
 
     /**
-     * Get the current calculator state
+     * Store current display value to memory
      *
-     * @return The current state
-     * @author Muahmmadjibril
+     * @param s The current state
+     * @return The next state
      */
-    public CalculatorState getState() {
-        return state;
+    public CalculatorState memoryStore(CalculatorState s) {
+        try {
+            if (backend.isExact()) {
+                return s.withMemory(s.getExactOperand());
+            }
+            return s.withMemory(s.getOperand());
+        } catch (NumberFormatException e) {
+            // Ignore invalid input
+            return s;
+        }
     }
 
     /**
-     * Get the current display value
+     * Recall memory value to display
      *
-     * @return The display text
+     * @param s The current state
+     * @return The next state
      */
-    public String getDisplay() {
-        return state.getDisplayText();
+    public CalculatorState memoryRecall(CalculatorState s) {
+        if (backend.isExact()) {
+            return s.withValue(s.getExactMemory(), true);
+        }
+        return s.withValue(s.getMemory(), true);
     }
 
     /**
-     * Store current display value to memory
+     * Add current display value to memory
+     *
+     * @param s The current state
+     * @return The next state
      */
-    public void memoryStore() {
+    public CalculatorState memoryAdd(CalculatorState s) {
         try {
-            double value = FormatUtils.parseNumber(state.getDisplayText());
-            state.setMemory(value);
+            NumericBackend backend = this.backend;
+            if (backend.isExact()) {
+                return s.withMemory(backend.apply(Operation.ADD, s.getExactMemory(), s.getExactOperand(), angleUnit));
+            }
+            return s.withMemory(s.getMemory() + s.getOperand());
         } catch (NumberFormatException e) {
             // Ignore invalid input
+            return s;
+        } catch (CalculatorException e) {
+            // Leave memory unchanged
+            return s;
         }
     }
 
     /**
-     * Recall memory value to display
+     * Subtract current display value from memory
+     *
+     * @param s The current state
+     * @return The next state
      */
-    public void memoryRecall() {
-        state.setDisplayText(FormatUtils.formatNumber(state.getMemory()));
-        state.setNewInput(true);
+    public CalculatorState memorySubtract(CalculatorState s) {
+        try {
+            NumericBackend backend = this.backend;
+            if (backend.isExact()) {
+                return s.withMemory(backend.apply(Operation.SUBTRACT, s.getExactMemory(), s.getExactOperand(), angleUnit));
+            }
+            return s.withMemory(s.getMemory() - s.getOperand());
+        } catch (NumberFormatException e) {
+            // Ignore invalid input
+            return s;
+        } catch (CalculatorException e) {
+            // Leave memory unchanged
+            return s;
+        }
     }
 
     /**
-     * Add current display value to memory
+     * Recall a register of a memory bank to display
+     *
+     * @param s The current state
+     * @param bank The bank to read, e.g. {@link #getMemoryBank()}
+     * @param register The register number, 0-99
+     * @return The next state
      */
-    public void memoryAdd() {
+    public CalculatorState memoryRecall(CalculatorState s, MemoryBank bank, int register) {
+        double value = bank.get(register);
+        if (!MathUtils.isValidNumber(value)) {
+            // Additions overflowed the register
+            return s.withError(MathUtils.errorCode(value));
+        }
+        if (backend.isExact()) {
+            return s.withValue(BigDecimal.valueOf(value), true);
+        }
+        return s.withValue(value, true);
+    }
+
+    // Register keys change only the bank; the session methods apply them to
+    // this engine's bank and journal replay to its own. Registers hold
+    // doubles in both backends
+    static void storeRegister(MemoryBank bank, int register, CalculatorState s) {
+        try {
+            bank.set(register, s.getOperand());
+        } catch (NumberFormatException e) {
+            // Ignore invalid input
+        }
+    }
+
+    static void addToRegister(MemoryBank bank, int register, CalculatorState s, double sign) {
         try {
-            double value = FormatUtils.parseNumber(state.getDisplayText());
-            state.memoryAdd(value);
+            bank.add(register, sign * s.getOperand());
         } catch (NumberFormatException e) {
             // Ignore invalid input
         }
     }
 
+    // ======== EXACT ARITHMETIC ========
+    private CalculatorState performBinaryOperationExact(CalculatorState s, Operation operation, NumericBackend backend) {
+        try {
+            BigDecimal currentValue = s.getExactOperand();
+
+            // Chain a pending operation as in double mode
+            if (s.getCurrentOperation() != null && !s.isNewInput()) {
+                BigDecimal result = applyExact(backend, s.getCurrentOperation(), s.getExactStoredValue(), currentValue);
+                s = s.withValue(result, s.isNewInput());
+                currentValue = result;
+            }
+
+            return s.withPendingOperation(currentValue, operation);
+
+        } catch (CalculatorException e) {
+            return s.withError(ErrorCode.of(e));
+        } catch (NumberFormatException e) {
+            return s.withError(ErrorCode.INVALID_RESULT);
+        } catch (ArithmeticException e) {
+            // Exponent outside the range BigDecimal can represent
+            return s.withError(ErrorCode.OVERFLOW);
+        }
+    }
+
+    private CalculatorState performUnaryOperationExact(CalculatorState s, Operation operation, NumericBackend backend) {
+        try {
+            BigDecimal result = applyExact(backend, operation, s.getExactOperand(), null);
+            return s.withValue(result, true);
+
+        } catch (CalculatorException e) {
+            return s.withError(ErrorCode.of(e));
+        } catch (NumberFormatException e) {
+            return s.withError(ErrorCode.INVALID_RESULT);
+        } catch (ArithmeticException e) {
+            return s.withError(ErrorCode.OVERFLOW);
+        }
+    }
+
+    private CalculatorState performPercentExact(CalculatorState s, NumericBackend backend) {
+        try {
+            BigDecimal percent = s.getExactOperand().movePointLeft(2);
+
+            if (s.getCurrentOperation() != null) {
+                // Percent of first operand
+                return s.withValue(backend.apply(Operation.MULTIPLY, s.getExactStoredValue(), percent, angleUnit), s.isNewInput());
+            }
+            return s.withValue(percent, true);
+
+        } catch (CalculatorException e) {
+            return s.withError(ErrorCode.of(e));
+        } catch (NumberFormatException e) {
+            return s.withError(ErrorCode.INVALID_RESULT);
+        } catch (ArithmeticException e) {
+            return s.withError(ErrorCode.OVERFLOW);
+        }
+    }
+
+    private CalculatorState calculateResultExact(CalculatorState s, NumericBackend backend) {
+        try {
+            BigDecimal result = applyExact(backend, s.getCurrentOperation(), s.getExactStoredValue(), s.getExactOperand());
+            return s.withCompletedResult(result);
+
+        } catch (CalculatorException e) {
+            return s.withError(ErrorCode.of(e));
+        } catch (NumberFormatException e) {
+            return s.withError(ErrorCode.INVALID_RESULT);
+        } catch (ArithmeticException e) {
+            return s.withError(ErrorCode.OVERFLOW);
+        }
+    }
+
     /**
-     * Subtract current display value from memory
+     * Apply an operation on the exact backend, recording it in the metrics
+     *
+     * @param right The second operand, or null for a unary operation
      */
-    public void memorySubtract() {
+    private BigDecimal applyExact(NumericBackend backend, Operation operation, BigDecimal left, BigDecimal right)
+            throws CalculatorException {
+        EngineMetrics metrics = this.metrics;
+        AngleUnit unit = angleUnit;
+        if (metrics == null || !metrics.isEnabled()) {
+            return right == null ? backend.apply(operation, left, unit) : backend.apply(operation, left, right, unit);
+        }
+        long start = System.nanoTime();
         try {
-            double value = FormatUtils.parseNumber(state.getDisplayText());
-            state.memorySubtract(value);
+            BigDecimal result = right == null
+                    ? backend.apply(operation, left, unit)
+                    : backend.apply(operation, left, right, unit);
+            metrics.record(operation, null, System.nanoTime() - start);
+            return result;
+        } catch (CalculatorException e) {
+            metrics.record(operation, ErrorCode.of(e), System.nanoTime() - start);
+            throw e;
         } catch (NumberFormatException e) {
-            // Ignore invalid input
+            metrics.record(operation, ErrorCode.INVALID_RESULT, System.nanoTime() - start);
+            throw e;
+        } catch (ArithmeticException e) {
+            metrics.record(operation, ErrorCode.OVERFLOW, System.nanoTime() - start);
+            throw e;
         }
     }
 
+    // ======== BATCH EVALUATION ========
     /**
-     * Clear memory
+     * Apply a binary operation element-wise over primitive arrays. Elements
+     * that fail (division by zero, overflow, domain errors) are set to a NaN
+     * carrying their {@link ErrorCode} and flagged in the error bitmap instead
+     * of throwing. Arithmetic, power, roots and trigonometry run on
+     * {@link VectorMath} and use SIMD when the Vector API is available
+     *
+     * @param operation The binary operation to apply
+     * @param left The first operands
+     * @param right The second operands, same length as left
+     * @param out Receives the results, at least as long as left
+     * @param errors Error bitmap (bit i of word i / 64 is set when element i
+     * failed), at least (n + 63) / 64 words, or null to skip reporting
+     * @return The number of failed elements
      */
-    public void memoryClear() {
-        state.memoryClear();
+    public int evaluate(Operation operation, double[] left, double[] right, double[] out, long[] errors) {
+        final int n = left.length;
+        checkBatchLengths(operation, false, n, right.length, out, errors);
+
+        switch (operation) {
+            case ADD:
+                VectorMath.getDefault().add(left, right, out);
+                break;
+            case SUBTRACT:
+                for (int i = 0; i < n; i++) {
+                    out[i] = left[i] - right[i];
+                }
+                break;
+            case MULTIPLY:
+                VectorMath.getDefault().multiply(left, right, out);
+                break;
+            case DIVIDE:
+                VectorMath.getDefault().divide(left, right, out, null);
+                break;
+            case MODULO:
+                for (int i = 0; i < n; i++) {
+                    out[i] = MathUtils.moduloOrError(left[i], right[i]);
+                }
+                break;
+            case POWER:
+                VectorMath.getDefault().power(left, right, out, null);
+                break;
+            default:
+                throw new IllegalArgumentException("Not a binary operation: " + operation);
+        }
+
+        return recordBatch(operation, out, n, markErrors(out, n, errors));
+    }
+
+    /**
+     * Apply a unary operation element-wise over primitive arrays. Elements
+     * that fail are set to a NaN carrying their {@link ErrorCode} and flagged
+     * in the error bitmap instead of throwing
+     *
+     * @param operation The unary operation to apply
+     * @param operands The operands
+     * @param out Receives the results, at least as long as operands
+     * @param errors Error bitmap (bit i of word i / 64 is set when element i
+     * failed), at least (n + 63) / 64 words, or null to skip reporting
+     * @return The number of failed elements
+     */
+    public int evaluate(Operation operation, double[] operands, double[] out, long[] errors) {
+        final int n = operands.length;
+        checkBatchLengths(operation, true, n, n, out, errors);
+
+        final AngleUnit unit = angleUnit;
+        // Overflow falls out as infinity and is tagged by markErrors
+        switch (operation) {
+            case SIN:
+                VectorMath.getDefault().sin(operands, unit, out);
+                break;
+            case COS:
+                VectorMath.getDefault().cos(operands, unit, out);
+                break;
+            case TAN:
+                for (int i = 0; i < n; i++) {
+                    out[i] = MathUtils.tanOrError(operands[i], unit);
+                }
+                break;
+            case ASIN:
+                for (int i = 0; i < n; i++) {
+                    out[i] = MathUtils.asinOrError(operands[i], unit);
+                }
+                break;
+            case ACOS:
+                for (int i = 0; i < n; i++) {
+                    out[i] = MathUtils.acosOrError(operands[i], unit);
+                }
+                break;
+            case ATAN:
+                for (int i = 0; i < n; i++) {
+                    out[i] = MathUtils.atan(operands[i], unit);
+                }
+                break;
+            case LOG:
+                for (int i = 0; i < n; i++) {
+                    out[i] = MathUtils.log10OrError(operands[i]);
+                }
+                break;
+            case LN:
+                for (int i = 0; i < n; i++) {
+                    out[i] = MathUtils.lnOrError(operands[i]);
+                }
+                break;
+            case EXP:
+                for (int i = 0; i < n; i++) {
+                    out[i] = Math.exp(operands[i]);
+                }
+                break;
+            case TENPOWX:
+                for (int i = 0; i < n; i++) {
+                    out[i] = Math.pow(10.0, operands[i]);
+                }
+                break;
+            case SQRT:
+                VectorMath.getDefault().sqrt(operands, out, null);
+                break;
+            case SQUARE:
+                for (int i = 0; i < n; i++) {
+                    double value = operands[i];
+                    out[i] = value * value;
+                }
+                break;
+            case FACTORIAL:
+                for (int i = 0; i < n; i++) {
+                    out[i] = MathUtils.factorialOrError(operands[i]);
+                }
+                break;
+            case PERCENT:
+                for (int i = 0; i < n; i++) {
+                    out[i] = operands[i] / 100.0;
+                }
+                break;
+            case RECIPROCAL:
+                for (int i = 0; i < n; i++) {
+                    out[i] = MathUtils.reciprocalOrError(operands[i]);
+                }
+                break;
+            case ABS:
+                for (int i = 0; i < n; i++) {
+                    out[i] = Math.abs(operands[i]);
+                }
+                break;
+            case NEGATE:
+                for (int i = 0; i < n; i++) {
+                    out[i] = -operands[i];
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Not a unary operation: " + operation);
+        }
+
+        return recordBatch(operation, out, n, markErrors(out, n, errors));
+    }
+
+    private int recordBatch(Operation operation, double[] out, int n, int failures) {
+        EngineMetrics metrics = this.metrics;
+        if (metrics != null && metrics.isEnabled()) {
+            metrics.recordBatch(operation, out, n, failures);
+        }
+        return failures;
+    }
+
+    private static void checkBatchLengths(Operation operation, boolean unary, int n, int rightLength,
+            double[] out, long[] errors) {
+        if (operation.isUnary() != unary) {
+            throw new IllegalArgumentException("Wrong arity for operation: " + operation);
+        }
+        if (rightLength != n || out.length < n) {
+            throw new IllegalArgumentException("Operand and result arrays must have matching lengths");
+        }
+        if (errors != null && errors.length < (n + 63) >>> 6) {
+            throw new IllegalArgumentException("Error bitmap too small for " + n + " elements");
+        }
+    }
+
+    /**
+     * Record non-finite results in the bitmap, the same rule the single-value
+     * path applies through isValidNumber. Infinities become OVERFLOW errors
+     */
+    private static int markErrors(double[] out, int n, long[] errors) {
+        return markErrors(out, 0, n, errors);
+    }
+
+    /**
+     * markErrors over out[from, to); from must be a multiple of 64 so that
+     * ranges handled by different threads never share a bitmap word
+     */
+    static int markErrors(double[] out, int from, int to, long[] errors) {
+        int failures = 0;
+        for (int word = from >>> 6, base = from; base < to; word++, base += 64) {
+            int end = Math.min(to, base + 64);
+            long bits = 0L;
+            for (int i = base; i < end; i++) {
+                double value = out[i];
+                if (!MathUtils.isValidNumber(value)) {
+                    if (Double.isInfinite(value)) {
+                        out[i] = MathUtils.error(ErrorCode.OVERFLOW);
+                    }
+                    bits |= 1L << (i - base);
+                }
+            }
+            failures += Long.bitCount(bits);
+            if (errors != null) {
+                errors[word] = bits;
+            }
+        }
+        return failures;
     }
 
     /**
@@ -395,11 +1258,35 @@ public class CalculatorEngine {
      * @param left The first operand
      * @param right The second operand
      * @param operation The operation to perform
-     * @return The result of the operation
-     * @throws CalculatorException If the operation fails
+     * @return The result of the operation, or a NaN carrying an
+     * {@link ErrorCode} (see {@link MathUtils#errorCode(double)})
      */
-    private double executeBinaryOperation(double left, double right, Operation operation)
-            throws CalculatorException {
+    double executeBinaryOperation(double left, double right, Operation operation) {
+        EngineMetrics metrics = this.metrics;
+        if (metrics == null || !metrics.isEnabled()) {
+            return dispatchBinaryOperation(left, right, operation);
+        }
+        long start = System.nanoTime();
+        double result = dispatchBinaryOperation(left, right, operation);
+        metrics.record(operation, result, System.nanoTime() - start);
+        return result;
+    }
+
+    private double dispatchBinaryOperation(double left, double right, Operation operation) {
+        OperationCache cache = this.cache;
+        if (cache == null || !OperationCache.isCacheable(operation)) {
+            return computeBinaryOperation(left, right, operation);
+        }
+        AngleUnit unit = angleUnit;
+        double result = cache.get(operation, unit, left, right);
+        if (Double.isNaN(result)) {
+            result = computeBinaryOperation(left, right, operation);
+            cache.put(operation, unit, left, right, result);
+        }
+        return result;
+    }
+
+    static double computeBinaryOperation(double left, double right, Operation operation) {
         switch (operation) {
             case ADD:
                 return left + right;
@@ -408,13 +1295,13 @@ public class CalculatorEngine {
             case MULTIPLY:
                 return left * right;
             case DIVIDE:
-                return MathUtils.safeDivide(left, right);
+                return MathUtils.divideOrError(left, right);
             case MODULO:
-                return MathUtils.safeModulo(left, right);
+                return MathUtils.moduloOrError(left, right);
             case POWER:
-                return MathUtils.power(left, right);
+                return MathUtils.powerOrError(left, right);
             default:
-                throw new InvalidExpressionException("Unknown binary operation: " + operation);
+                return MathUtils.error(ErrorCode.UNKNOWN_OPERATION);
         }
     }
 
@@ -423,49 +1310,73 @@ public class CalculatorEngine {
      *
      * @param value The operand
      * @param operation The operation to perform
-     * @return The result of the operation
-     * @throws CalculatorException If the operation fails
+     * @return The result of the operation, or a NaN carrying an
+     * {@link ErrorCode} (see {@link MathUtils#errorCode(double)})
      * @author Abdelrahman
      */
-    private double executeUnaryOperation(double value, Operation operation)
-            throws CalculatorException {
+    double executeUnaryOperation(double value, Operation operation) {
+        EngineMetrics metrics = this.metrics;
+        if (metrics == null || !metrics.isEnabled()) {
+            return dispatchUnaryOperation(value, operation);
+        }
+        long start = System.nanoTime();
+        double result = dispatchUnaryOperation(value, operation);
+        metrics.record(operation, result, System.nanoTime() - start);
+        return result;
+    }
+
+    private double dispatchUnaryOperation(double value, Operation operation) {
+        OperationCache cache = this.cache;
+        if (cache == null || !OperationCache.isCacheable(operation)) {
+            return computeUnaryOperation(value, operation, angleUnit);
+        }
+        AngleUnit unit = angleUnit;
+        double result = cache.get(operation, unit, value, 0.0);
+        if (Double.isNaN(result)) {
+            result = computeUnaryOperation(value, operation, unit);
+            cache.put(operation, unit, value, 0.0, result);
+        }
+        return result;
+    }
+
+    static double computeUnaryOperation(double value, Operation operation, AngleUnit unit) {
         switch (operation) {
             case SIN:
-                return MathUtils.sin(value);
+                return MathUtils.sin(value, unit);
             case COS:
-                return MathUtils.cos(value);
+                return MathUtils.cos(value, unit);
             case TAN:
-                return MathUtils.tan(value);
+                return MathUtils.tanOrError(value, unit);
             case ASIN:
-                return MathUtils.asin(value);
+                return MathUtils.asinOrError(value, unit);
             case ACOS:
-                return MathUtils.acos(value);
+                return MathUtils.acosOrError(value, unit);
             case ATAN:
-                return MathUtils.atan(value);
+                return MathUtils.atan(value, unit);
             case LOG:
-                return MathUtils.log10(value);
+                return MathUtils.log10OrError(value);
             case LN:
-                return MathUtils.ln(value);
+                return MathUtils.lnOrError(value);
             case EXP:
                 return Math.exp(value);
             case TENPOWX:
-                return MathUtils.power(10.0, value);
+                return MathUtils.powerOrError(10.0, value);
             case SQRT:
-                return MathUtils.sqrt(value);
+                return MathUtils.sqrtOrError(value);
             case SQUARE:
                 return value * value;
             case FACTORIAL:
-                return MathUtils.factorial((int) value);
+                return MathUtils.factorialOrError(value);
             case PERCENT:
                 return value / 100.0;
             case RECIPROCAL:
-                return MathUtils.reciprocal(value);
+                return MathUtils.reciprocalOrError(value);
             case ABS:
                 return Math.abs(value);
             case NEGATE:
                 return MathUtils.negate(value);
             default:
-                throw new InvalidExpressionException("Unknown unary operation: " + operation);
+                return MathUtils.error(ErrorCode.UNKNOWN_OPERATION);
         }
     }
 }
@@ -1,39 +1,70 @@
 package scicalculator1.model;
 
+import java.math.BigDecimal;
+import scicalculator1.exception.ErrorCode;
+import scicalculator1.util.FormatUtils;
+
 /**
- * Manages the state of the calculator Stores current values, operations, and
- * display state
+ * Immutable snapshot of the calculator state. Stores current values,
+ * operations, and display state. Every transition returns a new instance, so
+ * states can be shared freely between threads
+ *
+ * The exact double on display is the source of truth; the display string is
+ * only rendered when something reads it. While the user is typing, the typed
+ * text is kept as the entry and parsed once when it is used as an operand
+ *
+ * Under an exact {@link NumericBackend} the displayed value, stored operand and
+ * memory also carry a BigDecimal. The double fields then hold the nearest
+ * double, and the BigDecimal wins wherever both are present
  *
  * @author Abdelrahman
  */
-public class CalculatorState {
+public final class CalculatorState {
+
+    // Boolean state packed into one field
+    private static final byte FLAG_NEW_INPUT = 1;
+    private static final byte FLAG_ERROR = 2;
+
+    private static final CalculatorState INITIAL = new CalculatorState(0.0, 0.0, null, null, FLAG_NEW_INPUT, 0.0, null, null, null, null);
 
-    private double currentValue;
-    private double storedValue;
-    private Operation currentOperation;
+    private final double currentValue;
+    private final double storedValue;
+    private final Operation currentOperation;
+    private final String entryText;
+    private final byte flags;
+    private final double memory;
+    private final ErrorCode errorCode;
+
+    // Exact counterparts of currentValue, storedValue and memory; null in double mode
+    private final BigDecimal exactValue;
+    private final BigDecimal exactStored;
+    private final BigDecimal exactMemory;
+
+    // Rendered lazily from currentValue; racing threads compute the same string
     private String displayText;
-    private boolean isNewInput;
-    private boolean isError;
-    private double memory;
 
-    /**
-     * Constructor initializes calculator to default state
-     */
-    public CalculatorState() {
-        reset();
+    private CalculatorState(double currentValue, double storedValue, Operation currentOperation,
+            String entryText, byte flags, double memory, ErrorCode errorCode,
+            BigDecimal exactValue, BigDecimal exactStored, BigDecimal exactMemory) {
+        this.currentValue = currentValue;
+        this.storedValue = storedValue;
+        this.currentOperation = currentOperation;
+        this.entryText = entryText;
+        this.flags = flags;
+        this.memory = memory;
+        this.errorCode = errorCode;
+        this.exactValue = exactValue;
+        this.exactStored = exactStored;
+        this.exactMemory = exactMemory;
     }
 
     /**
-     * Reset calculator to initial state
+     * Get the initial calculator state
+     *
+     * @return The shared initial state
      */
-    public void reset() {
-        currentValue = 0.0;
-        storedValue = 0.0;
-        currentOperation = null;
-        displayText = "0";
-        isNewInput = true;
-        isError = false;
-        memory = 0.0;
+    public static CalculatorState initial() {
+        return INITIAL;
     }
 
     // Getters
@@ -50,59 +81,230 @@ public class CalculatorState {
     }
 
     public String getDisplayText() {
-        return displayText;
+        if (isError()) {
+            return "Error";
+        }
+        if (entryText != null) {
+            return entryText;
+        }
+        String text = displayText;
+        if (text == null) {
+            text = exactValue != null ? FormatUtils.formatExact(exactValue) : FormatUtils.formatNumber(currentValue);
+            displayText = text;
+        }
+        return text;
+    }
+
+    /**
+     * Get the exact value on display, to be used as an operand
+     *
+     * @return The typed entry when the user is typing, otherwise the exact
+     * current value; 0 in the error state
+     * @throws NumberFormatException If the typed entry is not a number
+     */
+    public double getOperand() throws NumberFormatException {
+        if (isError()) {
+            return 0.0;
+        }
+        if (entryText != null) {
+            return FormatUtils.parseNumber(entryText);
+        }
+        return currentValue;
+    }
+
+    /**
+     * Get the value on display as an exact decimal, to be used as an operand
+     * by an exact backend
+     *
+     * @return The typed entry exactly as typed, otherwise the exact current
+     * value or the shortest decimal of the double; 0 in the error state
+     * @throws NumberFormatException If the typed entry is not a number
+     */
+    public BigDecimal getExactOperand() throws NumberFormatException {
+        if (isError()) {
+            return BigDecimal.ZERO;
+        }
+        if (entryText != null) {
+            return FormatUtils.parseExact(entryText);
+        }
+        return exactValue != null ? exactValue : BigDecimal.valueOf(currentValue);
+    }
+
+    /**
+     * Get the stored first operand as an exact decimal
+     *
+     * @return The exact stored value, or the shortest decimal of the double
+     */
+    public BigDecimal getExactStoredValue() {
+        return exactStored != null ? exactStored : BigDecimal.valueOf(storedValue);
+    }
+
+    /**
+     * Get the memory register as an exact decimal
+     *
+     * @return The exact memory value, or the shortest decimal of the double
+     */
+    public BigDecimal getExactMemory() {
+        return exactMemory != null ? exactMemory : BigDecimal.valueOf(memory);
+    }
+
+    /**
+     * Check if the display shows text the user is typing
+     *
+     * @return True while a number is being entered
+     */
+    public boolean isEntering() {
+        return entryText != null;
     }
 
     public boolean isNewInput() {
-        return isNewInput;
+        return (flags & FLAG_NEW_INPUT) != 0;
     }
 
     public boolean isError() {
-        return isError;
+        return (flags & FLAG_ERROR) != 0;
     }
 
-    // Setters
-    public void setCurrentValue(double currentValue) {
-        this.currentValue = currentValue;
+    public double getMemory() {
+        return memory;
     }
 
-    public void setStoredValue(double storedValue) {
-        this.storedValue = storedValue;
+    /**
+     * Get the reason for the error state
+     *
+     * @return The error code, or null when not in the error state
+     */
+    public ErrorCode getErrorCode() {
+        return errorCode;
     }
 
-    public void setCurrentOperation(Operation currentOperation) {
-        this.currentOperation = currentOperation;
+    // Transitions
+    /**
+     * Show text the user is typing
+     *
+     * @param text The entry text
+     * @return The new state
+     */
+    public CalculatorState withEntry(String text) {
+        return new CalculatorState(currentValue, storedValue, currentOperation, text,
+                (byte) (flags & ~FLAG_NEW_INPUT), memory, errorCode, exactValue, exactStored, exactMemory);
     }
 
-    public void setDisplayText(String displayText) {
-        this.displayText = displayText;
+    /**
+     * Show a value
+     *
+     * @param value The value
+     * @param newInput True if the next digit starts a new number
+     * @return The new state
+     */
+    public CalculatorState withValue(double value, boolean newInput) {
+        return new CalculatorState(value, storedValue, currentOperation, null,
+                withFlag(flags, FLAG_NEW_INPUT, newInput), memory, errorCode, null, exactStored, exactMemory);
     }
 
-    public void setNewInput(boolean newInput) {
-        isNewInput = newInput;
+    /**
+     * Show an exact value
+     *
+     * @param value The value
+     * @param newInput True if the next digit starts a new number
+     * @return The new state
+     */
+    public CalculatorState withValue(BigDecimal value, boolean newInput) {
+        return new CalculatorState(value.doubleValue(), storedValue, currentOperation, null,
+                withFlag(flags, FLAG_NEW_INPUT, newInput), memory, errorCode, value, exactStored, exactMemory);
     }
 
-    public void setError(boolean error) {
-        isError = error;
+    /**
+     * Store the first operand of a binary operation
+     *
+     * @param value The first operand
+     * @param operation The pending operation
+     * @return The new state
+     */
+    public CalculatorState withPendingOperation(double value, Operation operation) {
+        return new CalculatorState(currentValue, value, operation, entryText,
+                (byte) (flags | FLAG_NEW_INPUT), memory, errorCode, exactValue, null, exactMemory);
     }
 
-    public double getMemory() {
-        return memory;
+    /**
+     * Store the exact first operand of a binary operation
+     *
+     * @param value The first operand
+     * @param operation The pending operation
+     * @return The new state
+     */
+    public CalculatorState withPendingOperation(BigDecimal value, Operation operation) {
+        return new CalculatorState(currentValue, value.doubleValue(), operation, entryText,
+                (byte) (flags | FLAG_NEW_INPUT), memory, errorCode, exactValue, value, exactMemory);
     }
 
-    public void setMemory(double memory) {
-        this.memory = memory;
+    /**
+     * Show the result of a completed calculation and clear the pending
+     * operation
+     *
+     * @param value The result
+     * @return The new state
+     */
+    public CalculatorState withCompletedResult(double value) {
+        return new CalculatorState(value, 0.0, null, null, FLAG_NEW_INPUT, memory, null, null, null, exactMemory);
+    }
+
+    /**
+     * Show the exact result of a completed calculation and clear the pending
+     * operation
+     *
+     * @param value The result
+     * @return The new state
+     */
+    public CalculatorState withCompletedResult(BigDecimal value) {
+        return new CalculatorState(value.doubleValue(), 0.0, null, null, FLAG_NEW_INPUT, memory, null,
+                value, null, exactMemory);
+    }
+
+    /**
+     * Enter the error state and drop the pending operation
+     *
+     * @param code The reason for the error
+     * @return The new state
+     */
+    public CalculatorState withError(ErrorCode code) {
+        return new CalculatorState(currentValue, storedValue, null, null,
+                (byte) (flags | FLAG_ERROR), memory, code, exactValue, exactStored, exactMemory);
     }
 
-    public void memoryAdd(double value) {
-        this.memory += value;
+    /**
+     * Clear the current entry and any error, keeping the pending operation
+     *
+     * @return The new state
+     */
+    public CalculatorState withClearedEntry() {
+        return new CalculatorState(0.0, storedValue, currentOperation, null, FLAG_NEW_INPUT, memory, null,
+                null, exactStored, exactMemory);
     }
 
-    public void memorySubtract(double value) {
-        this.memory -= value;
+    /**
+     * Replace the memory register
+     *
+     * @param value The new memory value
+     * @return The new state
+     */
+    public CalculatorState withMemory(double value) {
+        return new CalculatorState(currentValue, storedValue, currentOperation, entryText, flags, value, errorCode,
+                exactValue, exactStored, null);
+    }
+
+    /**
+     * Replace the memory register with an exact value
+     *
+     * @param value The new memory value
+     * @return The new state
+     */
+    public CalculatorState withMemory(BigDecimal value) {
+        return new CalculatorState(currentValue, storedValue, currentOperation, entryText, flags, value.doubleValue(),
+                errorCode, exactValue, exactStored, value);
     }
 
-    public void memoryClear() {
-        this.memory = 0.0;
+    private static byte withFlag(byte flags, byte flag, boolean set) {
+        return (byte) (set ? flags | flag : flags & ~flag);
     }
 }
@@ -0,0 +1,144 @@
+package scicalculator1.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Keeps the memory register and the {@link CalculationHistory} in a
+ * memory-mapped file, so they survive a restart. The file has a fixed layout
+ * and is updated in place: a write is a store into the mapping, which only
+ * dirties a page, and the operating system writes it back, also when the
+ * application crashes. Opening the file maps it and reads a few header fields,
+ * however long the history; there is no deserialization pass
+ *
+ * Only the power failing or the machine crashing can lose writes made since
+ * the last {@link #flush()}. The register is stored as a double, so an exact
+ * backend's memory comes back rounded
+ */
+public final class CalculatorStore implements Closeable {
+
+    private static final int MAGIC = 0x53435331; // "SCS1"
+    private static final int VERSION = 1;
+
+    // Header layout; the history follows it
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int MEMORY_OFFSET = 16;
+    private static final int HEADER_BYTES = 64;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final CalculationHistory history;
+
+    private CalculatorStore(FileChannel channel, MappedByteBuffer map, int capacity) {
+        this.channel = channel;
+        this.map = map;
+        this.history = new CalculationHistory(map.slice(HEADER_BYTES, map.capacity() - HEADER_BYTES), capacity);
+    }
+
+    /**
+     * Open a store, creating it if needed. A file written for another
+     * capacity or version, or that is not a store, is started afresh
+     *
+     * @param path The file
+     * @param historyCapacity The number of history entries to keep
+     * @return The store
+     * @throws IOException If the file cannot be created or mapped
+     */
+    public static CalculatorStore open(Path path, int historyCapacity) throws IOException {
+        long size = HEADER_BYTES + (long) CalculationHistory.bytesFor(historyCapacity);
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean compatible = channel.size() == size && isCompatible(channel, historyCapacity);
+            if (!compatible) {
+                // Start afresh; the new size reads as zeros, an empty history
+                channel.truncate(0);
+                channel.write(ByteBuffer.allocate(1), size - 1);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (!compatible) {
+                map.putInt(MAGIC_OFFSET, MAGIC);
+                map.putInt(VERSION_OFFSET, VERSION);
+                map.putInt(CAPACITY_OFFSET, historyCapacity);
+                map.putDouble(MEMORY_OFFSET, 0.0);
+                map.force();
+            }
+            return new CalculatorStore(channel, map, historyCapacity);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        } catch (RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static boolean isCompatible(FileChannel channel, int capacity) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(CAPACITY_OFFSET + 4);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // Read the whole fixed part
+        }
+        return !header.hasRemaining()
+                && header.getInt(MAGIC_OFFSET) == MAGIC
+                && header.getInt(VERSION_OFFSET) == VERSION
+                && header.getInt(CAPACITY_OFFSET) == capacity;
+    }
+
+    /**
+     * Get the history kept in the file
+     *
+     * @return The history; attach it with {@link CalculatorEngine#setHistory}
+     */
+    public CalculationHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Get the stored memory register
+     *
+     * @return The value
+     */
+    public double getMemory() {
+        return map.getDouble(MEMORY_OFFSET);
+    }
+
+    /**
+     * Store the memory register
+     *
+     * @param value The value
+     */
+    public void setMemory(double value) {
+        map.putDouble(MEMORY_OFFSET, value);
+    }
+
+    /**
+     * Write dirty pages to the device, e.g. before shutting down
+     */
+    public void flush() {
+        map.force();
+    }
+
+    /**
+     * Flush and close the file. The mapping, and with it the history, stays
+     * usable until it is garbage collected
+     *
+     * @throws IOException If the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
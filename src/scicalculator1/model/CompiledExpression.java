@@ -0,0 +1,136 @@
+package scicalculator1.model;
+
+import scicalculator1.exception.CalculatorException;
+
+/**
+ * An infix expression compiled to a flat postfix program over the Operation
+ * enum. Instances are immutable and can be evaluated any number of times
+ * without re-parsing
+ *
+ * Program layout: every slot of the code array is either an Operation ordinal,
+ * {@link #OP_CONST} followed by an index into the constant pool,
+ * {@link #OP_VAR} which pushes the variable x, or {@link #OP_PLUGIN} followed
+ * by an index into the pool of plugin operations
+ *
+ * Operation ordinals go through the engine's switch; plugin operations call
+ * their kernel directly and are not counted by {@link EngineMetrics}
+ */
+public final class CompiledExpression {
+
+    static final int OP_CONST = -1;
+    static final int OP_VAR = -2;
+    static final int OP_PLUGIN = -3;
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final String source;
+    private final int[] code;
+    private final double[] constants;
+    private final OperationDefinition[] plugins;
+    private final int maxStackDepth;
+    private final boolean usesVariable;
+
+    CompiledExpression(String source, int[] code, double[] constants, OperationDefinition[] plugins,
+            int maxStackDepth, boolean usesVariable) {
+        this.source = source;
+        this.code = code;
+        this.constants = constants;
+        this.plugins = plugins;
+        this.maxStackDepth = maxStackDepth;
+        this.usesVariable = usesVariable;
+    }
+
+    /**
+     * Compile an infix expression
+     *
+     * @param expression The expression text (e.g. "2 × (3 + sin(x))")
+     * @return The compiled expression
+     * @throws scicalculator1.exception.InvalidExpressionException If the
+     * expression cannot be parsed
+     */
+    public static CompiledExpression compile(String expression) throws CalculatorException {
+        return ExpressionCompiler.compile(expression);
+    }
+
+    /**
+     * Allocate an operand stack large enough for this expression. Callers
+     * evaluating in a loop should allocate once and reuse it
+     *
+     * @return A new operand stack
+     */
+    public double[] newStack() {
+        return new double[maxStackDepth];
+    }
+
+    /**
+     * Evaluate the expression without allocating
+     *
+     * @param engine The engine whose operation dispatch is used
+     * @param x The value bound to the variable x
+     * @param stack Operand stack from {@link #newStack()}, not shared between
+     * threads
+     * @return The result of the expression, or a NaN carrying an
+     * {@link scicalculator1.exception.ErrorCode} if an operation failed
+     */
+    public double evaluate(CalculatorEngine engine, double x, double[] stack) {
+        final int[] code = this.code;
+        int sp = 0;
+        for (int pc = 0; pc < code.length; pc++) {
+            int op = code[pc];
+            if (op == OP_CONST) {
+                stack[sp++] = constants[code[++pc]];
+            } else if (op == OP_VAR) {
+                stack[sp++] = x;
+            } else if (op == OP_PLUGIN) {
+                OperationDefinition plugin = plugins[code[++pc]];
+                if (plugin.isUnary()) {
+                    stack[sp - 1] = plugin.apply(stack[sp - 1]);
+                } else {
+                    sp--;
+                    stack[sp - 1] = plugin.apply(stack[sp - 1], stack[sp]);
+                }
+            } else {
+                Operation operation = OPERATIONS[op];
+                if (operation.isUnary()) {
+                    stack[sp - 1] = engine.executeUnaryOperation(stack[sp - 1], operation);
+                } else {
+                    sp--;
+                    stack[sp - 1] = engine.executeBinaryOperation(stack[sp - 1], stack[sp], operation);
+                }
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Get the source text this expression was compiled from
+     *
+     * @return The source text
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Get the operand stack depth needed for evaluation
+     *
+     * @return The maximum stack depth
+     */
+    public int getMaxStackDepth() {
+        return maxStackDepth;
+    }
+
+    /**
+     * Check if the expression references the variable x
+     *
+     * @return True if x appears in the expression
+     */
+    public boolean usesVariable() {
+        return usesVariable;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
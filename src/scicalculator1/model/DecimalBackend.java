@@ -0,0 +1,134 @@
+package scicalculator1.model;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import scicalculator1.exception.CalculatorException;
+import scicalculator1.exception.ErrorCode;
+import scicalculator1.util.AngleUnit;
+import scicalculator1.util.BigMath;
+
+/**
+ * BigDecimal backend. Arithmetic rounds to the MathContext; the scientific
+ * functions come from {@link BigMath}. Immutable and thread-safe
+ */
+final class DecimalBackend implements NumericBackend {
+
+    private final MathContext mathContext;
+    private final BigDecimal pi;
+    private final BigDecimal e;
+
+    DecimalBackend(MathContext mathContext) {
+        if (mathContext.getPrecision() == 0) {
+            throw new IllegalArgumentException("Decimal backend needs a limited precision");
+        }
+        this.mathContext = mathContext;
+        this.pi = BigMath.pi(mathContext);
+        this.e = BigMath.e(mathContext);
+    }
+
+    /**
+     * Get the precision results are rounded to
+     *
+     * @return The math context
+     */
+    MathContext getMathContext() {
+        return mathContext;
+    }
+
+    @Override
+    public String getName() {
+        return "DECIMAL" + mathContext.getPrecision();
+    }
+
+    @Override
+    public boolean isExact() {
+        return true;
+    }
+
+    @Override
+    public BigDecimal apply(Operation operation, BigDecimal left, BigDecimal right, AngleUnit unit) throws CalculatorException {
+        switch (operation) {
+            case ADD:
+                return left.add(right, mathContext);
+            case SUBTRACT:
+                return left.subtract(right, mathContext);
+            case MULTIPLY:
+                return left.multiply(right, mathContext);
+            case DIVIDE:
+                if (right.signum() == 0) {
+                    throw ErrorCode.DIVISION_BY_ZERO.exception();
+                }
+                return left.divide(right, mathContext);
+            case MODULO:
+                if (right.signum() == 0) {
+                    throw ErrorCode.MODULO_BY_ZERO.exception();
+                }
+                return left.remainder(right, mathContext);
+            case POWER:
+                return BigMath.power(left, right, mathContext);
+            default:
+                throw ErrorCode.UNKNOWN_OPERATION.exception();
+        }
+    }
+
+    @Override
+    public BigDecimal apply(Operation operation, BigDecimal value, AngleUnit unit) throws CalculatorException {
+        switch (operation) {
+            case SIN:
+                return BigMath.sin(value, unit, mathContext);
+            case COS:
+                return BigMath.cos(value, unit, mathContext);
+            case TAN:
+                return BigMath.tan(value, unit, mathContext);
+            case ASIN:
+                return BigMath.asin(value, unit, mathContext);
+            case ACOS:
+                return BigMath.acos(value, unit, mathContext);
+            case ATAN:
+                return BigMath.atan(value, unit, mathContext);
+            case LOG:
+                return BigMath.log10(value, mathContext);
+            case LN:
+                return BigMath.ln(value, mathContext);
+            case EXP:
+                return BigMath.exp(value, mathContext);
+            case TENPOWX:
+                return BigMath.power(BigDecimal.TEN, value, mathContext);
+            case SQRT:
+                return BigMath.sqrt(value, mathContext);
+            case SQUARE:
+                return value.multiply(value, mathContext);
+            case FACTORIAL:
+                return BigMath.factorial(value, mathContext);
+            case PERCENT:
+                return value.movePointLeft(2);
+            case RECIPROCAL:
+                if (value.signum() == 0) {
+                    throw ErrorCode.DIVISION_BY_ZERO.exception();
+                }
+                return BigDecimal.ONE.divide(value, mathContext);
+            case ABS:
+                return value.abs();
+            case NEGATE:
+                return value.negate();
+            default:
+                throw ErrorCode.UNKNOWN_OPERATION.exception();
+        }
+    }
+
+    @Override
+    public BigDecimal constant(double value) {
+        if (value == Math.PI) {
+            return pi;
+        }
+        if (value == Math.E) {
+            return e;
+        }
+        return BigDecimal.valueOf(value);
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
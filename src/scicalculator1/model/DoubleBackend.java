@@ -0,0 +1,52 @@
+package scicalculator1.model;
+
+import java.math.BigDecimal;
+import scicalculator1.exception.CalculatorException;
+import scicalculator1.exception.ErrorCode;
+import scicalculator1.util.AngleUnit;
+import scicalculator1.util.MathUtils;
+
+/**
+ * Double backend. The engine never calls it on its fast path; the BigDecimal
+ * methods round-trip through double for callers that use backends generically
+ */
+final class DoubleBackend implements NumericBackend {
+
+    @Override
+    public String getName() {
+        return "DOUBLE";
+    }
+
+    @Override
+    public boolean isExact() {
+        return false;
+    }
+
+    @Override
+    public BigDecimal apply(Operation operation, BigDecimal left, BigDecimal right, AngleUnit unit) throws CalculatorException {
+        return toDecimal(CalculatorEngine.computeBinaryOperation(left.doubleValue(), right.doubleValue(), operation));
+    }
+
+    @Override
+    public BigDecimal apply(Operation operation, BigDecimal value, AngleUnit unit) throws CalculatorException {
+        return toDecimal(CalculatorEngine.computeUnaryOperation(value.doubleValue(), operation, unit));
+    }
+
+    @Override
+    public BigDecimal constant(double value) {
+        return BigDecimal.valueOf(value);
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    private static BigDecimal toDecimal(double result) throws CalculatorException {
+        ErrorCode code = MathUtils.errorCode(result);
+        if (code != null) {
+            throw code.exception();
+        }
+        return BigDecimal.valueOf(result);
+    }
+}
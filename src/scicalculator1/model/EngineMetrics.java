@@ -0,0 +1,328 @@
+package scicalculator1.model;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import scicalculator1.exception.ErrorCode;
+import scicalculator1.util.MathUtils;
+
+/**
+ * Operation counts, error counts and latency histograms of one or more
+ * {@link CalculatorEngine}s. Every counter is a LongAdder in a fixed array
+ * indexed by operation, error code and histogram bucket, so recording takes no
+ * lock and threads sharing an instance do not contend on one cache line
+ *
+ * Scalar operations are timed one by one; batch calls add their elements to
+ * the operation and error counts but not to the histograms, which would
+ * otherwise mix per-element and per-array times. An engine without metrics, or
+ * with disabled metrics, pays two field reads per operation
+ *
+ * Start the application with -Dscicalculator.metrics=true to attach the
+ * {@link #shared()} instance to every engine and publish it over JMX
+ */
+public final class EngineMetrics implements EngineMetricsMXBean {
+
+    /** Name the shared instance is registered under */
+    public static final String OBJECT_NAME = "scicalculator1:type=EngineMetrics";
+
+    /** Number of latency buckets; see {@link #getLatencyHistogram(String)} */
+    public static final int BUCKETS = 40;
+
+    private static final Logger LOG = Logger.getLogger(EngineMetrics.class.getName());
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final ErrorCode[] CODES = ErrorCode.values();
+
+    private final LongAdder[] counts = newAdders(OPERATIONS.length);
+    private final LongAdder[] errors = newAdders(CODES.length);
+    private final LongAdder[] timed = newAdders(OPERATIONS.length);
+    private final LongAdder[] totalNanos = newAdders(OPERATIONS.length);
+    private final LongAdder[][] histograms = new LongAdder[OPERATIONS.length][];
+    private volatile boolean enabled = true;
+
+    /**
+     * Create an enabled, unregistered instance
+     */
+    public EngineMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = newAdders(BUCKETS);
+        }
+    }
+
+    private static LongAdder[] newAdders(int length) {
+        LongAdder[] adders = new LongAdder[length];
+        for (int i = 0; i < length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Get the instance engines use when metrics are switched on by system
+     * property. It is registered with the platform MBean server on first use
+     *
+     * @return The shared instance
+     */
+    public static EngineMetrics shared() {
+        return Shared.INSTANCE;
+    }
+
+    private static final class Shared {
+
+        static final EngineMetrics INSTANCE = new EngineMetrics();
+
+        static {
+            INSTANCE.register();
+        }
+    }
+
+    /**
+     * Publish this instance on the platform MBean server under
+     * {@link #OBJECT_NAME}
+     *
+     * @return False if registration failed, e.g. because another instance
+     * holds the name
+     */
+    public boolean register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName(OBJECT_NAME));
+            return true;
+        } catch (JMException e) {
+            LOG.log(Level.WARNING, "Could not register engine metrics", e);
+            return false;
+        }
+    }
+
+    /**
+     * Remove this instance from the platform MBean server
+     */
+    public void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            // Not registered
+        }
+    }
+
+    // ======== RECORDING ========
+    /**
+     * Record a scalar operation
+     *
+     * @param operation The operation
+     * @param result Its result, a NaN carrying an {@link ErrorCode} if it failed
+     * @param nanos Time taken
+     */
+    void record(Operation operation, double result, long nanos) {
+        ErrorCode code = MathUtils.errorCode(result);
+        if (code != null) {
+            errors[code.ordinal()].increment();
+        }
+        time(operation, nanos);
+    }
+
+    /**
+     * Record an exact operation
+     *
+     * @param operation The operation
+     * @param code Its error, or null if it succeeded
+     * @param nanos Time taken
+     */
+    void record(Operation operation, ErrorCode code, long nanos) {
+        if (code != null) {
+            errors[code.ordinal()].increment();
+        }
+        time(operation, nanos);
+    }
+
+    private void time(Operation operation, long nanos) {
+        int index = operation.ordinal();
+        counts[index].increment();
+        timed[index].increment();
+        totalNanos[index].add(nanos);
+        histograms[index][bucket(nanos)].increment();
+    }
+
+    /**
+     * Record a batch call
+     *
+     * @param operation The operation
+     * @param out The results; failed elements carry their {@link ErrorCode}
+     * @param n The number of elements
+     * @param failures The number of failed elements
+     */
+    void recordBatch(Operation operation, double[] out, int n, int failures) {
+        counts[operation.ordinal()].add(n);
+        for (int i = 0; failures > 0 && i < n; i++) {
+            if (Double.isNaN(out[i])) {
+                errors[MathUtils.errorCode(out[i]).ordinal()].increment();
+                failures--;
+            }
+        }
+    }
+
+    static int bucket(long nanos) {
+        return nanos <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    // ======== MANAGEMENT ========
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public long getOperationCount() {
+        return sum(counts);
+    }
+
+    @Override
+    public long getErrorCount() {
+        return sum(errors);
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Operation operation : OPERATIONS) {
+            long count = counts[operation.ordinal()].sum();
+            if (count > 0) {
+                result.put(operation.name(), count);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (ErrorCode code : CODES) {
+            long count = errors[code.ordinal()].sum();
+            if (count > 0) {
+                result.merge(code.exception().getClass().getSimpleName(), count, Long::sum);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getErrorCodeCounts() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (ErrorCode code : CODES) {
+            long count = errors[code.ordinal()].sum();
+            if (count > 0) {
+                result.put(code.name(), count);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Double> getMeanLatencies() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Operation operation : OPERATIONS) {
+            long count = timed[operation.ordinal()].sum();
+            if (count > 0) {
+                result.put(operation.name(), (double) totalNanos[operation.ordinal()].sum() / count);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getMedianLatencies() {
+        return percentiles(0.5);
+    }
+
+    @Override
+    public Map<String, Long> getP99Latencies() {
+        return percentiles(0.99);
+    }
+
+    @Override
+    public long[] getLatencyHistogram(String operation) {
+        LongAdder[] histogram = histograms[Operation.valueOf(operation).ordinal()];
+        long[] result = new long[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++) {
+            result[b] = histogram[b].sum();
+        }
+        return result;
+    }
+
+    /**
+     * Estimate a latency percentile of an operation from its histogram
+     *
+     * @param operation The operation
+     * @param fraction The percentile as a fraction, e.g. 0.99
+     * @return Upper bound in nanoseconds of the bucket holding the
+     * percentile, or 0 if the operation was never timed
+     */
+    public long getLatencyPercentile(Operation operation, double fraction) {
+        LongAdder[] histogram = histograms[operation.ordinal()];
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            snapshot[b] = histogram[b].sum();
+            total += snapshot[b];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        int b = 0;
+        for (; b < BUCKETS - 1; b++) {
+            seen += snapshot[b];
+            if (seen >= rank) {
+                break;
+            }
+        }
+        return b == 0 ? 0 : b == BUCKETS - 1 ? Long.MAX_VALUE : (1L << b) - 1;
+    }
+
+    private Map<String, Long> percentiles(double fraction) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Operation operation : OPERATIONS) {
+            if (timed[operation.ordinal()].sum() > 0) {
+                result.put(operation.name(), getLatencyPercentile(operation, fraction));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        resetAll(counts);
+        resetAll(errors);
+        resetAll(timed);
+        resetAll(totalNanos);
+        for (LongAdder[] histogram : histograms) {
+            resetAll(histogram);
+        }
+    }
+
+    private static long sum(LongAdder[] adders) {
+        long total = 0;
+        for (LongAdder adder : adders) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    private static void resetAll(LongAdder[] adders) {
+        for (LongAdder adder : adders) {
+            adder.reset();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package scicalculator1.model;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link EngineMetrics}, as seen in JConsole or any
+ * other JMX client. Maps are keyed on {@link Operation} or error names, and
+ * latencies are in nanoseconds
+ */
+public interface EngineMetricsMXBean {
+
+    /**
+     * Check whether operations are being recorded
+     *
+     * @return True while recording
+     */
+    boolean isEnabled();
+
+    /**
+     * Start or stop recording; the counts collected so far are kept
+     *
+     * @param enabled True to record
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Get the number of operations applied, batch elements included
+     *
+     * @return The total
+     */
+    long getOperationCount();
+
+    /**
+     * Get the number of operations that failed
+     *
+     * @return The total
+     */
+    long getErrorCount();
+
+    /**
+     * Get the number of times each operation was applied
+     *
+     * @return Counts of the operations applied at least once
+     */
+    Map<String, Long> getOperationCounts();
+
+    /**
+     * Get the number of failures per exception type, e.g.
+     * DivisionByZeroException
+     *
+     * @return Counts of the types seen at least once
+     */
+    Map<String, Long> getErrorCounts();
+
+    /**
+     * Get the number of failures per {@link scicalculator1.exception.ErrorCode}
+     *
+     * @return Counts of the codes seen at least once
+     */
+    Map<String, Long> getErrorCodeCounts();
+
+    /**
+     * Get the mean latency of each timed operation
+     *
+     * @return Mean nanoseconds of the operations timed at least once
+     */
+    Map<String, Double> getMeanLatencies();
+
+    /**
+     * Get the median latency of each timed operation
+     *
+     * @return Upper bound in nanoseconds of the median's histogram bucket
+     */
+    Map<String, Long> getMedianLatencies();
+
+    /**
+     * Get the 99th percentile latency of each timed operation
+     *
+     * @return Upper bound in nanoseconds of the percentile's histogram bucket
+     */
+    Map<String, Long> getP99Latencies();
+
+    /**
+     * Get the latency histogram of an operation. Bucket 0 counts calls under
+     * a nanosecond; bucket b counts calls of 2^(b-1) to 2^b - 1 ns; the last
+     * bucket also counts anything slower
+     *
+     * @param operation The operation name, e.g. SIN
+     * @return The bucket counts
+     */
+    long[] getLatencyHistogram(String operation);
+
+    /**
+     * Set every count back to zero
+     */
+    void reset();
+}
@@ -0,0 +1,396 @@
+package scicalculator1.model;
+
+import java.util.Arrays;
+import scicalculator1.exception.InvalidExpressionException;
+
+/**
+ * Compiles infix expressions into postfix programs using the shunting-yard
+ * algorithm. Supports parentheses, operator precedence, unary minus, prefix
+ * functions (sin, √, ...), postfix operators (!, ², %), the constants π and e
+ * and the variable x. Named operations are looked up in the default
+ * {@link OperationRegistry}: a unary one is a prefix function, a binary one
+ * an infix operator like mod
+ *
+ * Precedence from lowest to highest: + −, × ÷ and named binary operators,
+ * prefix operators, ^ (right associative), postfix operators
+ *
+ * On the operator stack, values below OPERATIONS.length are Operation
+ * ordinals and higher values index the plugin pool
+ */
+final class ExpressionCompiler {
+
+    private static final int LPAREN = -3;
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private static final int PREC_ADDITIVE = 1;
+    private static final int PREC_MULTIPLICATIVE = 2;
+    private static final int PREC_PREFIX = 3;
+    private static final int PREC_POWER = 4;
+
+    private final String source;
+    private int pos;
+
+    // Output program
+    private int[] code = new int[16];
+    private int codeLength;
+    private double[] constants = new double[8];
+    private int constantCount;
+    private OperationDefinition[] plugins = new OperationDefinition[2];
+    private int pluginCount;
+    private int depth;
+    private int maxDepth;
+    private boolean usesVariable;
+
+    // Pending operators
+    private int[] operators = new int[8];
+    private int operatorCount;
+
+    private ExpressionCompiler(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Compile an infix expression
+     *
+     * @param expression The expression text
+     * @return The compiled expression
+     * @throws InvalidExpressionException If the expression is malformed
+     */
+    static CompiledExpression compile(String expression) throws InvalidExpressionException {
+        if (expression == null || expression.trim().isEmpty()) {
+            throw new InvalidExpressionException("Empty expression");
+        }
+        return new ExpressionCompiler(expression).parse();
+    }
+
+    private CompiledExpression parse() throws InvalidExpressionException {
+        boolean expectOperand = true;
+
+        while (pos < source.length()) {
+            char c = source.charAt(pos);
+
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (isDigit(c) || c == '.') {
+                requireOperand(expectOperand);
+                emitConstant(readNumber());
+                expectOperand = false;
+            } else if (c == '(') {
+                requireOperand(expectOperand);
+                pushOperator(LPAREN);
+                pos++;
+            } else if (c == ')') {
+                requireOperator(expectOperand);
+                closeParenthesis();
+                pos++;
+            } else if (c == '!' || c == '²' || c == '%') {
+                requireOperator(expectOperand);
+                emitOperation(c == '!' ? Operation.FACTORIAL : c == '²' ? Operation.SQUARE : Operation.PERCENT);
+                pos++;
+            } else if (c == 'π') {
+                requireOperand(expectOperand);
+                emitConstant(Math.PI);
+                expectOperand = false;
+                pos++;
+            } else if (c == '√') {
+                requireOperand(expectOperand);
+                pushOperator(Operation.SQRT.ordinal());
+                pos++;
+            } else if (Character.isLetter(c)) {
+                int start = pos;
+                String name = readIdentifier();
+                OperationDefinition named = resolve(name);
+                if (named != null && !named.isUnary()) {
+                    requireOperator(expectOperand);
+                    pushBinary(operatorOf(named));
+                    expectOperand = true;
+                    continue;
+                }
+                requireOperand(expectOperand);
+                switch (name) {
+                    case "x":
+                        emitVariable();
+                        expectOperand = false;
+                        break;
+                    case "pi":
+                        emitConstant(Math.PI);
+                        expectOperand = false;
+                        break;
+                    case "e":
+                        emitConstant(Math.E);
+                        expectOperand = false;
+                        break;
+                    default:
+                        if (named == null) {
+                            throw error("Unknown identifier '" + name + "'", start);
+                        }
+                        pushOperator(operatorOf(named));
+                        break;
+                }
+            } else {
+                Operation operation = mapBinary(c);
+                if (operation == null) {
+                    throw error("Unexpected character '" + c + "'", pos);
+                }
+                if (expectOperand) {
+                    // Leading sign
+                    if (operation == Operation.SUBTRACT) {
+                        pushOperator(Operation.NEGATE.ordinal());
+                    } else if (operation != Operation.ADD) {
+                        throw error("Missing operand before '" + c + "'", pos);
+                    }
+                } else {
+                    pushBinary(operation.ordinal());
+                    expectOperand = true;
+                }
+                pos++;
+            }
+        }
+
+        if (expectOperand) {
+            throw error("Unexpected end of expression", pos);
+        }
+        while (operatorCount > 0) {
+            int top = operators[--operatorCount];
+            if (top == LPAREN) {
+                throw new InvalidExpressionException("Unbalanced parentheses: missing ')'");
+            }
+            emitOperator(top);
+        }
+
+        return new CompiledExpression(source, Arrays.copyOf(code, codeLength),
+                Arrays.copyOf(constants, constantCount), Arrays.copyOf(plugins, pluginCount),
+                maxDepth, usesVariable);
+    }
+
+    // ======== OPERATOR STACK ========
+    private void pushBinary(int operator) {
+        int precedence = precedence(operator);
+        boolean rightAssociative = operator == Operation.POWER.ordinal();
+        while (operatorCount > 0) {
+            int top = operators[operatorCount - 1];
+            if (top == LPAREN) {
+                break;
+            }
+            int topPrecedence = precedence(top);
+            if (topPrecedence > precedence || (topPrecedence == precedence && !rightAssociative)) {
+                operatorCount--;
+                emitOperator(top);
+            } else {
+                break;
+            }
+        }
+        pushOperator(operator);
+    }
+
+    private void closeParenthesis() throws InvalidExpressionException {
+        while (operatorCount > 0 && operators[operatorCount - 1] != LPAREN) {
+            emitOperator(operators[--operatorCount]);
+        }
+        if (operatorCount == 0) {
+            throw error("Unbalanced parentheses: unexpected ')'", pos);
+        }
+        operatorCount--;
+
+        // A named function binds to its parenthesized argument: sin(x)^2 is (sin x)^2
+        if (operatorCount > 0) {
+            int top = operators[operatorCount - 1];
+            if (top != LPAREN && top != Operation.NEGATE.ordinal() && isUnary(top)) {
+                operatorCount--;
+                emitOperator(top);
+            }
+        }
+    }
+
+    private void pushOperator(int operator) {
+        if (operatorCount == operators.length) {
+            operators = Arrays.copyOf(operators, operatorCount * 2);
+        }
+        operators[operatorCount++] = operator;
+    }
+
+    // Operator stack value of a named operation, adding plugins to the pool
+    private int operatorOf(OperationDefinition definition) {
+        if (definition.getOperation() != null) {
+            return definition.getOperation().ordinal();
+        }
+        for (int i = 0; i < pluginCount; i++) {
+            if (plugins[i] == definition) {
+                return OPERATIONS.length + i;
+            }
+        }
+        if (pluginCount == plugins.length) {
+            plugins = Arrays.copyOf(plugins, pluginCount * 2);
+        }
+        plugins[pluginCount] = definition;
+        return OPERATIONS.length + pluginCount++;
+    }
+
+    private boolean isUnary(int operator) {
+        return operator < OPERATIONS.length ? OPERATIONS[operator].isUnary()
+                : plugins[operator - OPERATIONS.length].isUnary();
+    }
+
+    private int precedence(int operator) {
+        if (operator >= OPERATIONS.length) {
+            return isUnary(operator) ? PREC_PREFIX : PREC_MULTIPLICATIVE;
+        }
+        switch (OPERATIONS[operator]) {
+            case ADD:
+            case SUBTRACT:
+                return PREC_ADDITIVE;
+            case MULTIPLY:
+            case DIVIDE:
+            case MODULO:
+                return PREC_MULTIPLICATIVE;
+            case POWER:
+                return PREC_POWER;
+            default:
+                return PREC_PREFIX;
+        }
+    }
+
+    // ======== CODE EMISSION ========
+    private void emitConstant(double value) {
+        if (constantCount == constants.length) {
+            constants = Arrays.copyOf(constants, constantCount * 2);
+        }
+        constants[constantCount] = value;
+        emit(CompiledExpression.OP_CONST);
+        emit(constantCount++);
+        grow(1);
+    }
+
+    private void emitVariable() {
+        usesVariable = true;
+        emit(CompiledExpression.OP_VAR);
+        grow(1);
+    }
+
+    private void emitOperator(int operator) {
+        if (operator < OPERATIONS.length) {
+            emitOperation(OPERATIONS[operator]);
+            return;
+        }
+        int index = operator - OPERATIONS.length;
+        emit(CompiledExpression.OP_PLUGIN);
+        emit(index);
+        if (!plugins[index].isUnary()) {
+            grow(-1);
+        }
+    }
+
+    private void emitOperation(Operation operation) {
+        emit(operation.ordinal());
+        if (!operation.isUnary()) {
+            grow(-1);
+        }
+    }
+
+    private void emit(int slot) {
+        if (codeLength == code.length) {
+            code = Arrays.copyOf(code, codeLength * 2);
+        }
+        code[codeLength++] = slot;
+    }
+
+    private void grow(int delta) {
+        depth += delta;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    // ======== LEXING ========
+    private double readNumber() throws InvalidExpressionException {
+        int start = pos;
+        while (pos < source.length() && (isDigit(source.charAt(pos)) || source.charAt(pos) == '.')) {
+            pos++;
+        }
+        // Exponent suffix, e.g. 1.5E-7 as shown on the display
+        if (pos < source.length() && source.charAt(pos) == 'E') {
+            int mark = pos++;
+            if (pos < source.length() && (source.charAt(pos) == '-' || source.charAt(pos) == '+')) {
+                pos++;
+            }
+            if (pos < source.length() && isDigit(source.charAt(pos))) {
+                while (pos < source.length() && isDigit(source.charAt(pos))) {
+                    pos++;
+                }
+            } else {
+                pos = mark;
+            }
+        }
+        try {
+            return Double.parseDouble(source.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw error("Invalid number '" + source.substring(start, pos) + "'", start);
+        }
+    }
+
+    private String readIdentifier() {
+        int start = pos;
+        while (pos < source.length() && Character.isLetter(source.charAt(pos))) {
+            pos++;
+        }
+        return source.substring(start, pos).toLowerCase();
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // A built-in operation can be named by its symbol or an alias, e.g. sin
+    // or sqrt, but not by its enum constant, which would make "add" an operator
+    private static OperationDefinition resolve(String name) {
+        if (name.equals("x") || name.equals("pi") || name.equals("e")) {
+            return null;
+        }
+        OperationDefinition definition = OperationRegistry.getDefault().find(name);
+        if (definition == null || definition.getOperation() == null
+                || definition.getSymbol().equalsIgnoreCase(name)) {
+            return definition;
+        }
+        for (String alias : definition.getAliases()) {
+            if (alias.equalsIgnoreCase(name)) {
+                return definition;
+            }
+        }
+        return null;
+    }
+
+    private static Operation mapBinary(char c) {
+        switch (c) {
+            case '+':
+                return Operation.ADD;
+            case '-':
+            case '−':
+                return Operation.SUBTRACT;
+            case '*':
+            case '×':
+                return Operation.MULTIPLY;
+            case '/':
+            case '÷':
+                return Operation.DIVIDE;
+            case '^':
+                return Operation.POWER;
+            default:
+                return null;
+        }
+    }
+
+    // ======== ERRORS ========
+    private void requireOperand(boolean expectOperand) throws InvalidExpressionException {
+        if (!expectOperand) {
+            throw error("Missing operator", pos);
+        }
+    }
+
+    private void requireOperator(boolean expectOperand) throws InvalidExpressionException {
+        if (expectOperand) {
+            throw error("Missing operand", pos);
+        }
+    }
+
+    private static InvalidExpressionException error(String message, int position) {
+        return new InvalidExpressionException(message + " at position " + (position + 1));
+    }
+}
@@ -0,0 +1,389 @@
+package scicalculator1.model;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import scicalculator1.util.MathUtils;
+
+/**
+ * Samples y = f(x) for a plot, f being a compiled expression in x evaluated
+ * through the engine's operation dispatch. The x axis is cut into tiles whose
+ * width is a power of two, chosen per view so that a tile spans 128 to 256
+ * pixels. Tiles are sampled once and cached, so panning samples only the
+ * tiles it exposes, and zooming samples again only when the view moves to
+ * another tile size; zooming out reuses the finer tiles already sampled, and
+ * coarser ones stand in while finer ones are missing
+ *
+ * Each tile starts from evenly spaced samples, then bisects only the
+ * intervals where the curve bends away from a straight line, where it
+ * becomes undefined (log near 0) or where it jumps (tan near 90°). A jump
+ * that survives every bisection is a discontinuity and ends the line there
+ *
+ * A tile with more samples than its columns can show keeps only the first,
+ * lowest, highest and last sample of each of {@link #TILE_COLUMNS} columns,
+ * several per pixel. {@link #decimate} reduces the tiles in view to a
+ * {@link PlotPath} of at most four points per pixel column, so drawing a frame
+ * costs the same for a million samples as for a thousand, and
+ * {@link #computeTile} samples the missing tiles, typically on a background
+ * thread. Both are thread-safe
+ */
+public final class FunctionPlot {
+
+    /** Default number of evenly spaced samples per tile, before refinement */
+    public static final int DEFAULT_SAMPLES_PER_TILE = 256;
+
+    /** Largest number of pixels a tile spans */
+    public static final int TILE_PIXELS = 256;
+
+    /** Columns a dense tile is reduced to: four or more per pixel */
+    public static final int TILE_COLUMNS = 4 * TILE_PIXELS;
+
+    // Bisections of one evenly spaced interval
+    private static final int MAX_DEPTH = 10;
+    // Refinement adds at most this many samples per evenly spaced one
+    private static final int REFINE_BUDGET = 8;
+    // Midpoint error, relative to the tile's spread of values, that still
+    // counts as a straight line: a pixel on a plot 1000 pixels high
+    private static final double TOLERANCE = 1e-3;
+    // A difference this large, relative to the spread, between two samples
+    // closer than MAX_DEPTH bisections, with a midpoint far from both, is
+    // taken for a discontinuity
+    private static final double JUMP = 0.05;
+    // Samples kept in the tile cache; 16 bytes each
+    private static final long CACHE_SAMPLES = 1L << 21;
+    // Coarser tile sizes tried while a tile is missing
+    private static final int FALLBACK_LEVELS = 4;
+    private static final int MIN_LEVEL = -1000;
+    private static final int MAX_LEVEL = 1000;
+
+    private final CalculatorEngine engine;
+    private final CompiledExpression expression;
+    private final int samplesPerTile;
+
+    // Least recently used first; guarded by itself
+    private final Map<Key, Tile> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedSamples;
+
+    /**
+     * Create a plot with the default sampling density
+     *
+     * @param engine The engine whose angle unit and dispatch are used
+     * @param expression The function, in x
+     */
+    public FunctionPlot(CalculatorEngine engine, CompiledExpression expression) {
+        this(engine, expression, DEFAULT_SAMPLES_PER_TILE);
+    }
+
+    /**
+     * Create a plot
+     *
+     * @param engine The engine whose angle unit and dispatch are used
+     * @param expression The function, in x
+     * @param samplesPerTile Evenly spaced samples per tile, at least 2; a
+     * tile spans at most {@link #TILE_PIXELS} pixels
+     */
+    public FunctionPlot(CalculatorEngine engine, CompiledExpression expression, int samplesPerTile) {
+        if (engine == null || expression == null) {
+            throw new IllegalArgumentException("Engine and expression must not be null");
+        }
+        if (samplesPerTile < 2) {
+            throw new IllegalArgumentException("Samples per tile must be at least 2: " + samplesPerTile);
+        }
+        this.engine = engine;
+        this.expression = expression;
+        this.samplesPerTile = samplesPerTile;
+    }
+
+    public CompiledExpression getExpression() {
+        return expression;
+    }
+
+    public int getSamplesPerTile() {
+        return samplesPerTile;
+    }
+
+    /**
+     * Get the number of samples in the tile cache
+     *
+     * @return The count
+     */
+    public long getCachedSamples() {
+        synchronized (cache) {
+            return cachedSamples;
+        }
+    }
+
+    // ======== VIEW ========
+    /**
+     * Reduce the samples in a view to pixel columns. Only cached tiles are
+     * read; where a tile is missing, a coarser one is used if cached, or the
+     * line has a gap
+     *
+     * @param x0 The x at the left edge
+     * @param x1 The x at the right edge, greater than x0
+     * @param width The view width in pixels
+     * @param path Receives the columns
+     * @return True if the view was drawn from tiles of its own size or finer,
+     * false if {@link #computeTile} has tiles to sample
+     */
+    public boolean decimate(double x0, double x1, int width, PlotPath path) {
+        int level = level(x0, x1, width);
+        double tileWidth = Math.scalb(1.0, level);
+        long from = index(x0, tileWidth);
+        long to = index(x1, tileWidth);
+        boolean complete = true;
+        path.begin(x0, width / (x1 - x0), width);
+        for (long i = from; i <= to; i++) {
+            double lo = i * tileWidth;
+            double hi = lo + tileWidth;
+            Tile tile = cached(level, i);
+            if (tile != null) {
+                tile.feed(lo, hi, path);
+                continue;
+            }
+            Tile left = cached(level - 1, 2 * i);
+            Tile right = left == null ? null : cached(level - 1, 2 * i + 1);
+            if (right != null) {
+                left.feed(lo, hi, path);
+                right.feed(lo, hi, path);
+                continue;
+            }
+            complete = false;
+            Tile coarse = null;
+            for (int up = 1; coarse == null && up <= FALLBACK_LEVELS; up++) {
+                coarse = cached(level + up, i >> up);
+            }
+            if (coarse != null) {
+                coarse.feed(lo, hi, path);
+            } else {
+                path.gap();
+            }
+        }
+        path.finish();
+        return complete;
+    }
+
+    /**
+     * Sample the leftmost tile a view is missing
+     *
+     * @param x0 The x at the left edge
+     * @param x1 The x at the right edge, greater than x0
+     * @param width The view width in pixels
+     * @return False if no tile was missing
+     */
+    public boolean computeTile(double x0, double x1, int width) {
+        int level = level(x0, x1, width);
+        double tileWidth = Math.scalb(1.0, level);
+        long to = index(x1, tileWidth);
+        for (long i = index(x0, tileWidth); i <= to; i++) {
+            if (cached(level, i) == null
+                    && (cached(level - 1, 2 * i) == null || cached(level - 1, 2 * i + 1) == null)) {
+                store(new Key(level, i), sample(i * tileWidth, tileWidth));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Tiles span TILE_PIXELS / 2 to TILE_PIXELS pixels
+    private static int level(double x0, double x1, int width) {
+        if (!(x1 > x0) || width <= 0) {
+            throw new IllegalArgumentException("Empty view: [" + x0 + ", " + x1 + "] in " + width + " pixels");
+        }
+        int level = Math.getExponent((x1 - x0) / width * TILE_PIXELS);
+        return Math.max(MIN_LEVEL, Math.min(MAX_LEVEL, level));
+    }
+
+    private static long index(double x, double tileWidth) {
+        return (long) Math.floor(x / tileWidth);
+    }
+
+    // ======== CACHE ========
+    private Tile cached(int level, long index) {
+        synchronized (cache) {
+            return cache.get(new Key(level, index));
+        }
+    }
+
+    private void store(Key key, Tile tile) {
+        synchronized (cache) {
+            Tile previous = cache.put(key, tile);
+            cachedSamples += tile.size - (previous == null ? 0 : previous.size);
+            Iterator<Tile> oldest = cache.values().iterator();
+            while (cachedSamples > CACHE_SAMPLES && cache.size() > 1) {
+                cachedSamples -= oldest.next().size;
+                oldest.remove();
+            }
+        }
+    }
+
+    private static final class Key {
+
+        private final int level;
+        private final long index;
+
+        Key(int level, long index) {
+            this.level = level;
+            this.index = index;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return level == other.level && index == other.index;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * level + Long.hashCode(index);
+        }
+    }
+
+    // ======== SAMPLING ========
+    private Tile sample(double start, double tileWidth) {
+        return new Sampler(start, tileWidth).run();
+    }
+
+    /**
+     * Samples one tile: evenly spaced first, then bisecting where needed
+     */
+    private final class Sampler {
+
+        private final double start;
+        private final double tileWidth;
+        private final double step;
+        private final double[] stack = expression.newStack();
+        private double[] xs = new double[samplesPerTile * 2];
+        private double[] ys = new double[samplesPerTile * 2];
+        private int size;
+        private int budget = samplesPerTile * REFINE_BUDGET;
+        private double tolerance;
+        private double jump;
+
+        Sampler(double start, double tileWidth) {
+            this.start = start;
+            this.tileWidth = tileWidth;
+            this.step = tileWidth / samplesPerTile;
+        }
+
+        Tile run() {
+            double[] even = new double[samplesPerTile + 1];
+            double low = Double.POSITIVE_INFINITY;
+            double high = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i <= samplesPerTile; i++) {
+                // From i, so rounding does not accumulate along the tile
+                even[i] = evaluate(start + i * step);
+                if (!Double.isNaN(even[i])) {
+                    low = Math.min(low, even[i]);
+                    high = Math.max(high, even[i]);
+                }
+            }
+            double spread = low <= high
+                    ? Math.max(high - low, 1e-9 * Math.max(Math.abs(low), Math.abs(high))) : 0.0;
+            tolerance = TOLERANCE * spread;
+            jump = JUMP * spread;
+
+            add(start, even[0]);
+            for (int i = 0; i < samplesPerTile; i++) {
+                double xb = start + (i + 1) * step;
+                refine(start + i * step, even[i], xb, even[i + 1], 0);
+                add(xb, even[i + 1]);
+            }
+            if (size <= 4 * TILE_COLUMNS) {
+                return new Tile(Arrays.copyOf(xs, size), Arrays.copyOf(ys, size));
+            }
+            PlotPath reduced = new PlotPath();
+            reduced.begin(start, TILE_COLUMNS / tileWidth, TILE_COLUMNS);
+            for (int i = 0; i < size; i++) {
+                reduced.accept(xs[i], ys[i]);
+            }
+            reduced.finish();
+            return new Tile(reduced.copyX(), reduced.copyY());
+        }
+
+        // Add the samples strictly between xa and xb that the curve needs
+        private void refine(double xa, double ya, double xb, double yb, int depth) {
+            boolean validA = !Double.isNaN(ya);
+            boolean validB = !Double.isNaN(yb);
+            if (!validA && !validB) {
+                return;
+            }
+            if (depth == MAX_DEPTH) {
+                if (validA && validB && Math.abs(yb - ya) > jump && !isLinear(xa, ya, xb, yb)) {
+                    add(0.5 * (xa + xb), Double.NaN);
+                }
+                return;
+            }
+            if (budget == 0) {
+                return;
+            }
+            double xm = 0.5 * (xa + xb);
+            double ym = evaluate(xm);
+            // Bisect towards a domain edge, an undefined point or a bend
+            if (validA == validB && !Double.isNaN(ym) && Math.abs(ym - 0.5 * (ya + yb)) <= tolerance) {
+                return;
+            }
+            budget--;
+            refine(xa, ya, xm, ym, depth + 1);
+            add(xm, ym);
+            refine(xm, ym, xb, yb, depth + 1);
+        }
+
+        // A steep but continuous curve is straight at this scale; across a
+        // pole or a step the midpoint lies near one end or outside
+        private boolean isLinear(double xa, double ya, double xb, double yb) {
+            double ym = evaluate(0.5 * (xa + xb));
+            return Math.abs(ym - 0.5 * (ya + yb)) < 0.25 * Math.abs(yb - ya);
+        }
+
+        // The value at x, NaN where the function fails or overflows
+        private double evaluate(double x) {
+            double y = expression.evaluate(engine, x, stack);
+            return MathUtils.isValidNumber(y) ? y : Double.NaN;
+        }
+
+        private void add(double x, double y) {
+            if (size == xs.length) {
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+            }
+            xs[size] = x;
+            ys[size++] = y;
+        }
+    }
+
+    /**
+     * The samples of one tile, ordered by x; NaN values are breaks
+     */
+    private static final class Tile {
+
+        private final double[] xs;
+        private final double[] ys;
+        private final int size;
+
+        Tile(double[] xs, double[] ys) {
+            this.xs = xs;
+            this.ys = ys;
+            this.size = xs.length;
+        }
+
+        // Pass the samples with lo <= x < hi to a path
+        void feed(double lo, double hi, PlotPath path) {
+            int i = Arrays.binarySearch(xs, lo);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            // A break repeats the x before it
+            while (i > 0 && xs[i - 1] >= lo) {
+                i--;
+            }
+            for (; i < size && xs[i] < hi; i++) {
+                path.accept(xs[i], ys[i]);
+            }
+        }
+    }
+}
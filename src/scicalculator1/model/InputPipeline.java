@@ -0,0 +1,234 @@
+package scicalculator1.model;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import scicalculator1.exception.CalculatorException;
+
+/**
+ * Feeds queued input to a {@link CalculatorEngine} on a worker thread, so that
+ * long pastes and type-ahead never block the thread that produces them. The
+ * queue is bounded: {@link #submit} does not wait, and input arriving while it
+ * is full is dropped. After the queue drains the listener receives the
+ * engine's state, which is immutable and safe to render from any thread
+ *
+ * While a pipeline runs, the worker is the only thread that should call the
+ * engine's session methods; submit any other engine interaction as an
+ * {@link Input} so it is applied in order
+ */
+public final class InputPipeline implements AutoCloseable {
+
+    /** Default number of queued inputs */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final Logger LOG = Logger.getLogger(InputPipeline.class.getName());
+
+    /**
+     * One unit of input, applied to the engine on the worker thread
+     */
+    @FunctionalInterface
+    public interface Input {
+
+        /**
+         * Apply the input
+         *
+         * @param engine The pipeline's engine
+         * @throws CalculatorException If an operation fails; the engine has
+         * already shown the error
+         */
+        void applyTo(CalculatorEngine engine) throws CalculatorException;
+    }
+
+    private final CalculatorEngine engine;
+    private final BlockingQueue<Input> queue;
+    private final Consumer<CalculatorState> listener;
+    private final Thread worker;
+    private volatile boolean closed;
+
+    /**
+     * Create a pipeline and start its worker
+     *
+     * @param engine The engine to feed
+     * @param capacity The largest number of queued inputs
+     * @param listener Receives the state after each burst of input, on the
+     * worker thread
+     */
+    public InputPipeline(CalculatorEngine engine, int capacity, Consumer<CalculatorState> listener) {
+        if (engine == null || listener == null) {
+            throw new IllegalArgumentException("Engine and listener must not be null");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.engine = engine;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.listener = listener;
+        this.worker = new Thread(this::run, "calculator-input");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Queue an input without waiting
+     *
+     * @param input The input
+     * @return False if the queue was full or the pipeline is closed, in which
+     * case the input is dropped
+     */
+    public boolean submit(Input input) {
+        return !closed && queue.offer(input);
+    }
+
+    /**
+     * Queue typed or pasted text as one input. Text made only of calculator
+     * keys (digits, '.', + - × ÷ * / ^ %, '=' or Enter, backspace
+     * and Escape) is entered key by key; a signed number is entered and then
+     * negated; anything else is evaluated as an expression
+     *
+     * @param text The text
+     * @return False if the input was dropped
+     */
+    public boolean type(String text) {
+        return submit(engine -> type(engine, text));
+    }
+
+    /**
+     * Enter text on an engine as described for {@link #type(String)}
+     *
+     * @param engine The engine
+     * @param text The text
+     * @throws CalculatorException If an operation or the expression fails
+     */
+    public static void type(CalculatorEngine engine, String text) throws CalculatorException {
+        String trimmed = text.strip();
+        if (isSignedNumber(trimmed)) {
+            enterKeys(engine, trimmed.substring(1));
+            if (trimmed.charAt(0) == '-') {
+                engine.performUnaryOperation(Operation.NEGATE);
+            }
+        } else if (isKeys(text)) {
+            enterKeys(engine, text);
+        } else {
+            engine.evaluateExpression(trimmed);
+        }
+    }
+
+    private static boolean isSignedNumber(String text) {
+        if (text.length() < 2 || (text.charAt(0) != '-' && text.charAt(0) != '+')) {
+            return false;
+        }
+        for (int i = 1; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c < '0' || c > '9') && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isKeys(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c) && !isKey(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isKey(char c) {
+        return (c >= '0' && c <= '9') || "+-−*×/÷^%.=\b\u001b".indexOf(c) >= 0;
+    }
+
+    private static void enterKeys(CalculatorEngine engine, String keys) throws CalculatorException {
+        for (int i = 0; i < keys.length(); i++) {
+            char c = keys.charAt(i);
+            if (c >= '0' && c <= '9') {
+                engine.inputDigit(c - '0');
+                continue;
+            }
+            switch (c) {
+                case '.':
+                    engine.inputDecimal();
+                    break;
+                case '+':
+                    engine.performBinaryOperation(Operation.ADD);
+                    break;
+                case '-':
+                case '−':
+                    engine.performBinaryOperation(Operation.SUBTRACT);
+                    break;
+                case '*':
+                case '×':
+                    engine.performBinaryOperation(Operation.MULTIPLY);
+                    break;
+                case '/':
+                case '÷':
+                    engine.performBinaryOperation(Operation.DIVIDE);
+                    break;
+                case '^':
+                    engine.performBinaryOperation(Operation.POWER);
+                    break;
+                case '%':
+                    engine.performPercent();
+                    break;
+                case '\r':
+                    // Enter; in a CRLF pair the line feed does it
+                    if (i + 1 < keys.length() && keys.charAt(i + 1) == '\n') {
+                        break;
+                    }
+                    engine.calculateResult();
+                    break;
+                case '=':
+                case '\n':
+                    engine.calculateResult();
+                    break;
+                case '\b':
+                    engine.backspace();
+                    break;
+                case '\u001b':
+                    engine.clearAll();
+                    break;
+                default:
+                    // Other whitespace is ignored
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Stop the worker after the input being applied; queued input is dropped
+     */
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+    }
+
+    // ======== WORKER ========
+    private void run() {
+        try {
+            while (!closed) {
+                apply(queue.take());
+                if (queue.isEmpty()) {
+                    listener.accept(engine.getState());
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        }
+    }
+
+    private void apply(Input input) {
+        try {
+            input.applyTo(engine);
+        } catch (CalculatorException e) {
+            // The engine is already in its error state, malformed expressions
+            // included
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Input failed", e);
+        }
+    }
+}
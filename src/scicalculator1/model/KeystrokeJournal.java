@@ -0,0 +1,539 @@
+package scicalculator1.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import scicalculator1.exception.CalculatorException;
+import scicalculator1.exception.ErrorCode;
+import scicalculator1.util.AngleUnit;
+
+/**
+ * Append-only binary journal of the inputs to a {@link CalculatorEngine}
+ * session. Attach one with {@link CalculatorEngine#setJournal} and every
+ * session method (digits, operations, memory keys, clears, and the angle unit
+ * and backend settings) is recorded; {@link #replay} rebuilds the state from
+ * the file, for crash recovery or to reproduce a reported bug. Attaching a
+ * journal records a snapshot of the memory register, angle unit and backend,
+ * so replay starts from the settings the session started with rather than
+ * from a fresh calculator
+ *
+ * Events are one byte, plus a small payload for operations, constants and
+ * expressions. They are buffered and written with a forced sync every
+ * syncBatch events, so a crash loses at most the last syncBatch - 1 events.
+ * A torn event at the end of the file is ignored by replay and cut off when
+ * the journal is reopened. States set directly with
+ * {@link CalculatorEngine#setState} are not recorded. Replay applies memory
+ * register keys to a private {@link MemoryBank}, so the live registers are
+ * only changed when {@link #recover} restores a session
+ *
+ * Recording never throws; an I/O failure stops the journal and is reported
+ * by {@link #getFailure()}, so the calculator keeps working without it
+ */
+public final class KeystrokeJournal implements Closeable {
+
+    private static final byte[] MAGIC = {'S', 'C', 'J', '1'};
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_EXPRESSION_BYTES = 0xffff;
+
+    // Event tags; 0 marks the end so that zero-filled space is never replayed
+    static final int END = 0x00;
+    static final int DECIMAL = 0x01;
+    static final int CALCULATE = 0x02;
+    static final int PERCENT = 0x03;
+    static final int CLEAR_ENTRY = 0x04;
+    static final int CLEAR_ALL = 0x05;
+    static final int BACKSPACE = 0x06;
+    static final int MEMORY_STORE = 0x07;
+    static final int MEMORY_RECALL = 0x08;
+    static final int MEMORY_ADD = 0x09;
+    static final int MEMORY_SUBTRACT = 0x0a;
+    static final int MEMORY_CLEAR = 0x0b;
+    // DIGIT + d for d in 0-9
+    static final int DIGIT = 0x10;
+    // Followed by an Operation ordinal
+    static final int BINARY = 0x20;
+    static final int UNARY = 0x21;
+    // Followed by the 8-byte double
+    static final int CONSTANT = 0x22;
+    // Followed by a 2-byte length and the UTF-8 text
+    static final int EXPRESSION = 0x23;
+    // Followed by an AngleUnit ordinal
+    static final int ANGLE_UNIT = 0x24;
+    // Followed by a 4-byte precision (0 for double) and a RoundingMode ordinal
+    static final int BACKEND = 0x25;
+    // Followed by a memory bank register number
+    static final int REGISTER_STORE = 0x26;
+    static final int REGISTER_RECALL = 0x27;
+    static final int REGISTER_ADD = 0x28;
+    static final int REGISTER_SUBTRACT = 0x29;
+    static final int REGISTER_CLEAR = 0x2a;
+    // Followed by the 8-byte memory register, an AngleUnit ordinal and a
+    // backend as for BACKEND
+    static final int SNAPSHOT = 0x2b;
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final AngleUnit[] UNITS = AngleUnit.values();
+    private static final RoundingMode[] ROUNDING_MODES = RoundingMode.values();
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final int syncBatch;
+
+    private long events;
+    private int unsynced;
+    private IOException failure;
+    private boolean closed;
+
+    private KeystrokeJournal(FileChannel channel, int syncBatch) {
+        this.channel = channel;
+        this.syncBatch = syncBatch;
+    }
+
+    /**
+     * Open a journal for appending, creating it if needed. An existing file is
+     * scanned and any torn event at its end is truncated
+     *
+     * @param path The journal file
+     * @param syncBatch Events between forced syncs to the device: 1 syncs
+     * every event, 0 leaves syncing to the operating system until close
+     * @return The journal
+     * @throws IOException If the file cannot be opened or is not a journal
+     */
+    public static KeystrokeJournal open(Path path, int syncBatch) throws IOException {
+        if (syncBatch < 0) {
+            throw new IllegalArgumentException("Sync batch must not be negative: " + syncBatch);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            KeystrokeJournal journal = new KeystrokeJournal(channel, syncBatch);
+            if (channel.size() == 0) {
+                channel.write(ByteBuffer.wrap(MAGIC));
+            } else {
+                Replayer scan = new Replayer(null);
+                scan.run(map(channel), Long.MAX_VALUE);
+                channel.truncate(scan.end);
+                channel.position(scan.end);
+                journal.events = scan.events;
+            }
+            return journal;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Restore an engine's session from a journal and continue recording to it,
+     * e.g. at startup after a crash. The engine's memory registers are set to
+     * their replayed values
+     *
+     * @param path The journal file; a new one is created if it does not exist
+     * @param engine The engine to restore
+     * @param syncBatch Events between forced syncs to the device
+     * @return The journal, now attached to the engine
+     * @throws IOException If the file cannot be read or is not a journal
+     */
+    public static KeystrokeJournal recover(Path path, CalculatorEngine engine, int syncBatch) throws IOException {
+        KeystrokeJournal journal = open(path, syncBatch);
+        engine.setJournal(null);
+        Replayer replayer;
+        try {
+            replayer = run(path, engine, Long.MAX_VALUE);
+        } catch (IOException e) {
+            journal.close();
+            throw e;
+        }
+        engine.setState(replayer.state);
+        MemoryBank bank = engine.getMemoryBank();
+        for (int i = 0; i < MemoryBank.REGISTERS; i++) {
+            bank.set(i, replayer.registers.get(i));
+        }
+        engine.setJournal(journal);
+        return journal;
+    }
+
+    /**
+     * Rebuild a session from a journal, applying every recorded event to the
+     * engine's pure transitions. Recorded angle unit and backend changes are
+     * applied to the engine, so it should not have a journal attached
+     *
+     * @param path The journal file
+     * @param engine The engine to replay on
+     * @return The state after the last complete event
+     * @throws IOException If the file cannot be read or is not a journal
+     */
+    public static CalculatorState replay(Path path, CalculatorEngine engine) throws IOException {
+        return replay(path, engine, Long.MAX_VALUE);
+    }
+
+    /**
+     * Rebuild a session up to a given event, e.g. to step towards a bug
+     *
+     * @param path The journal file
+     * @param engine The engine to replay on
+     * @param maxEvents The number of events to apply
+     * @return The state after the last applied event
+     * @throws IOException If the file cannot be read or is not a journal
+     */
+    public static CalculatorState replay(Path path, CalculatorEngine engine, long maxEvents) throws IOException {
+        if (engine == null) {
+            throw new IllegalArgumentException("Engine must not be null");
+        }
+        return run(path, engine, maxEvents).state;
+    }
+
+    private static Replayer run(Path path, CalculatorEngine engine, long maxEvents) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Replayer replayer = new Replayer(engine);
+            replayer.run(map(channel), maxEvents);
+            return replayer;
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Journal larger than 2 GB");
+        }
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (size < MAGIC.length) {
+            throw new IOException("Not a keystroke journal");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (map.get(i) != MAGIC[i]) {
+                throw new IOException("Not a keystroke journal");
+            }
+        }
+        return map;
+    }
+
+    // ======== RECORDING ========
+    synchronized void append(int event) {
+        if (reserve(1)) {
+            buffer.put((byte) event);
+            committed();
+        }
+    }
+
+    synchronized void append(int event, int operand) {
+        if (reserve(2)) {
+            buffer.put((byte) event).put((byte) operand);
+            committed();
+        }
+    }
+
+    synchronized void appendConstant(double value) {
+        if (reserve(9)) {
+            buffer.put((byte) CONSTANT).putDouble(value);
+            committed();
+        }
+    }
+
+    synchronized void appendExpression(String expression) {
+        byte[] text = expression.getBytes(StandardCharsets.UTF_8);
+        if (text.length > MAX_EXPRESSION_BYTES) {
+            fail(new IOException("Expression too long to journal"));
+            return;
+        }
+        if (reserve(3 + text.length)) {
+            buffer.put((byte) EXPRESSION).putShort((short) text.length).put(text);
+            committed();
+        }
+    }
+
+    synchronized void appendBackend(NumericBackend backend) {
+        if (canRecord(backend) && reserve(6)) {
+            buffer.put((byte) BACKEND);
+            putBackend(backend);
+            committed();
+        }
+    }
+
+    synchronized void appendSnapshot(double memory, AngleUnit unit, NumericBackend backend) {
+        if (canRecord(backend) && reserve(15)) {
+            buffer.put((byte) SNAPSHOT).putDouble(memory).put((byte) unit.ordinal());
+            putBackend(backend);
+            committed();
+        }
+    }
+
+    private boolean canRecord(NumericBackend backend) {
+        if (backend instanceof DecimalBackend || backend == NumericBackend.DOUBLE) {
+            return true;
+        }
+        fail(new IOException("Cannot journal backend " + backend));
+        return false;
+    }
+
+    // A 4-byte precision, 0 for double, and a RoundingMode ordinal
+    private void putBackend(NumericBackend backend) {
+        if (backend instanceof DecimalBackend) {
+            MathContext mc = ((DecimalBackend) backend).getMathContext();
+            buffer.putInt(mc.getPrecision()).put((byte) mc.getRoundingMode().ordinal());
+        } else {
+            buffer.putInt(0).put((byte) 0);
+        }
+    }
+
+    /**
+     * Make room in the buffer, writing it out if needed
+     */
+    private boolean reserve(int bytes) {
+        if (failure != null || closed) {
+            return false;
+        }
+        if (buffer.remaining() < bytes) {
+            try {
+                writeBuffer();
+            } catch (IOException e) {
+                fail(e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void committed() {
+        events++;
+        if (syncBatch > 0 && ++unsynced >= syncBatch) {
+            try {
+                writeBuffer();
+                channel.force(false);
+                unsynced = 0;
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Write buffered events and sync them to the device
+     *
+     * @throws IOException If writing fails, or recording failed earlier
+     */
+    public synchronized void flush() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (!closed) {
+            writeBuffer();
+            channel.force(false);
+            unsynced = 0;
+        }
+    }
+
+    /**
+     * Flush and close the journal
+     *
+     * @throws IOException If the final write fails, or recording failed earlier
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    /**
+     * Get the number of events in the journal, including those already in
+     * the file when it was opened
+     *
+     * @return The event count
+     */
+    public synchronized long getEventCount() {
+        return events;
+    }
+
+    /**
+     * Get the error that stopped recording
+     *
+     * @return The first I/O failure, or null while recording works
+     */
+    public synchronized IOException getFailure() {
+        return failure;
+    }
+
+    // ======== REPLAY ========
+    /**
+     * Decodes events from a mapped journal, applying them when it has an
+     * engine and only validating them otherwise
+     */
+    private static final class Replayer {
+
+        private final CalculatorEngine engine;
+        // Registers M0-M99 as the journal left them
+        final MemoryBank registers = new MemoryBank();
+        CalculatorState state = CalculatorState.initial();
+        // Offset after the last complete event
+        int end;
+        long events;
+
+        Replayer(CalculatorEngine engine) {
+            this.engine = engine;
+        }
+
+        void run(ByteBuffer in, long maxEvents) throws IOException {
+            final int limit = in.limit();
+            final CalculatorEngine engine = this.engine;
+            CalculatorState s = state;
+            int pos = MAGIC.length;
+            long count = 0;
+            while (pos < limit && count < maxEvents) {
+                int event = in.get(pos) & 0xff;
+                int size = eventSize(in, pos, event, limit);
+                if (size <= 0 || pos + size > limit) {
+                    // End marker, torn or unknown event
+                    break;
+                }
+                if (engine != null) {
+                    s = apply(engine, registers, s, in, pos, event);
+                }
+                pos += size;
+                count++;
+            }
+            state = s;
+            end = pos;
+            events = count;
+        }
+
+        /**
+         * Encoded length of the event at pos, or 0 if it is not a valid event
+         */
+        private static int eventSize(ByteBuffer in, int pos, int event, int limit) {
+            if (event >= DECIMAL && event <= MEMORY_CLEAR || event >= DIGIT && event <= DIGIT + 9) {
+                return 1;
+            }
+            switch (event) {
+                case BINARY:
+                case UNARY:
+                    return pos + 1 < limit && (in.get(pos + 1) & 0xff) < OPERATIONS.length ? 2 : 0;
+                case ANGLE_UNIT:
+                    return pos + 1 < limit && (in.get(pos + 1) & 0xff) < UNITS.length ? 2 : 0;
+                case REGISTER_STORE:
+                case REGISTER_RECALL:
+                case REGISTER_ADD:
+                case REGISTER_SUBTRACT:
+                case REGISTER_CLEAR:
+                    return pos + 1 < limit && (in.get(pos + 1) & 0xff) < MemoryBank.REGISTERS ? 2 : 0;
+                case CONSTANT:
+                    return 9;
+                case EXPRESSION:
+                    return pos + 2 < limit ? 3 + (in.getShort(pos + 1) & 0xffff) : 0;
+                case BACKEND:
+                    return pos + 5 < limit && (in.get(pos + 5) & 0xff) < ROUNDING_MODES.length ? 6 : 0;
+                case SNAPSHOT:
+                    return pos + 14 < limit && (in.get(pos + 9) & 0xff) < UNITS.length
+                            && (in.get(pos + 14) & 0xff) < ROUNDING_MODES.length ? 15 : 0;
+                default:
+                    return 0;
+            }
+        }
+
+        private static CalculatorState apply(CalculatorEngine engine, MemoryBank registers, CalculatorState s,
+                ByteBuffer in, int pos, int event) throws IOException {
+            if (event >= DIGIT && event <= DIGIT + 9) {
+                return engine.inputDigit(s, event - DIGIT);
+            }
+            switch (event) {
+                case DECIMAL:
+                    return engine.inputDecimal(s);
+                case CALCULATE:
+                    return engine.calculateResult(s);
+                case PERCENT:
+                    return engine.performPercent(s);
+                case CLEAR_ENTRY:
+                    return engine.clearEntry(s);
+                case CLEAR_ALL:
+                    return CalculatorState.initial();
+                case BACKSPACE:
+                    return engine.backspace(s);
+                case MEMORY_STORE:
+                    return engine.memoryStore(s);
+                case MEMORY_RECALL:
+                    return engine.memoryRecall(s);
+                case MEMORY_ADD:
+                    return engine.memoryAdd(s);
+                case MEMORY_SUBTRACT:
+                    return engine.memorySubtract(s);
+                case MEMORY_CLEAR:
+                    return s.withMemory(0.0);
+                case BINARY:
+                    return engine.performBinaryOperation(s, OPERATIONS[in.get(pos + 1)]);
+                case UNARY:
+                    return engine.performUnaryOperation(s, OPERATIONS[in.get(pos + 1)]);
+                case CONSTANT:
+                    return engine.inputConstant(s, in.getDouble(pos + 1));
+                case EXPRESSION:
+                    byte[] text = new byte[in.getShort(pos + 1) & 0xffff];
+                    in.get(pos + 3, text);
+                    try {
+                        CompiledExpression compiled = engine.compile(new String(text, StandardCharsets.UTF_8));
+                        return engine.evaluateExpression(s, compiled, compiled.newStack());
+                    } catch (CalculatorException e) {
+                        // Malformed expressions are journaled with the error they showed
+                        return s.withError(ErrorCode.SYNTAX_ERROR);
+                    }
+                case ANGLE_UNIT:
+                    engine.setAngleUnit(UNITS[in.get(pos + 1)]);
+                    return s;
+                case BACKEND:
+                    engine.setBackend(backendAt(in, pos + 1));
+                    return s;
+                case SNAPSHOT:
+                    engine.setAngleUnit(UNITS[in.get(pos + 9)]);
+                    engine.setBackend(backendAt(in, pos + 10));
+                    return s.withMemory(in.getDouble(pos + 1));
+                case REGISTER_STORE:
+                    CalculatorEngine.storeRegister(registers, in.get(pos + 1), s);
+                    return s;
+                case REGISTER_RECALL:
+                    return engine.memoryRecall(s, registers, in.get(pos + 1));
+                case REGISTER_ADD:
+                    CalculatorEngine.addToRegister(registers, in.get(pos + 1), s, 1.0);
+                    return s;
+                case REGISTER_SUBTRACT:
+                    CalculatorEngine.addToRegister(registers, in.get(pos + 1), s, -1.0);
+                    return s;
+                case REGISTER_CLEAR:
+                    registers.clear(in.get(pos + 1));
+                    return s;
+                default:
+                    return s;
+            }
+        }
+
+        private static NumericBackend backendAt(ByteBuffer in, int at) {
+            int precision = in.getInt(at);
+            return precision == 0 ? NumericBackend.DOUBLE
+                    : NumericBackend.decimal(new MathContext(precision, ROUNDING_MODES[in.get(at + 4)]));
+        }
+    }
+}
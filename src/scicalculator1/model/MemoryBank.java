@@ -0,0 +1,95 @@
+package scicalculator1.model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Bank of memory registers M0 to M99 that any number of sessions and threads
+ * can update at once. Values are doubles in a primitive array, changed with
+ * VarHandle compare-and-set, so concurrent additions are never lost and no
+ * lock is taken
+ *
+ * Each register sits on its own cache line, so threads working on different
+ * registers do not slow each other down. Threads adding to the same register
+ * retry on contention; a calculator's rate of memory keys is far below the
+ * point where striping the register would pay off
+ */
+public final class MemoryBank {
+
+    /** Number of registers */
+    public static final int REGISTERS = 100;
+
+    // Doubles per register: one 64-byte cache line
+    private static final int STRIDE = 8;
+
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(double[].class);
+
+    // Register r is at (r + 1) * STRIDE; the padding before the first keeps
+    // it off the line holding the array header
+    private final double[] values = new double[(REGISTERS + 2) * STRIDE];
+
+    private static int index(int register) {
+        if (register < 0 || register >= REGISTERS) {
+            throw new IllegalArgumentException("Register must be between 0 and " + (REGISTERS - 1) + ": " + register);
+        }
+        return (register + 1) * STRIDE;
+    }
+
+    /**
+     * Read a register
+     *
+     * @param register The register number, 0-99
+     * @return Its value
+     */
+    public double get(int register) {
+        return (double) VALUES.getVolatile(values, index(register));
+    }
+
+    /**
+     * Replace a register's value
+     *
+     * @param register The register number, 0-99
+     * @param value The new value
+     */
+    public void set(int register, double value) {
+        VALUES.setVolatile(values, index(register), value);
+    }
+
+    /**
+     * Add to a register atomically
+     *
+     * @param register The register number, 0-99
+     * @param delta The amount to add
+     * @return The new value
+     */
+    public double add(int register, double delta) {
+        int i = index(register);
+        double current = (double) VALUES.getVolatile(values, i);
+        double next = current + delta;
+        // Compares bit patterns, so a NaN or -0.0 register still matches
+        while (!VALUES.weakCompareAndSet(values, i, current, next)) {
+            current = (double) VALUES.getVolatile(values, i);
+            next = current + delta;
+        }
+        return next;
+    }
+
+    /**
+     * Set a register to zero
+     *
+     * @param register The register number, 0-99
+     */
+    public void clear(int register) {
+        set(register, 0.0);
+    }
+
+    /**
+     * Set every register to zero. Registers are cleared one by one, so an
+     * update racing with this may survive
+     */
+    public void clearAll() {
+        for (int r = 0; r < REGISTERS; r++) {
+            VALUES.setVolatile(values, (r + 1) * STRIDE, 0.0);
+        }
+    }
+}
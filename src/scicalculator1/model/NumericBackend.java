@@ -0,0 +1,81 @@
+package scicalculator1.model;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import scicalculator1.exception.CalculatorException;
+import scicalculator1.util.AngleUnit;
+
+/**
+ * Number system the engine calculates in. {@link #DOUBLE} is the default
+ * binary floating-point mode; {@link #decimal(MathContext)} calculates in
+ * BigDecimal to a chosen number of significant digits
+ *
+ * The engine keeps its double fast path for non-exact backends and only routes
+ * operations through {@link #apply} when {@link #isExact()} is true
+ */
+public interface NumericBackend {
+
+    /**
+     * IEEE 754 double arithmetic, as used by the engine's fast path
+     */
+    NumericBackend DOUBLE = new DoubleBackend();
+
+    /**
+     * Create a decimal backend
+     *
+     * @param mathContext The precision and rounding of every result
+     * @return The backend
+     * @throws IllegalArgumentException If mathContext has unlimited precision
+     */
+    static NumericBackend decimal(MathContext mathContext) {
+        return new DecimalBackend(mathContext);
+    }
+
+    /**
+     * Get a short name for display
+     *
+     * @return The name (e.g. "DOUBLE" or "DECIMAL34")
+     */
+    String getName();
+
+    /**
+     * Check if results keep decimal digits beyond double precision
+     *
+     * @return True if the engine should carry values as BigDecimal
+     */
+    boolean isExact();
+
+    /**
+     * Apply a binary operation
+     *
+     * @param operation The operation
+     * @param left The first operand
+     * @param right The second operand
+     * @param unit The angle unit in effect
+     * @return The result
+     * @throws CalculatorException The shared exception of the failing
+     * {@link scicalculator1.exception.ErrorCode}
+     */
+    BigDecimal apply(Operation operation, BigDecimal left, BigDecimal right, AngleUnit unit) throws CalculatorException;
+
+    /**
+     * Apply a unary operation
+     *
+     * @param operation The operation
+     * @param value The operand
+     * @param unit The angle unit in effect
+     * @return The result
+     * @throws CalculatorException The shared exception of the failing
+     * {@link scicalculator1.exception.ErrorCode}
+     */
+    BigDecimal apply(Operation operation, BigDecimal value, AngleUnit unit) throws CalculatorException;
+
+    /**
+     * Get a constant to this backend's precision
+     *
+     * @param value The constant as a double; Math.PI and Math.E are recognised
+     * and computed to full precision
+     * @return The constant
+     */
+    BigDecimal constant(double value);
+}
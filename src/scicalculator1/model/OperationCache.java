@@ -0,0 +1,219 @@
+package scicalculator1.model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import scicalculator1.util.AngleUnit;
+
+/**
+ * Bounded memoization cache for expensive operations (trigonometry,
+ * logarithms, roots, factorial and power). Entries are keyed on the operation,
+ * the angle unit and the raw bits of the operands, and stored in a flat
+ * open-addressing long[] table, so lookups neither box nor allocate
+ *
+ * The table can be shared by several engines and threads without locking.
+ * Each slot keeps a check word that XORs the key with the value; a reader that
+ * sees a half-written slot finds a mismatching check word and treats it as a
+ * miss. Error results are not cached
+ *
+ * The hit, miss and eviction counters are LongAdders, as in
+ * {@link EngineMetrics}, so they stay exact when the cache is shared and
+ * threads counting at once do not contend on one field
+ */
+public final class OperationCache {
+
+    // Operations worth a lookup; cheap arithmetic is faster to recompute
+    private static final boolean[] CACHEABLE = new boolean[Operation.values().length];
+
+    static {
+        for (Operation operation : new Operation[]{
+            Operation.SIN, Operation.COS, Operation.TAN,
+            Operation.ASIN, Operation.ACOS, Operation.ATAN,
+            Operation.LOG, Operation.LN, Operation.EXP, Operation.TENPOWX,
+            Operation.SQRT, Operation.FACTORIAL, Operation.POWER}) {
+            CACHEABLE[operation.ordinal()] = true;
+        }
+    }
+
+    // Slot layout: left operand, right operand, value, check word
+    private static final int SLOT_WORDS = 4;
+    // Slots probed per lookup; the eviction victim is chosen among them
+    private static final int PROBE_WINDOW = 4;
+    private static final int MIN_CAPACITY = PROBE_WINDOW;
+    private static final int MAX_CAPACITY = 1 << 24;
+
+    private final long[] table;
+    private final int mask;
+
+    // Statistics
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // Rotates the eviction victim; lost updates between threads are harmless
+    private int clock;
+
+    /**
+     * Create a cache
+     *
+     * @param capacity Maximum number of entries, rounded up to a power of two
+     * @throws IllegalArgumentException If capacity is not positive or larger
+     * than 2^24
+     */
+    public OperationCache(int capacity) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Cache capacity must be between 1 and " + MAX_CAPACITY + ": " + capacity);
+        }
+        int size = Math.max(MIN_CAPACITY, Integer.highestOneBit(capacity - 1) << 1);
+        this.table = new long[size * SLOT_WORDS];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Check if results of an operation are cached
+     *
+     * @param operation The operation
+     * @return True for the expensive operations this cache memoizes
+     */
+    public static boolean isCacheable(Operation operation) {
+        return CACHEABLE[operation.ordinal()];
+    }
+
+    /**
+     * Look up a cached result
+     *
+     * @param operation The operation
+     * @param unit The angle unit in effect
+     * @param left The operand of a unary operation or the left operand
+     * @param right The right operand, or 0 for a unary operation
+     * @return The cached result, or NaN on a miss
+     */
+    public double get(Operation operation, AngleUnit unit, double left, double right) {
+        long a = Double.doubleToRawLongBits(left);
+        long b = Double.doubleToRawLongBits(right);
+        long meta = meta(operation, unit);
+        final long[] table = this.table;
+        int slot = hash(a, b, meta) & mask;
+        for (int i = 0; i < PROBE_WINDOW; i++) {
+            int base = ((slot + i) & mask) * SLOT_WORDS;
+            if (table[base] == a && table[base + 1] == b) {
+                long value = table[base + 2];
+                if (table[base + 3] == check(a, b, meta, value)) {
+                    hits.increment();
+                    return Double.longBitsToDouble(value);
+                }
+            }
+        }
+        misses.increment();
+        return Double.NaN;
+    }
+
+    /**
+     * Store a result. NaN results (errors) are ignored
+     *
+     * @param operation The operation
+     * @param unit The angle unit in effect
+     * @param left The operand of a unary operation or the left operand
+     * @param right The right operand, or 0 for a unary operation
+     * @param result The result to remember
+     */
+    public void put(Operation operation, AngleUnit unit, double left, double right, double result) {
+        if (Double.isNaN(result)) {
+            return;
+        }
+        long a = Double.doubleToRawLongBits(left);
+        long b = Double.doubleToRawLongBits(right);
+        long meta = meta(operation, unit);
+        long value = Double.doubleToRawLongBits(result);
+        final long[] table = this.table;
+        int slot = hash(a, b, meta) & mask;
+
+        // Prefer a free slot or one already holding this key
+        int target = -1;
+        for (int i = 0; i < PROBE_WINDOW; i++) {
+            int base = ((slot + i) & mask) * SLOT_WORDS;
+            long check = table[base + 3];
+            if (check == 0 || (table[base] == a && table[base + 1] == b
+                    && check == check(a, b, meta, table[base + 2]))) {
+                target = base;
+                break;
+            }
+        }
+        if (target < 0) {
+            target = ((slot + (clock++ & (PROBE_WINDOW - 1))) & mask) * SLOT_WORDS;
+            evictions.increment();
+        }
+
+        table[target] = a;
+        table[target + 1] = b;
+        table[target + 2] = value;
+        table[target + 3] = check(a, b, meta, value);
+    }
+
+    /**
+     * Remove every entry and reset the counters
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    /**
+     * Get the number of entries the cache can hold
+     *
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the fraction of lookups that were hits
+     *
+     * @return The hit rate in [0, 1], or 0 before the first lookup
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return "OperationCache[capacity=" + getCapacity() + ", hits=" + getHits()
+                + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "]";
+    }
+
+    // Never zero, so an empty slot cannot match
+    private static long meta(Operation operation, AngleUnit unit) {
+        return ((long) (operation.ordinal() + 1) << 8) | (unit.ordinal() + 1);
+    }
+
+    private static long check(long a, long b, long meta, long value) {
+        return a ^ Long.rotateLeft(b, 21) ^ Long.rotateLeft(value, 42) ^ (meta * 0x9e3779b97f4a7c15L);
+    }
+
+    private static int hash(long a, long b, long meta) {
+        // MurmurHash3 finalizer
+        long h = a ^ Long.rotateLeft(b, 32) ^ (meta * 0x9e3779b97f4a7c15L);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,200 @@
+package scicalculator1.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+import scicalculator1.exception.ErrorCode;
+import scicalculator1.util.MathUtils;
+
+/**
+ * Describes an operation for the {@link OperationRegistry}: its name, symbol,
+ * arity and the keys it is looked up by. A plugin operation also carries its
+ * kernel and an optional domain check; a built-in one names its
+ * {@link Operation}, which the engine dispatches through its switch so that
+ * every built-in kernel stays inlined
+ *
+ * Instances are immutable; the with methods return modified copies
+ */
+public final class OperationDefinition {
+
+    private final String name;
+    private final String symbol;
+    private final boolean unary;
+    private final Operation operation;
+    private final DoubleUnaryOperator unaryKernel;
+    private final DoubleBinaryOperator binaryKernel;
+    private final DoublePredicate domain;
+    private final ErrorCode domainError;
+    private final List<String> aliases;
+
+    private OperationDefinition(String name, String symbol, boolean unary, Operation operation,
+            DoubleUnaryOperator unaryKernel, DoubleBinaryOperator binaryKernel,
+            DoublePredicate domain, ErrorCode domainError, List<String> aliases) {
+        if (name == null || name.isEmpty() || symbol == null || symbol.isEmpty()) {
+            throw new IllegalArgumentException("Name and symbol must not be empty");
+        }
+        this.name = name;
+        this.symbol = symbol;
+        this.unary = unary;
+        this.operation = operation;
+        this.unaryKernel = unaryKernel;
+        this.binaryKernel = binaryKernel;
+        this.domain = domain;
+        this.domainError = domainError;
+        this.aliases = aliases;
+    }
+
+    /**
+     * Define a function of one operand
+     *
+     * @param name The name, used as the function name in expressions, e.g.
+     * "sinh"
+     * @param symbol The display symbol
+     * @param kernel Computes the result; returns NaN where it is undefined
+     * @return The definition
+     */
+    public static OperationDefinition unary(String name, String symbol, DoubleUnaryOperator kernel) {
+        if (kernel == null) {
+            throw new IllegalArgumentException("Kernel must not be null");
+        }
+        return new OperationDefinition(name, symbol, true, null, kernel, null, null, null,
+                Collections.emptyList());
+    }
+
+    /**
+     * Define an operator of two operands
+     *
+     * @param name The name, used as an infix operator in expressions, e.g.
+     * "nCr" in "5 nCr 2"
+     * @param symbol The display symbol
+     * @param kernel Computes the result; returns NaN where it is undefined
+     * @return The definition
+     */
+    public static OperationDefinition binary(String name, String symbol, DoubleBinaryOperator kernel) {
+        if (kernel == null) {
+            throw new IllegalArgumentException("Kernel must not be null");
+        }
+        return new OperationDefinition(name, symbol, false, null, null, kernel, null, null,
+                Collections.emptyList());
+    }
+
+    /**
+     * Describe a built-in operation
+     *
+     * @param operation The operation
+     * @param aliases Further lookup keys, e.g. key labels
+     * @return The definition
+     */
+    static OperationDefinition of(Operation operation, String... aliases) {
+        return new OperationDefinition(operation.name(), operation.getSymbol(), operation.isUnary(), operation,
+                null, null, null, null, Collections.unmodifiableList(Arrays.asList(aliases.clone())));
+    }
+
+    /**
+     * Reject operands outside the domain. A failed check gives a NaN carrying
+     * the error code, as the built-in operations do
+     *
+     * @param check Accepts valid operands: the operand of a unary operation,
+     * the right operand of a binary one (as for division)
+     * @param error The error for rejected operands
+     * @return A copy with the check
+     */
+    public OperationDefinition withDomain(DoublePredicate check, ErrorCode error) {
+        if (operation != null) {
+            throw new IllegalStateException("Built-in operations check their own domain");
+        }
+        if (check == null || error == null) {
+            throw new IllegalArgumentException("Domain check and error must not be null");
+        }
+        return new OperationDefinition(name, symbol, unary, null, unaryKernel, binaryKernel, check, error, aliases);
+    }
+
+    /**
+     * Add lookup keys besides the name and symbol
+     *
+     * @param keys The keys, e.g. other spellings
+     * @return A copy with the keys
+     */
+    public OperationDefinition withAliases(String... keys) {
+        return new OperationDefinition(name, symbol, unary, operation, unaryKernel, binaryKernel, domain,
+                domainError, Collections.unmodifiableList(Arrays.asList(keys.clone())));
+    }
+
+    // ======== METADATA ========
+    public String getName() {
+        return name;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public boolean isUnary() {
+        return unary;
+    }
+
+    /**
+     * Get the built-in operation this describes
+     *
+     * @return The operation, or null for a plugin operation
+     */
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Get the lookup keys besides the name and symbol
+     *
+     * @return The aliases
+     */
+    public List<String> getAliases() {
+        return aliases;
+    }
+
+    // ======== KERNELS ========
+    /**
+     * Apply a plugin unary operation. A NaN operand is returned unchanged, so
+     * kernels need not preserve the error codes of earlier operations
+     *
+     * @param value The operand
+     * @return The result, or a NaN carrying an {@link ErrorCode}
+     */
+    double apply(double value) {
+        if (Double.isNaN(value)) {
+            return value;
+        }
+        if (domain != null && !domain.test(value)) {
+            return MathUtils.error(domainError);
+        }
+        return unaryKernel.applyAsDouble(value);
+    }
+
+    /**
+     * Apply a plugin binary operation. A NaN operand is returned unchanged,
+     * the left one first
+     *
+     * @param left The first operand
+     * @param right The second operand
+     * @return The result, or a NaN carrying an {@link ErrorCode}
+     */
+    double apply(double left, double right) {
+        if (Double.isNaN(left)) {
+            return left;
+        }
+        if (Double.isNaN(right)) {
+            return right;
+        }
+        if (domain != null && !domain.test(right)) {
+            return MathUtils.error(domainError);
+        }
+        return binaryKernel.applyAsDouble(left, right);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,21 @@
+package scicalculator1.model;
+
+import java.util.List;
+
+/**
+ * Service interface for adding operations without changing the engine. An
+ * implementation is listed in
+ * META-INF/services/scicalculator1.model.OperationProvider of its jar and is
+ * picked up by {@link OperationRegistry#getDefault()} when the application
+ * starts
+ */
+public interface OperationProvider {
+
+    /**
+     * Get the operations to register
+     *
+     * @return The definitions, from {@link OperationDefinition#unary} or
+     * {@link OperationDefinition#binary}
+     */
+    List<OperationDefinition> operations();
+}
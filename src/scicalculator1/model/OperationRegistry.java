@@ -0,0 +1,161 @@
+package scicalculator1.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Looks up operations by name, symbol or alias, for the expression compiler
+ * and the keypad. It holds a definition of every built-in {@link Operation}
+ * plus any plugin operations, registered directly or through
+ * {@link OperationProvider} services
+ *
+ * Built-in operations keep their place in the engine's switch, where the JIT
+ * compiles each kernel inline. A plugin operation is called through its
+ * kernel's functional interface from one call site in
+ * {@link CompiledExpression}, which the JIT inlines as long as at most two
+ * plugin kernels run there; more make it a virtual call, still without any
+ * lookup per evaluation
+ */
+public final class OperationRegistry {
+
+    private static final Logger LOG = Logger.getLogger(OperationRegistry.class.getName());
+
+    private final Map<String, OperationDefinition> byKey = new ConcurrentHashMap<>();
+    private final List<OperationDefinition> definitions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Create a registry holding only the built-in operations
+     */
+    public OperationRegistry() {
+        for (Operation operation : Operation.values()) {
+            register(OperationDefinition.of(operation, builtInAliases(operation)));
+        }
+    }
+
+    // Spellings used by the keypad and by typed expressions
+    private static String[] builtInAliases(Operation operation) {
+        switch (operation) {
+            case SUBTRACT:
+                return new String[]{"−"};
+            case MULTIPLY:
+                return new String[]{"*"};
+            case DIVIDE:
+                return new String[]{"/"};
+            case POWER:
+                return new String[]{"xʸ"};
+            case SQRT:
+                return new String[]{"sqrt"};
+            case ABS:
+                return new String[]{"abs"};
+            default:
+                return new String[0];
+        }
+    }
+
+    /**
+     * Get the registry the application uses: the built-in operations and
+     * those of every {@link OperationProvider} on the class path. Providers
+     * are loaded on first use; one that fails to load is logged and skipped
+     *
+     * @return The default registry
+     */
+    public static OperationRegistry getDefault() {
+        return Default.INSTANCE;
+    }
+
+    private static final class Default {
+
+        static final OperationRegistry INSTANCE = new OperationRegistry();
+
+        static {
+            INSTANCE.loadProviders(OperationRegistry.class.getClassLoader());
+        }
+    }
+
+    /**
+     * Register the operations of every {@link OperationProvider} visible to
+     * a class loader
+     *
+     * @param loader The class loader to search
+     * @return The number of operations registered
+     */
+    public int loadProviders(ClassLoader loader) {
+        int count = 0;
+        try {
+            for (OperationProvider provider : ServiceLoader.load(OperationProvider.class, loader)) {
+                for (OperationDefinition definition : provider.operations()) {
+                    try {
+                        register(definition);
+                        count++;
+                    } catch (IllegalArgumentException e) {
+                        LOG.log(Level.WARNING, "Skipping operation " + definition.getName(), e);
+                    }
+                }
+            }
+        } catch (ServiceConfigurationError e) {
+            LOG.log(Level.WARNING, "Could not load operation providers", e);
+        }
+        return count;
+    }
+
+    /**
+     * Add an operation. Its name, symbol and aliases become lookup keys;
+     * matching ignores case
+     *
+     * @param definition The operation
+     * @throws IllegalArgumentException If a key is taken by another operation
+     */
+    public synchronized void register(OperationDefinition definition) {
+        List<String> keys = new ArrayList<>();
+        keys.add(definition.getName());
+        keys.add(definition.getSymbol());
+        keys.addAll(definition.getAliases());
+        List<String> added = new ArrayList<>();
+        for (String key : keys) {
+            String normalized = normalize(key);
+            OperationDefinition existing = byKey.putIfAbsent(normalized, definition);
+            if (existing != null && existing != definition) {
+                for (String taken : added) {
+                    byKey.remove(taken);
+                }
+                throw new IllegalArgumentException("'" + key + "' is already used by " + existing.getName());
+            }
+            if (existing == null) {
+                added.add(normalized);
+            }
+        }
+        definitions.add(definition);
+    }
+
+    /**
+     * Find an operation by name, symbol or alias
+     *
+     * @param key The key, e.g. "mod", "÷" or "SQRT"
+     * @return The definition, or null if none matches
+     */
+    public OperationDefinition find(String key) {
+        return key == null ? null : byKey.get(normalize(key));
+    }
+
+    /**
+     * Get every registered operation, built-ins first
+     *
+     * @return The definitions in registration order
+     */
+    public List<OperationDefinition> definitions() {
+        return Collections.unmodifiableList(definitions);
+    }
+
+    private static String normalize(String key) {
+        return key.toLowerCase(Locale.ROOT);
+    }
+}
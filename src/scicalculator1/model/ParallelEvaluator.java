@@ -0,0 +1,171 @@
+package scicalculator1.model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Evaluates one compiled expression over many inputs on a ForkJoinPool, for
+ * generating lookup tables. The input range is split in halves until a piece
+ * is no larger than the grain size; each piece runs on its own operand stack
+ * and writes a disjoint slice of the output, so workers share no mutable
+ * state besides the engine's optional operation cache
+ *
+ * Results follow the batch convention of {@link CalculatorEngine}: failed
+ * elements hold a NaN carrying their {@link scicalculator1.exception.ErrorCode}
+ * and are flagged in the error bitmap (bit i of word i / 64)
+ */
+public final class ParallelEvaluator {
+
+    /** Default number of inputs evaluated by one task */
+    public static final int DEFAULT_GRAIN_SIZE = 8192;
+
+    // Grain sizes are whole bitmap words so that tasks never share one
+    private static final int WORD_BITS = 64;
+
+    private final CalculatorEngine engine;
+    private final ForkJoinPool pool;
+    private final int grainSize;
+
+    /**
+     * Create an evaluator on the common pool with the default grain size
+     *
+     * @param engine The engine whose angle unit and cache are used
+     */
+    public ParallelEvaluator(CalculatorEngine engine) {
+        this(engine, ForkJoinPool.commonPool(), DEFAULT_GRAIN_SIZE);
+    }
+
+    /**
+     * Create an evaluator
+     *
+     * @param engine The engine whose angle unit and cache are used
+     * @param pool The pool tasks run on
+     * @param grainSize Largest number of inputs evaluated sequentially, rounded
+     * up to a multiple of 64
+     * @throws IllegalArgumentException If grainSize is not positive
+     */
+    public ParallelEvaluator(CalculatorEngine engine, ForkJoinPool pool, int grainSize) {
+        if (engine == null || pool == null) {
+            throw new IllegalArgumentException("Engine and pool must not be null");
+        }
+        if (grainSize <= 0) {
+            throw new IllegalArgumentException("Grain size must be positive: " + grainSize);
+        }
+        this.engine = engine;
+        this.pool = pool;
+        this.grainSize = (int) Math.min(Integer.MAX_VALUE - WORD_BITS + 1,
+                ((long) grainSize + WORD_BITS - 1) & -WORD_BITS);
+    }
+
+    /**
+     * Evaluate an expression for every input
+     *
+     * @param expression The compiled expression
+     * @param inputs The values bound to x
+     * @param out Receives the results, at least as long as inputs
+     * @param errors Error bitmap of at least (n + 63) / 64 words, or null to
+     * skip reporting
+     * @return The number of failed elements
+     */
+    public int evaluate(CompiledExpression expression, double[] inputs, double[] out, long[] errors) {
+        int n = inputs.length;
+        checkLengths(n, out, errors);
+        return pool.invoke(new Task(expression, inputs, 0.0, 0.0, out, errors, 0, n));
+    }
+
+    /**
+     * Evaluate an expression over an evenly spaced range: x = start + i × step
+     * for i from 0 to out.length - 1. Each x is computed from i, so rounding
+     * does not accumulate along the range
+     *
+     * @param expression The compiled expression
+     * @param start The first value of x
+     * @param step The distance between consecutive values of x
+     * @param out Receives the results; its length is the number of points
+     * @param errors Error bitmap of at least (n + 63) / 64 words, or null to
+     * skip reporting
+     * @return The number of failed elements
+     */
+    public int evaluate(CompiledExpression expression, double start, double step, double[] out, long[] errors) {
+        int n = out.length;
+        checkLengths(n, out, errors);
+        return pool.invoke(new Task(expression, null, start, step, out, errors, 0, n));
+    }
+
+    public int getGrainSize() {
+        return grainSize;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    private static void checkLengths(int n, double[] out, long[] errors) {
+        if (out.length < n) {
+            throw new IllegalArgumentException("Result array is shorter than the inputs");
+        }
+        if (errors != null && errors.length < (n + 63) >>> 6) {
+            throw new IllegalArgumentException("Error bitmap too small for " + n + " elements");
+        }
+    }
+
+    /**
+     * Evaluates [from, to) directly or by splitting at a word boundary
+     */
+    private final class Task extends RecursiveTask<Integer> {
+
+        private final CompiledExpression expression;
+        private final double[] inputs;
+        private final double start;
+        private final double step;
+        private final double[] out;
+        private final long[] errors;
+        private final int from;
+        private final int to;
+
+        Task(CompiledExpression expression, double[] inputs, double start, double step,
+                double[] out, long[] errors, int from, int to) {
+            this.expression = expression;
+            this.inputs = inputs;
+            this.start = start;
+            this.step = step;
+            this.out = out;
+            this.errors = errors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= grainSize) {
+                return evaluateDirectly();
+            }
+            int middle = (from + (to - from) / 2) & -WORD_BITS;
+            if (middle <= from) {
+                middle = from + WORD_BITS;
+            }
+            Task right = new Task(expression, inputs, start, step, out, errors, middle, to);
+            right.fork();
+            int failures = new Task(expression, inputs, start, step, out, errors, from, middle).compute();
+            return failures + right.join();
+        }
+
+        private int evaluateDirectly() {
+            final CompiledExpression expression = this.expression;
+            final CalculatorEngine engine = ParallelEvaluator.this.engine;
+            final double[] out = this.out;
+            final double[] stack = expression.newStack();
+            if (inputs != null) {
+                final double[] inputs = this.inputs;
+                for (int i = from; i < to; i++) {
+                    out[i] = expression.evaluate(engine, inputs[i], stack);
+                }
+            } else {
+                for (int i = from; i < to; i++) {
+                    out[i] = expression.evaluate(engine, start + i * step, stack);
+                }
+            }
+            return CalculatorEngine.markErrors(out, from, to, errors);
+        }
+    }
+}
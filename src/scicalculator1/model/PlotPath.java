@@ -0,0 +1,227 @@
+package scicalculator1.model;
+
+import java.util.Arrays;
+
+/**
+ * A function's samples reduced to the pixel columns of a plot, filled by
+ * {@link FunctionPlot#decimate}. Each column keeps at most four samples, its
+ * first, lowest, highest and last in the order they occur, so drawing the
+ * points as a polyline gives the same picture as drawing every sample, with
+ * work proportional to the plot width
+ *
+ * Points are in runs; a break point separates runs where the function is
+ * undefined or jumps. Samples left and right of the view collapse into one
+ * column each, so lines leave the edges at the right slope. Instances are
+ * reused between frames and are not thread-safe
+ */
+public final class PlotPath {
+
+    private double[] xs = new double[256];
+    private double[] ys = new double[256];
+    private int size;
+
+    // Mapping of x to columns
+    private double origin;
+    private double scale;
+    private int width;
+
+    // Column being accumulated; lowAt and highAt count samples from its first
+    private int column;
+    private int count;
+    private double firstX;
+    private double first;
+    private double lastX;
+    private double last;
+    private double lowX;
+    private double low;
+    private double highX;
+    private double high;
+    private int lowAt;
+    private int highAt;
+
+    /**
+     * Get the number of points, breaks included
+     *
+     * @return The size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get a point's x
+     *
+     * @param index The point, from 0 to size() - 1
+     * @return The x of the sample
+     */
+    public double getX(int index) {
+        return xs[index];
+    }
+
+    /**
+     * Get a point's function value
+     *
+     * @param index The point, from 0 to size() - 1
+     * @return The value, NaN for a break
+     */
+    public double getY(int index) {
+        return ys[index];
+    }
+
+    /**
+     * Check whether a point ends a run
+     *
+     * @param index The point, from 0 to size() - 1
+     * @return True for a break
+     */
+    public boolean isBreak(int index) {
+        return Double.isNaN(ys[index]);
+    }
+
+    /**
+     * Estimate a quantile of the drawn values, e.g. to fit the vertical range
+     * around most of a curve while ignoring its poles
+     *
+     * @param fraction The quantile, from 0 to 1
+     * @return The value, or NaN if no point is drawn
+     */
+    public double quantile(double fraction) {
+        double[] sorted = new double[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (!Double.isNaN(ys[i])) {
+                sorted[n++] = ys[i];
+            }
+        }
+        if (n == 0) {
+            return Double.NaN;
+        }
+        Arrays.sort(sorted, 0, n);
+        return sorted[(int) Math.min(n - 1, Math.max(0, Math.round(fraction * (n - 1))))];
+    }
+
+    // ======== DECIMATION ========
+    /**
+     * Start a new path; {@link #accept} then takes samples in increasing x
+     *
+     * @param x0 The x at the left edge
+     * @param pixelsPerUnit Columns per unit of x
+     * @param width The number of columns
+     */
+    void begin(double x0, double pixelsPerUnit, int width) {
+        this.origin = x0;
+        this.scale = pixelsPerUnit;
+        this.width = width;
+        size = 0;
+        count = 0;
+    }
+
+    /**
+     * Add a sample
+     *
+     * @param x The sample's x, not less than the previous one's
+     * @param y Its value, NaN where the function is undefined or breaks
+     */
+    void accept(double x, double y) {
+        if (Double.isNaN(y)) {
+            flush();
+            addBreak();
+            return;
+        }
+        int c = columnOf(x);
+        if (count > 0 && c != column) {
+            flush();
+        }
+        if (count == 0) {
+            column = c;
+            firstX = x;
+            first = y;
+            lowX = x;
+            low = y;
+            highX = x;
+            high = y;
+            lowAt = 0;
+            highAt = 0;
+        } else if (y < low) {
+            lowX = x;
+            low = y;
+            lowAt = count;
+        } else if (y > high) {
+            highX = x;
+            high = y;
+            highAt = count;
+        }
+        lastX = x;
+        last = y;
+        count++;
+    }
+
+    /**
+     * End a run, e.g. where no samples are available
+     */
+    void gap() {
+        flush();
+        addBreak();
+    }
+
+    /**
+     * Emit the last column
+     */
+    void finish() {
+        flush();
+    }
+
+    private int columnOf(double x) {
+        double c = Math.floor((x - origin) * scale);
+        return c < -1 ? -1 : c > width ? width : (int) c;
+    }
+
+    // Emit the column's first, extreme and last samples in the order they came
+    private void flush() {
+        if (count == 0) {
+            return;
+        }
+        int end = count - 1;
+        add(firstX, first);
+        boolean lowInside = lowAt > 0 && lowAt < end;
+        boolean highInside = highAt > 0 && highAt < end;
+        if (lowInside && highInside && highAt < lowAt) {
+            add(highX, high);
+            add(lowX, low);
+        } else {
+            if (lowInside) {
+                add(lowX, low);
+            }
+            if (highInside) {
+                add(highX, high);
+            }
+        }
+        if (end > 0) {
+            add(lastX, last);
+        }
+        count = 0;
+    }
+
+    private void add(double x, double y) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+        }
+        xs[size] = x;
+        ys[size++] = y;
+    }
+
+    private void addBreak() {
+        if (size > 0 && !Double.isNaN(ys[size - 1])) {
+            add(xs[size - 1], Double.NaN);
+        }
+    }
+
+    double[] copyX() {
+        return Arrays.copyOf(xs, size);
+    }
+
+    double[] copyY() {
+        return Arrays.copyOf(ys, size);
+    }
+}
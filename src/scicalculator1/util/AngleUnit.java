@@ -0,0 +1,84 @@
+package scicalculator1.util;
+
+/**
+ * Enumeration of the angle units used by the trigonometric functions
+ *
+ * Degrees and gradians divide a full turn into a whole number of units, so
+ * their arguments are reduced exactly in their own unit before conversion to
+ * radians. This keeps results such as sin(180°) and cos(90°) exactly zero
+ */
+public enum AngleUnit {
+    DEGREES("DEG", 90.0),
+    RADIANS("RAD", Math.PI / 2.0),
+    GRADIANS("GRAD", 100.0);
+
+    private final String symbol;
+    private final double quarterTurn;
+    private final double quartersPerUnit;
+    private final double toRadians;
+    private final double fromRadians;
+
+    AngleUnit(String symbol, double quarterTurn) {
+        this.symbol = symbol;
+        this.quarterTurn = quarterTurn;
+        this.quartersPerUnit = 1.0 / quarterTurn;
+        this.toRadians = (Math.PI / 2.0) / quarterTurn;
+        this.fromRadians = quarterTurn / (Math.PI / 2.0);
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Get the size of a right angle in this unit
+     *
+     * @return 90 for degrees, π/2 for radians, 100 for gradians
+     */
+    public double getQuarterTurn() {
+        return quarterTurn;
+    }
+
+    /**
+     * Get the number of right angles in one unit
+     *
+     * @return The reciprocal of {@link #getQuarterTurn()}
+     */
+    public double getQuartersPerUnit() {
+        return quartersPerUnit;
+    }
+
+    /**
+     * Check if arguments can be reduced exactly in this unit
+     *
+     * @return True unless the unit is radians
+     */
+    public boolean isExact() {
+        return this != RADIANS;
+    }
+
+    /**
+     * Convert an angle in this unit to radians
+     *
+     * @param angle The angle
+     * @return The angle in radians
+     */
+    public double toRadians(double angle) {
+        return this == RADIANS ? angle : angle * toRadians;
+    }
+
+    /**
+     * Convert an angle in radians to this unit
+     *
+     * @param radians The angle in radians
+     * @return The angle in this unit
+     */
+    public double fromRadians(double radians) {
+        return this == RADIANS ? radians : radians * fromRadians;
+    }
+
+    @Override
+    public String toString() {
+        return symbol;
+    }
+}
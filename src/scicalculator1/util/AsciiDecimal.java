@@ -0,0 +1,247 @@
+package scicalculator1.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * Number conversion for ASCII data files without intermediate strings.
+ * {@link #parse} reads a decimal straight from a byte buffer; {@link #format}
+ * writes the shortest text that parses back to the same double
+ *
+ * Parsing is static and thread-safe. Formatting keeps scratch state, so each
+ * thread should use its own instance
+ */
+public final class AsciiDecimal {
+
+    /** Longest text {@link #format} can produce, e.g. "-2.2250738585072014E-308" */
+    public static final int MAX_LENGTH = 25;
+
+    // Significands below 10^15 and powers up to 10^22 are exact doubles, so
+    // one multiplication or division is correctly rounded
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final int MAX_FAST_EXPONENT = 22;
+    private static final int MAX_DIGITS = 19;
+    // Plain notation for decimal exponents in [-7, 21), like Double.toString
+    private static final int MIN_PLAIN_EXPONENT = -7;
+    private static final int MAX_PLAIN_EXPONENT = 21;
+
+    private static final double[] POW10 = new double[MAX_FAST_EXPONENT + 1];
+
+    static {
+        POW10[0] = 1.0;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10.0;
+        }
+    }
+
+    private final ShortestDecimal decimal = new ShortestDecimal();
+    private final byte[] digitBuffer = new byte[20];
+
+    /**
+     * Parse a decimal number from bytes [from, to) of a buffer: an optional
+     * sign, digits with an optional point, and an optional exponent, e.g.
+     * "-1.5e3". Surrounding spaces and tabs are ignored. Anything else, such
+     * as "NaN", "0x1p3" or a "d" suffix, is rejected. Inputs with more than
+     * 15 significant digits or a large exponent are converted through
+     * BigDecimal, so every result is correctly rounded
+     *
+     * @param in The buffer; its position is not changed
+     * @param from Index of the first byte
+     * @param to Index after the last byte
+     * @return The parsed value
+     * @throws NumberFormatException If the bytes are not a number
+     */
+    public static double parse(ByteBuffer in, int from, int to) throws NumberFormatException {
+        while (from < to && isBlank(in.get(from))) {
+            from++;
+        }
+        while (to > from && isBlank(in.get(to - 1))) {
+            to--;
+        }
+
+        int i = from;
+        boolean negative = false;
+        if (i < to && (in.get(i) == '-' || in.get(i) == '+')) {
+            negative = in.get(i) == '-';
+            i++;
+        }
+
+        long significand = 0;
+        int digits = 0;
+        int exponent = 0;
+        byte b;
+        int integerStart = i;
+        while (i < to && (b = in.get(i)) >= '0' && b <= '9') {
+            if (digits < MAX_DIGITS) {
+                significand = significand * 10 + (b - '0');
+                if (significand != 0) {
+                    digits++;
+                }
+            } else {
+                exponent++;
+            }
+            i++;
+        }
+        int integerEnd = i;
+        int fractionStart = i;
+        if (i < to && in.get(i) == '.') {
+            fractionStart = ++i;
+            while (i < to && (b = in.get(i)) >= '0' && b <= '9') {
+                if (digits < MAX_DIGITS) {
+                    significand = significand * 10 + (b - '0');
+                    if (significand != 0) {
+                        digits++;
+                    }
+                    exponent--;
+                }
+                i++;
+            }
+        }
+        int fractionEnd = i;
+        if (integerEnd == integerStart && fractionEnd == fractionStart) {
+            throw new NumberFormatException("Not a number");
+        }
+        int power = 0;
+        if (i < to && (in.get(i) == 'e' || in.get(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && (in.get(i) == '-' || in.get(i) == '+')) {
+                negativeExponent = in.get(i) == '-';
+                i++;
+            }
+            int start = i;
+            while (i < to && (b = in.get(i)) >= '0' && b <= '9') {
+                power = Math.min(power * 10 + (b - '0'), 100_000);
+                i++;
+            }
+            if (i == start) {
+                throw new NumberFormatException("Missing exponent digits");
+            }
+            if (negativeExponent) {
+                power = -power;
+            }
+        }
+        if (i != to) {
+            throw new NumberFormatException("Not a number");
+        }
+
+        exponent += power;
+        double value;
+        if (significand == 0) {
+            value = 0.0;
+        } else if (digits <= MAX_FAST_DIGITS && exponent >= 0 && exponent <= MAX_FAST_EXPONENT) {
+            value = significand * POW10[exponent];
+        } else if (digits <= MAX_FAST_DIGITS && exponent < 0 && exponent >= -MAX_FAST_EXPONENT) {
+            value = significand / POW10[-exponent];
+        } else {
+            value = parseExact(in, integerStart, integerEnd, fractionStart, fractionEnd, power);
+        }
+        return negative ? -value : value;
+    }
+
+    // Every digit of the validated input, scaled by the exponent; exponents
+    // are clamped far beyond the range of double
+    private static double parseExact(ByteBuffer in, int integerStart, int integerEnd, int fractionStart,
+            int fractionEnd, int power) {
+        int integerDigits = integerEnd - integerStart;
+        int fractionDigits = fractionEnd - fractionStart;
+        char[] digits = new char[integerDigits + fractionDigits];
+        for (int i = 0; i < integerDigits; i++) {
+            digits[i] = (char) in.get(integerStart + i);
+        }
+        for (int i = 0; i < fractionDigits; i++) {
+            digits[integerDigits + i] = (char) in.get(fractionStart + i);
+        }
+        return new BigDecimal(new BigInteger(new String(digits)), fractionDigits - power).doubleValue();
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    /**
+     * Write the shortest decimal that parses back to value. Decimal
+     * exponents from -7 to 20 are written plainly, others as e.g. "1.5E-9"
+     *
+     * @param value The value to format
+     * @param buf The destination, with at least {@link #MAX_LENGTH} bytes free
+     * from offset
+     * @param offset Where to start writing
+     * @return The number of bytes written
+     */
+    public int format(double value, byte[] buf, int offset) {
+        int pos = offset;
+        if (Double.isNaN(value)) {
+            return put(buf, pos, "NaN");
+        }
+        if (value < 0 || (value == 0 && 1 / value < 0)) {
+            buf[pos++] = '-';
+            value = -value;
+        }
+        if (value == 0) {
+            buf[pos++] = '0';
+            return pos - offset;
+        }
+        if (Double.isInfinite(value)) {
+            return pos - offset + put(buf, pos, "Infinity");
+        }
+
+        decimal.set(value);
+        int count = 0;
+        for (long digits = decimal.digits; digits != 0; digits /= 10) {
+            digitBuffer[count++] = (byte) ('0' + digits % 10);
+        }
+        // digitBuffer holds the digits in reverse order
+        int scientific = decimal.exponent + count - 1;
+
+        if (scientific >= MIN_PLAIN_EXPONENT && scientific < MAX_PLAIN_EXPONENT) {
+            if (scientific < 0) {
+                buf[pos++] = '0';
+                buf[pos++] = '.';
+                for (int i = -1; i > scientific; i--) {
+                    buf[pos++] = '0';
+                }
+                for (int i = count - 1; i >= 0; i--) {
+                    buf[pos++] = digitBuffer[i];
+                }
+            } else {
+                for (int i = count - 1, place = scientific; i >= 0 || place >= 0; i--, place--) {
+                    if (place == -1) {
+                        buf[pos++] = '.';
+                    }
+                    buf[pos++] = i >= 0 ? digitBuffer[i] : (byte) '0';
+                }
+            }
+            return pos - offset;
+        }
+
+        buf[pos++] = digitBuffer[count - 1];
+        if (count > 1) {
+            buf[pos++] = '.';
+            for (int i = count - 2; i >= 0; i--) {
+                buf[pos++] = digitBuffer[i];
+            }
+        }
+        buf[pos++] = 'E';
+        if (scientific < 0) {
+            buf[pos++] = '-';
+            scientific = -scientific;
+        }
+        if (scientific >= 100) {
+            buf[pos++] = (byte) ('0' + scientific / 100);
+        }
+        if (scientific >= 10) {
+            buf[pos++] = (byte) ('0' + scientific / 10 % 10);
+        }
+        buf[pos++] = (byte) ('0' + scientific % 10);
+        return pos - offset;
+    }
+
+    private static int put(byte[] buf, int offset, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            buf[offset + i] = (byte) text.charAt(i);
+        }
+        return text.length();
+    }
+}
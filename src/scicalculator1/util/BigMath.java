@@ -0,0 +1,679 @@
+package scicalculator1.util;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.concurrent.CancellationException;
+import scicalculator1.exception.*;
+
+/**
+ * Arbitrary-precision counterparts of the MathUtils functions, evaluated to
+ * the precision of a MathContext
+ *
+ * Every kernel reduces its argument before summing a series, so the number of
+ * terms grows with the square root of the precision rather than linearly:
+ * exp halves the argument and squares back, sine uses the triple-angle
+ * identity, arc tangent halves with the half-angle identity, sqrt and ln use
+ * Newton/Halley iterations that double or triple the correct digits per step
+ * from a double seed, and π comes from the Gauss-Legendre AGM. Work is done
+ * with guard digits and rounded once at the end. Domain errors throw the same
+ * preallocated exceptions as MathUtils
+ *
+ * Long loops check the thread's interrupt flag and stop with a
+ * CancellationException, so background computations can be cancelled
+ *
+ * @see MathUtils
+ */
+public final class BigMath {
+
+    /** Largest n accepted by {@link #factorial(BigDecimal, MathContext)} */
+    public static final int MAX_FACTORIAL = 100_000;
+
+    private static final int GUARD_DIGITS = 10;
+    // Digits a double seed gets right
+    private static final int SEED_DIGITS = 15;
+    private static final double LOG2_10 = 3.321928094887362;
+
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+    private static final BigDecimal THREE = BigDecimal.valueOf(3);
+    private static final BigDecimal FOUR = BigDecimal.valueOf(4);
+    private static final BigDecimal HALF = new BigDecimal("0.5");
+    private static final BigDecimal QUARTER = new BigDecimal("0.25");
+    private static final BigDecimal NINETY = BigDecimal.valueOf(90);
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+    private static final BigDecimal SQRT_10 = new BigDecimal("3.1622776601683793");
+    // ln is summed as a series instead of iterated within this distance of 1
+    private static final BigDecimal LN_SERIES_RADIUS = new BigDecimal("0.1");
+    // exp reduces by multiples of ln 10 above this magnitude
+    private static final BigDecimal EXP_REDUCE_THRESHOLD = BigDecimal.TEN;
+    // exp(x) for larger |x| has a decimal exponent outside int range
+    private static final BigDecimal EXP_LIMIT = BigDecimal.valueOf(1_000_000_000L);
+
+    // Constants at the highest precision computed so far; racing threads may
+    // both compute one, which is harmless
+    private static volatile BigDecimal cachedPi;
+    private static volatile BigDecimal cachedLn10;
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private BigMath() {
+        throw new AssertionError("Utility class should not be instantiated");
+    }
+
+    // ======== CONSTANTS ========
+    /**
+     * Get π
+     * @param mc The precision
+     * @return π rounded to mc
+     */
+    public static BigDecimal pi(MathContext mc) {
+        checkPrecision(mc);
+        BigDecimal value = cachedPi;
+        if (value == null || value.precision() < mc.getPrecision() + 2) {
+            value = computePi(working(mc, GUARD_DIGITS));
+            cachedPi = value;
+        }
+        return value.round(mc);
+    }
+
+    /**
+     * Get Euler's number e
+     * @param mc The precision
+     * @return e rounded to mc
+     */
+    public static BigDecimal e(MathContext mc) {
+        checkPrecision(mc);
+        return expReduced(BigDecimal.ONE, working(mc, GUARD_DIGITS)).round(mc);
+    }
+
+    private static BigDecimal ln10(MathContext mc) {
+        BigDecimal value = cachedLn10;
+        if (value == null || value.precision() < mc.getPrecision() + 2) {
+            value = lnNewton(BigDecimal.TEN, working(mc, GUARD_DIGITS));
+            cachedLn10 = value;
+        }
+        return value.round(mc);
+    }
+
+    /**
+     * π by the Gauss-Legendre AGM, which doubles the correct digits per step
+     */
+    private static BigDecimal computePi(MathContext wc) {
+        BigDecimal a = BigDecimal.ONE;
+        BigDecimal b = BigDecimal.ONE.divide(sqrtPositive(TWO, wc), wc);
+        BigDecimal t = QUARTER;
+        BigDecimal p = BigDecimal.ONE;
+        for (int i = 0; i < 64; i++) {
+            checkInterrupted();
+            BigDecimal difference = a.subtract(b);
+            if (difference.signum() == 0 || magnitude(difference) < -wc.getPrecision()) {
+                break;
+            }
+            BigDecimal next = a.add(b).multiply(HALF, wc);
+            b = sqrtPositive(a.multiply(b, wc), wc);
+            BigDecimal d = a.subtract(next);
+            t = t.subtract(p.multiply(d.multiply(d, wc)), wc);
+            a = next;
+            p = p.add(p);
+        }
+        BigDecimal sum = a.add(b);
+        return sum.multiply(sum, wc).divide(t.multiply(FOUR), wc);
+    }
+
+    // ======== ROOTS AND POWERS ========
+    /**
+     * Calculate square root
+     * @param value The value (must be non-negative)
+     * @param mc The precision
+     * @return The square root rounded to mc
+     * @throws InvalidExpressionException If value is negative
+     */
+    public static BigDecimal sqrt(BigDecimal value, MathContext mc) throws InvalidExpressionException {
+        checkPrecision(mc);
+        if (value.signum() < 0) {
+            throw (InvalidExpressionException) ErrorCode.SQRT_DOMAIN.exception();
+        }
+        if (value.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        return sqrtPositive(value, working(mc, 2)).round(mc);
+    }
+
+    /**
+     * Newton's iteration y = (y + m / y) / 2 from a double seed, doubling the
+     * working precision with the correct digits
+     */
+    private static BigDecimal sqrtPositive(BigDecimal value, MathContext wc) {
+        // value = m × 10^(2k) with m in [1, 100), so the seed never overflows
+        int k = Math.floorDiv(magnitude(value), 2);
+        BigDecimal m = value.movePointLeft(2 * k);
+        BigDecimal y = new BigDecimal(Math.sqrt(m.doubleValue()));
+        int target = wc.getPrecision();
+        int digits = SEED_DIGITS;
+        do {
+            digits = Math.min(2 * digits, target);
+            MathContext step = new MathContext(digits + 2, RoundingMode.HALF_EVEN);
+            y = y.add(m.divide(y, step)).multiply(HALF, step);
+        } while (digits < target);
+        return y.movePointRight(k);
+    }
+
+    /**
+     * Raise a value to a power. Whole exponents use repeated squaring, others
+     * exp(exponent × ln(base))
+     * @param base The base value
+     * @param exponent The exponent
+     * @param mc The precision
+     * @return base^exponent rounded to mc
+     * @throws CalculatorException If base is 0 and exponent negative, base is
+     * negative and exponent not whole, or the result overflows
+     */
+    public static BigDecimal power(BigDecimal base, BigDecimal exponent, MathContext mc) throws CalculatorException {
+        checkPrecision(mc);
+        if (exponent.signum() == 0) {
+            return BigDecimal.ONE;
+        }
+        if (base.signum() == 0) {
+            if (exponent.signum() < 0) {
+                throw (DivisionByZeroException) ErrorCode.DIVISION_BY_ZERO.exception();
+            }
+            return BigDecimal.ZERO;
+        }
+        if (isInteger(exponent) && exponent.abs().compareTo(BigDecimal.valueOf(999_999_999)) <= 0) {
+            int n = exponent.intValueExact();
+            try {
+                return base.pow(n, working(mc, digitCount(n))).round(mc);
+            } catch (ArithmeticException e) {
+                throw (OverflowException) ErrorCode.OVERFLOW.exception();
+            }
+        }
+        if (base.signum() < 0) {
+            throw ErrorCode.INVALID_RESULT.exception();
+        }
+        // ln(base) needs extra digits since exp amplifies its absolute error
+        int extra = GUARD_DIGITS + Math.max(0, magnitude(exponent) + digitCount(magnitude(base)));
+        MathContext wc = working(mc, extra);
+        return exp(exponent.multiply(lnPositive(base, wc), wc), mc);
+    }
+
+    // ======== EXPONENTIALS AND LOGARITHMS ========
+    /**
+     * Calculate e raised to a power
+     * @param value The exponent
+     * @param mc The precision
+     * @return e^value rounded to mc
+     * @throws OverflowException If the result is too large to represent
+     */
+    public static BigDecimal exp(BigDecimal value, MathContext mc) throws OverflowException {
+        checkPrecision(mc);
+        if (value.signum() == 0) {
+            return BigDecimal.ONE;
+        }
+        if (value.abs().compareTo(EXP_LIMIT) > 0) {
+            if (value.signum() < 0) {
+                return BigDecimal.ZERO;
+            }
+            throw (OverflowException) ErrorCode.OVERFLOW.exception();
+        }
+        return expReduced(value, working(mc, GUARD_DIGITS)).round(mc);
+    }
+
+    /**
+     * exp(x) = 10^n × exp(r)^(2^k) with r = (x - n ln 10) / 2^k, so the Taylor
+     * series only ever sees a small argument
+     */
+    private static BigDecimal expReduced(BigDecimal x, MathContext wc) {
+        int n = 0;
+        BigDecimal r = x;
+        if (x.abs().compareTo(EXP_REDUCE_THRESHOLD) > 0) {
+            MathContext reduce = working(wc, digitCount(magnitude(x)) + magnitude(x) + 1);
+            BigDecimal ln10 = ln10(reduce);
+            n = x.divide(ln10, MathContext.DECIMAL64).setScale(0, RoundingMode.HALF_EVEN).intValueExact();
+            r = x.subtract(ln10.multiply(BigDecimal.valueOf(n)), reduce);
+        }
+
+        // Each squaring doubles the relative error; carry one extra bit per halving
+        int k = (int) Math.sqrt(wc.getPrecision() * LOG2_10) + Math.max(0, Math.getExponent(r.doubleValue()) + 1);
+        MathContext series = working(wc, (k * 3 + 9) / 10);
+        BigDecimal y = r.divide(TWO.pow(k), series);
+
+        BigDecimal sum = BigDecimal.ONE;
+        BigDecimal term = BigDecimal.ONE;
+        for (int i = 1;; i++) {
+            checkInterrupted();
+            term = term.multiply(y, series).divide(BigDecimal.valueOf(i), series);
+            if (term.signum() == 0 || magnitude(term) < -series.getPrecision() - 1) {
+                break;
+            }
+            sum = sum.add(term, series);
+        }
+        for (int i = 0; i < k; i++) {
+            sum = sum.multiply(sum, series);
+        }
+        return sum.scaleByPowerOfTen(n);
+    }
+
+    /**
+     * Calculate natural logarithm (base e)
+     * @param value The value (must be positive)
+     * @param mc The precision
+     * @return ln(value) rounded to mc
+     * @throws InvalidExpressionException If value is not positive
+     */
+    public static BigDecimal ln(BigDecimal value, MathContext mc) throws InvalidExpressionException {
+        checkPrecision(mc);
+        if (value.signum() <= 0) {
+            throw (InvalidExpressionException) ErrorCode.LN_DOMAIN.exception();
+        }
+        return lnPositive(value, working(mc, GUARD_DIGITS)).round(mc);
+    }
+
+    /**
+     * Calculate base-10 logarithm. Exact powers of ten give exact integers
+     * @param value The value (must be positive)
+     * @param mc The precision
+     * @return log10(value) rounded to mc
+     * @throws InvalidExpressionException If value is not positive
+     */
+    public static BigDecimal log10(BigDecimal value, MathContext mc) throws InvalidExpressionException {
+        checkPrecision(mc);
+        if (value.signum() <= 0) {
+            throw (InvalidExpressionException) ErrorCode.LOG_DOMAIN.exception();
+        }
+        BigDecimal stripped = value.stripTrailingZeros();
+        if (stripped.unscaledValue().equals(java.math.BigInteger.ONE)) {
+            return BigDecimal.valueOf(-stripped.scale());
+        }
+        MathContext wc = working(mc, GUARD_DIGITS);
+        return lnPositive(value, wc).divide(ln10(wc), wc).round(mc);
+    }
+
+    /**
+     * ln(x) = e ln 10 + ln(m) with m in [√10 / 10, √10), so the two parts
+     * never cancel
+     */
+    private static BigDecimal lnPositive(BigDecimal x, MathContext wc) {
+        if (x.compareTo(BigDecimal.ONE) == 0) {
+            return BigDecimal.ZERO;
+        }
+        int e = magnitude(x);
+        BigDecimal m = x.movePointLeft(e);
+        if (m.compareTo(SQRT_10) >= 0) {
+            e++;
+            m = m.movePointLeft(1);
+        }
+        MathContext inner = working(wc, digitCount(e));
+        BigDecimal result = m.subtract(BigDecimal.ONE).abs().compareTo(LN_SERIES_RADIUS) < 0
+                ? lnSeries(m, inner)
+                : lnNewton(m, inner);
+        if (e != 0) {
+            result = result.add(ln10(inner).multiply(BigDecimal.valueOf(e)), inner);
+        }
+        return result;
+    }
+
+    /**
+     * Halley's iteration y += 2 (m - e^y) / (m + e^y) from a double seed; the
+     * correct digits triple per step
+     */
+    private static BigDecimal lnNewton(BigDecimal m, MathContext wc) {
+        BigDecimal y = new BigDecimal(Math.log(m.doubleValue()));
+        int target = wc.getPrecision();
+        int digits = SEED_DIGITS;
+        do {
+            digits = Math.min(3 * digits, target);
+            MathContext step = new MathContext(digits + 3, RoundingMode.HALF_EVEN);
+            BigDecimal ey = expReduced(y, step);
+            y = y.add(TWO.multiply(m.subtract(ey)).divide(m.add(ey), step), step);
+        } while (digits < target);
+        return y;
+    }
+
+    /**
+     * ln(m) = 2 atanh((m - 1) / (m + 1)) for m close to 1, keeping full
+     * relative precision for tiny logarithms
+     */
+    private static BigDecimal lnSeries(BigDecimal m, MathContext wc) {
+        BigDecimal z = m.subtract(BigDecimal.ONE).divide(m.add(BigDecimal.ONE), wc);
+        BigDecimal z2 = z.multiply(z, wc);
+        BigDecimal power = z;
+        BigDecimal sum = z;
+        int limit = magnitude(z) - wc.getPrecision() - 1;
+        for (int i = 3;; i += 2) {
+            checkInterrupted();
+            power = power.multiply(z2, wc);
+            BigDecimal term = power.divide(BigDecimal.valueOf(i), wc);
+            if (term.signum() == 0 || magnitude(term) < limit) {
+                break;
+            }
+            sum = sum.add(term, wc);
+        }
+        return sum.multiply(TWO);
+    }
+
+    // ======== TRIGONOMETRY ========
+    /**
+     * Calculate sine of an angle. Degree and gradian angles are reduced
+     * exactly, so multiples of a right angle give exact results
+     * @param angle The angle
+     * @param unit The unit of the angle
+     * @param mc The precision
+     * @return The sine rounded to mc
+     */
+    public static BigDecimal sin(BigDecimal angle, AngleUnit unit, MathContext mc) {
+        checkPrecision(mc);
+        return sinQuadrant(angle, unit, mc, 0);
+    }
+
+    /**
+     * Calculate cosine of an angle
+     * @param angle The angle
+     * @param unit The unit of the angle
+     * @param mc The precision
+     * @return The cosine rounded to mc
+     */
+    public static BigDecimal cos(BigDecimal angle, AngleUnit unit, MathContext mc) {
+        checkPrecision(mc);
+        // cos(x) = sin(x + 90°)
+        return sinQuadrant(angle, unit, mc, 1);
+    }
+
+    /**
+     * Calculate tangent of an angle
+     * @param angle The angle
+     * @param unit The unit of the angle
+     * @param mc The precision
+     * @return The tangent rounded to mc
+     * @throws InvalidExpressionException If the tangent is undefined
+     */
+    public static BigDecimal tan(BigDecimal angle, AngleUnit unit, MathContext mc) throws InvalidExpressionException {
+        checkPrecision(mc);
+        MathContext wc = working(mc, GUARD_DIGITS);
+        Reduction reduced = reduce(angle, unit, wc);
+        BigDecimal s = sinKernel(reduced.radians, wc);
+        BigDecimal c = cosFromSin(s, wc);
+        if ((reduced.quadrant & 1) == 0) {
+            return s.divide(c, wc).round(mc);
+        }
+        // tan(x + 90°) = -cos(x) / sin(x)
+        if (s.signum() == 0) {
+            throw (InvalidExpressionException) ErrorCode.TANGENT_UNDEFINED.exception();
+        }
+        return c.negate().divide(s, wc).round(mc);
+    }
+
+    private static BigDecimal sinQuadrant(BigDecimal angle, AngleUnit unit, MathContext mc, int shift) {
+        MathContext wc = working(mc, GUARD_DIGITS);
+        Reduction reduced = reduce(angle, unit, wc);
+        int quadrant = reduced.quadrant + shift;
+        BigDecimal s = sinKernel(reduced.radians, wc);
+        BigDecimal result = (quadrant & 1) == 0 ? s : cosFromSin(s, wc);
+        return ((quadrant & 2) == 0 ? result : result.negate()).round(mc);
+    }
+
+    /**
+     * An angle split into whole right angles and a remainder in [-π/4, π/4]
+     */
+    private static final class Reduction {
+
+        final int quadrant;
+        final BigDecimal radians;
+
+        Reduction(int quadrant, BigDecimal radians) {
+            this.quadrant = quadrant;
+            this.radians = radians;
+        }
+    }
+
+    private static Reduction reduce(BigDecimal angle, AngleUnit unit, MathContext wc) {
+        if (unit.isExact()) {
+            BigDecimal quarter = unit == AngleUnit.DEGREES ? NINETY : HUNDRED;
+            // remainder and the subtraction below are exact in BigDecimal
+            BigDecimal r = angle.remainder(quarter.multiply(FOUR));
+            BigDecimal q = r.divide(quarter, 0, RoundingMode.HALF_EVEN);
+            BigDecimal rest = r.subtract(q.multiply(quarter));
+            BigDecimal radians = rest.signum() == 0 ? BigDecimal.ZERO
+                    : rest.multiply(pi(wc), wc).divide(quarter.multiply(TWO), wc);
+            return new Reduction(q.intValue() & 3, radians);
+        }
+        // Radians: π needs as many extra digits as the angle has integer digits
+        MathContext reduce = working(wc, Math.max(0, magnitude(angle) + 1));
+        BigDecimal halfPi = pi(reduce).multiply(HALF);
+        BigDecimal q = angle.divide(halfPi, reduce).setScale(0, RoundingMode.HALF_EVEN);
+        BigDecimal rest = angle.subtract(q.multiply(halfPi), reduce);
+        return new Reduction(q.remainder(FOUR).intValue() & 3, rest.round(wc));
+    }
+
+    /**
+     * sin(x) for |x| <= π/4: sum the series at x / 3^k, then apply
+     * sin(3y) = 3 sin(y) - 4 sin³(y) k times. The identity keeps relative
+     * error constant, unlike angle doubling for cosine
+     */
+    private static BigDecimal sinKernel(BigDecimal x, MathContext wc) {
+        if (x.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        int k = (int) Math.sqrt(wc.getPrecision()) / 2 + 1;
+        MathContext series = working(wc, 2);
+        BigDecimal y = x.divide(THREE.pow(k), series);
+        BigDecimal y2 = y.multiply(y, series);
+        BigDecimal term = y;
+        BigDecimal sum = y;
+        int limit = magnitude(y) - series.getPrecision() - 1;
+        for (int i = 2;; i += 2) {
+            checkInterrupted();
+            term = term.multiply(y2, series).divide(BigDecimal.valueOf((long) i * (i + 1)), series).negate();
+            if (term.signum() == 0 || magnitude(term) < limit) {
+                break;
+            }
+            sum = sum.add(term, series);
+        }
+        for (int i = 0; i < k; i++) {
+            sum = sum.multiply(THREE.subtract(FOUR.multiply(sum.multiply(sum, series))), series);
+        }
+        return sum;
+    }
+
+    /**
+     * cos(x) = √(1 - sin²(x)), well conditioned for |x| <= π/4
+     */
+    private static BigDecimal cosFromSin(BigDecimal s, MathContext wc) {
+        if (s.signum() == 0) {
+            return BigDecimal.ONE;
+        }
+        return sqrtPositive(BigDecimal.ONE.subtract(s.multiply(s, wc)), wc);
+    }
+
+    /**
+     * Calculate arc sine
+     * @param value The value (must be between -1 and 1)
+     * @param unit The unit of the result
+     * @param mc The precision
+     * @return The angle rounded to mc
+     * @throws InvalidExpressionException If value is outside [-1, 1]
+     */
+    public static BigDecimal asin(BigDecimal value, AngleUnit unit, MathContext mc) throws InvalidExpressionException {
+        checkPrecision(mc);
+        int cmp = value.abs().compareTo(BigDecimal.ONE);
+        if (cmp > 0) {
+            throw (InvalidExpressionException) ErrorCode.ASIN_DOMAIN.exception();
+        }
+        MathContext wc = working(mc, GUARD_DIGITS);
+        if (cmp == 0) {
+            BigDecimal quarter = quarterTurn(unit, wc);
+            return (value.signum() > 0 ? quarter : quarter.negate()).round(mc);
+        }
+        // asin(x) = atan(x / √(1 - x²)); 1 - x² is formed exactly
+        BigDecimal cosine = sqrtPositive(BigDecimal.ONE.subtract(value.multiply(value)), wc);
+        return fromRadians(atanRadians(value.divide(cosine, wc), wc), unit, wc).round(mc);
+    }
+
+    /**
+     * Calculate arc cosine
+     * @param value The value (must be between -1 and 1)
+     * @param unit The unit of the result
+     * @param mc The precision
+     * @return The angle rounded to mc
+     * @throws InvalidExpressionException If value is outside [-1, 1]
+     */
+    public static BigDecimal acos(BigDecimal value, AngleUnit unit, MathContext mc) throws InvalidExpressionException {
+        checkPrecision(mc);
+        if (value.abs().compareTo(BigDecimal.ONE) > 0) {
+            throw (InvalidExpressionException) ErrorCode.ACOS_DOMAIN.exception();
+        }
+        MathContext wc = working(mc, GUARD_DIGITS);
+        // acos(x) = 90° - asin(x)
+        return quarterTurn(unit, wc).subtract(asin(value, unit, wc), wc).round(mc);
+    }
+
+    /**
+     * Calculate arc tangent
+     * @param value The value
+     * @param unit The unit of the result
+     * @param mc The precision
+     * @return The angle rounded to mc
+     */
+    public static BigDecimal atan(BigDecimal value, AngleUnit unit, MathContext mc) {
+        checkPrecision(mc);
+        MathContext wc = working(mc, GUARD_DIGITS);
+        return fromRadians(atanRadians(value, wc), unit, wc).round(mc);
+    }
+
+    /**
+     * atan(x) with |x| > 1 folded to π/2 - atan(1 / x), then halved with
+     * atan(x) = 2 atan(x / (1 + √(1 + x²))) before the series
+     */
+    private static BigDecimal atanRadians(BigDecimal x, MathContext wc) {
+        if (x.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        boolean invert = x.abs().compareTo(BigDecimal.ONE) > 0;
+        if (invert) {
+            x = BigDecimal.ONE.divide(x, wc);
+        }
+        int halvings = (int) Math.sqrt(wc.getPrecision()) / 2 + 1;
+        for (int i = 0; i < halvings; i++) {
+            checkInterrupted();
+            BigDecimal root = sqrtPositive(BigDecimal.ONE.add(x.multiply(x, wc)), wc);
+            x = x.divide(BigDecimal.ONE.add(root), wc);
+        }
+        BigDecimal x2 = x.multiply(x, wc);
+        BigDecimal power = x;
+        BigDecimal sum = x;
+        int limit = magnitude(x) - wc.getPrecision() - 1;
+        for (int i = 3;; i += 2) {
+            checkInterrupted();
+            power = power.multiply(x2, wc).negate();
+            BigDecimal term = power.divide(BigDecimal.valueOf(i), wc);
+            if (term.signum() == 0 || magnitude(term) < limit) {
+                break;
+            }
+            sum = sum.add(term, wc);
+        }
+        BigDecimal result = sum.multiply(TWO.pow(halvings));
+        if (invert) {
+            BigDecimal halfPi = pi(wc).multiply(HALF);
+            result = (result.signum() > 0 ? halfPi : halfPi.negate()).subtract(result, wc);
+        }
+        return result;
+    }
+
+    private static BigDecimal quarterTurn(AngleUnit unit, MathContext wc) {
+        switch (unit) {
+            case DEGREES:
+                return NINETY;
+            case GRADIANS:
+                return HUNDRED;
+            default:
+                return pi(wc).multiply(HALF);
+        }
+    }
+
+    private static BigDecimal fromRadians(BigDecimal radians, AngleUnit unit, MathContext wc) {
+        if (!unit.isExact()) {
+            return radians;
+        }
+        // quarter turns per radian: quarter / (π/2)
+        return radians.multiply(quarterTurn(unit, wc).multiply(TWO)).divide(pi(wc), wc);
+    }
+
+    // ======== OTHER FUNCTIONS ========
+    /**
+     * Calculate the factorial of a whole number, rounded to the precision.
+     * Non-integers fall back to the double gamma function
+     * @param value The number to calculate factorial for
+     * @param mc The precision
+     * @return value! rounded to mc
+     * @throws CalculatorException If value is a negative integer or larger
+     * than {@link #MAX_FACTORIAL}
+     */
+    public static BigDecimal factorial(BigDecimal value, MathContext mc) throws CalculatorException {
+        checkPrecision(mc);
+        if (!isInteger(value)) {
+            double result = MathUtils.factorialOrError(value.doubleValue());
+            ErrorCode code = MathUtils.errorCode(result);
+            if (code != null) {
+                throw code.exception();
+            }
+            return new BigDecimal(result, mc);
+        }
+        if (value.signum() < 0) {
+            throw (InvalidExpressionException) ErrorCode.FACTORIAL_NEGATIVE.exception();
+        }
+        if (value.compareTo(BigDecimal.valueOf(MAX_FACTORIAL)) > 0) {
+            throw (OverflowException) ErrorCode.FACTORIAL_OVERFLOW.exception();
+        }
+        int n = value.intValueExact();
+        // n roundings, each within half an ulp of the working precision
+        MathContext wc = working(mc, digitCount(n) + 1);
+        BigDecimal result = BigDecimal.ONE;
+        for (int i = 2; i <= n; i++) {
+            if ((i & 0xff) == 0) {
+                checkInterrupted();
+            }
+            result = result.multiply(BigDecimal.valueOf(i), wc);
+        }
+        return result.round(mc);
+    }
+
+    /**
+     * Check if a value is a whole number
+     * @param value The value
+     * @return True if value has no fractional part
+     */
+    public static boolean isInteger(BigDecimal value) {
+        return value.signum() == 0 || value.scale() <= 0 || value.stripTrailingZeros().scale() <= 0;
+    }
+
+    // ======== HELPERS ========
+    /**
+     * Abandon the computation if its thread has been interrupted
+     */
+    private static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Computation interrupted");
+        }
+    }
+
+    /**
+     * floor(log10(|x|)) for non-zero x
+     */
+    private static int magnitude(BigDecimal x) {
+        return x.precision() - x.scale() - 1;
+    }
+
+    private static int digitCount(int n) {
+        return n == 0 ? 1 : (int) Math.log10(Math.abs((double) n)) + 1;
+    }
+
+    private static MathContext working(MathContext mc, int extraDigits) {
+        return new MathContext(mc.getPrecision() + extraDigits, RoundingMode.HALF_EVEN);
+    }
+
+    private static void checkPrecision(MathContext mc) {
+        if (mc.getPrecision() == 0) {
+            throw new IllegalArgumentException("Transcendental functions need a limited precision");
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package scicalculator1.util;
+
+/**
+ * Element-wise loops behind {@link VectorMath}. Implementations must produce
+ * bit-identical results; the error bitmap arrives cleared and each method
+ * sets bit i when element i became an error NaN
+ */
+interface BulkKernels {
+
+    String getName();
+
+    boolean isVectorized();
+
+    void add(double[] a, double[] b, double[] out, int n);
+
+    void multiply(double[] a, double[] b, double[] out, int n);
+
+    int divide(double[] a, double[] b, double[] out, int n, long[] errors);
+
+    int sqrt(double[] a, double[] out, int n, long[] errors);
+
+    int power(double[] base, double[] exponent, double[] out, int n, long[] errors);
+
+    /**
+     * sin(angle + quadrants × 90°); quadrants = 1 gives cosine
+     */
+    void sin(double[] angles, AngleUnit unit, int quadrants, double[] out, int n);
+}
@@ -0,0 +1,292 @@
+package scicalculator1.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Allocation-free formatter for calculator display text. Produces the same
+ * text as the DecimalFormat patterns used historically ("0.##########" and
+ * "0.##########E0", HALF_EVEN rounding): up to 10 decimal places truncated to
+ * 15 characters, scientific notation with 11 significant digits at or above
+ * 1E10 and below 1E-6, "∞"/"-∞" for infinities and "Error" for NaN
+ *
+ * Digits come from {@link ShortestDecimal} and are rounded in integer
+ * arithmetic. A formatter keeps scratch state, so each thread should use its
+ * own instance
+ */
+public final class DisplayFormatter {
+
+    /** Longest text a single call can produce, e.g. "-1.2345678901E-308" */
+    public static final int MAX_LENGTH = 24;
+
+    private static final int MAX_DECIMAL_PLACES = 10;
+    private static final int SCIENTIFIC_DIGITS = MAX_DECIMAL_PLACES + 1;
+
+    private static final long[] POW10 = new long[19];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private final ShortestDecimal decimal = new ShortestDecimal();
+    private final char[] digitBuffer = new char[20];
+    private final char[] scratch = new char[MAX_LENGTH];
+
+    // Rounded significand and its power of ten, set by round()
+    private long roundedDigits;
+    private int roundedExponent;
+
+    /**
+     * Format a value into a character array
+     *
+     * @param value The number to format
+     * @param buf The destination, with at least {@link #MAX_LENGTH} chars free
+     * from offset
+     * @param offset Where to start writing
+     * @return The number of characters written
+     */
+    public int format(double value, char[] buf, int offset) {
+        // Handle special cases
+        if (Double.isNaN(value)) {
+            return put(buf, offset, "Error");
+        }
+        if (Double.isInfinite(value)) {
+            return put(buf, offset, value > 0 ? "∞" : "-∞");
+        }
+
+        int pos = offset;
+        if (Double.doubleToRawLongBits(value) < 0) {
+            buf[pos++] = '-';
+        }
+        if (value == 0.0) {
+            buf[pos++] = '0';
+            return pos - offset;
+        }
+
+        if (FormatUtils.shouldUseScientific(value)) {
+            return formatScientific(value, buf, offset);
+        }
+
+        double abs = Math.abs(value);
+        decimal.set(abs);
+        int digitCount = digitCount(decimal.digits);
+
+        // Keep every digit down to the 10th decimal place
+        round(abs, digitCount, digitCount + decimal.exponent + MAX_DECIMAL_PLACES);
+        pos = writePlain(buf, pos);
+        return Math.min(pos - offset, FormatUtils.getMaxDisplayLength());
+    }
+
+    /**
+     * Format a value in scientific notation regardless of its magnitude, e.g.
+     * "1.5E-7" or "0E0"
+     *
+     * @param value The number to format
+     * @param buf The destination, with at least {@link #MAX_LENGTH} chars free
+     * from offset
+     * @param offset Where to start writing
+     * @return The number of characters written
+     */
+    public int formatScientific(double value, char[] buf, int offset) {
+        if (Double.isNaN(value)) {
+            return put(buf, offset, "NaN");
+        }
+        if (Double.isInfinite(value)) {
+            return put(buf, offset, value > 0 ? "∞" : "-∞");
+        }
+
+        int pos = offset;
+        if (Double.doubleToRawLongBits(value) < 0) {
+            buf[pos++] = '-';
+        }
+        if (value == 0.0) {
+            return put(buf, pos, "0E0") + pos - offset;
+        }
+
+        double abs = Math.abs(value);
+        decimal.set(abs);
+        round(abs, digitCount(decimal.digits), SCIENTIFIC_DIGITS);
+        pos = writeScientific(buf, pos);
+        return pos - offset;
+    }
+
+    /**
+     * Format a value in scientific notation as a new string
+     *
+     * @param value The number to format
+     * @return The scientific notation string
+     */
+    public String formatScientific(double value) {
+        int length = formatScientific(value, scratch, 0);
+        return new String(scratch, 0, length);
+    }
+
+    /**
+     * Format a value and append it to a builder
+     *
+     * @param value The number to format
+     * @param out The destination builder
+     * @return The builder
+     */
+    public StringBuilder format(double value, StringBuilder out) {
+        int length = format(value, scratch, 0);
+        return out.append(scratch, 0, length);
+    }
+
+    /**
+     * Format a value as a new string
+     *
+     * @param value The number to format
+     * @return The formatted display string
+     */
+    public String format(double value) {
+        int length = format(value, scratch, 0);
+        return new String(scratch, 0, length);
+    }
+
+    /**
+     * Round the shortest digits to at most keep significant digits with
+     * HALF_EVEN, leaving the result in roundedDigits/roundedExponent with
+     * trailing zeros removed
+     */
+    private void round(double abs, int digitCount, int keep) {
+        long digits = decimal.digits;
+        int exponent = decimal.exponent;
+        int drop = digitCount - keep;
+
+        if (drop > 0) {
+            if (drop > 18) {
+                // Everything rounds away
+                digits = 0;
+            } else {
+                long scale = POW10[drop];
+                long quotient = digits / scale;
+                long remainder = digits - quotient * scale;
+                long half = scale >>> 1;
+                if (remainder > half || (remainder == half && tieRoundsUp(abs, quotient))) {
+                    quotient++;
+                }
+                digits = quotient;
+            }
+            exponent += drop;
+        }
+
+        // Strip trailing zeros (also absorbs a carry such as 999 -> 1000)
+        while (digits != 0 && digits % 10 == 0) {
+            digits /= 10;
+            exponent++;
+        }
+        roundedDigits = digits;
+        roundedExponent = exponent;
+    }
+
+    /**
+     * Break a tie in the shortest digits the way DecimalFormat does: by the
+     * exact binary value, falling back to round-half-even when the digits are
+     * exact. Ties are rare, so the BigDecimal comparison stays off the hot path
+     */
+    private boolean tieRoundsUp(double abs, long quotient) {
+        BigDecimal shortest = new BigDecimal(BigInteger.valueOf(decimal.digits), -decimal.exponent);
+        int cmp = new BigDecimal(abs).compareTo(shortest);
+        if (cmp != 0) {
+            return cmp > 0;
+        }
+        // DecimalFormat does not flag whole numbers below 2^63 as exact and so
+        // rounds their ties up; keep that so existing displays do not change
+        if (abs < 0x1p63 && abs == Math.rint(abs)) {
+            return true;
+        }
+        return (quotient & 1) != 0;
+    }
+
+    private int writePlain(char[] buf, int pos) {
+        long digits = roundedDigits;
+        int exponent = roundedExponent;
+        if (digits == 0) {
+            buf[pos++] = '0';
+            return pos;
+        }
+
+        int length = writeDigits(digits);
+        if (exponent >= 0) {
+            // Integer: digits followed by zeros
+            System.arraycopy(digitBuffer, 0, buf, pos, length);
+            pos += length;
+            for (int i = 0; i < exponent; i++) {
+                buf[pos++] = '0';
+            }
+            return pos;
+        }
+
+        int integerDigits = length + exponent;
+        if (integerDigits > 0) {
+            System.arraycopy(digitBuffer, 0, buf, pos, integerDigits);
+            pos += integerDigits;
+            buf[pos++] = '.';
+            System.arraycopy(digitBuffer, integerDigits, buf, pos, length - integerDigits);
+            pos += length - integerDigits;
+        } else {
+            buf[pos++] = '0';
+            buf[pos++] = '.';
+            for (int i = integerDigits; i < 0; i++) {
+                buf[pos++] = '0';
+            }
+            System.arraycopy(digitBuffer, 0, buf, pos, length);
+            pos += length;
+        }
+        return pos;
+    }
+
+    private int writeScientific(char[] buf, int pos) {
+        int length = writeDigits(roundedDigits);
+        int exponent = roundedExponent + length - 1;
+
+        buf[pos++] = digitBuffer[0];
+        if (length > 1) {
+            buf[pos++] = '.';
+            System.arraycopy(digitBuffer, 1, buf, pos, length - 1);
+            pos += length - 1;
+        }
+        buf[pos++] = 'E';
+        if (exponent < 0) {
+            buf[pos++] = '-';
+            exponent = -exponent;
+        }
+        if (exponent >= 100) {
+            buf[pos++] = (char) ('0' + exponent / 100);
+        }
+        if (exponent >= 10) {
+            buf[pos++] = (char) ('0' + exponent / 10 % 10);
+        }
+        buf[pos++] = (char) ('0' + exponent % 10);
+        return pos;
+    }
+
+    /**
+     * Write the decimal digits of a positive value into digitBuffer
+     */
+    private int writeDigits(long value) {
+        int length = digitCount(value);
+        for (int i = length - 1; i >= 0; i--) {
+            digitBuffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return length;
+    }
+
+    private static int digitCount(long value) {
+        int count = 1;
+        while (count < POW10.length && value >= POW10[count]) {
+            count++;
+        }
+        return count;
+    }
+
+    private static int put(char[] buf, int offset, String text) {
+        text.getChars(0, text.length(), buf, offset);
+        return text.length();
+    }
+}
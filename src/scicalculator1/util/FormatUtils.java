@@ -1,8 +1,6 @@
 package scicalculator1.util;
 
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
-import java.util.Locale;
+import java.math.BigDecimal;
 
 /**
  * Utility class for number formatting and display
@@ -15,6 +13,12 @@ public class FormatUtils {
 
     private static final int MAX_DISPLAY_LENGTH = 15;
     private static final int MAX_DECIMAL_PLACES = 10;
+    // Exact values outside 10^-20 .. 10^100 are shown in scientific notation
+    private static final int MIN_EXACT_EXPONENT = -20;
+    private static final int MAX_EXACT_EXPONENT = 100;
+
+    // Formatters keep scratch buffers, so each thread gets its own
+    private static final ThreadLocal<DisplayFormatter> FORMATTER = ThreadLocal.withInitial(DisplayFormatter::new);
 
     /**
      * Private constructor to prevent instantiation
@@ -30,28 +34,18 @@ public class FormatUtils {
      * @return The formatted display string
      */
     public static String formatNumber(double value) {
-        // Handle special cases
-        if (Double.isNaN(value)) {
-            return "Error";
-        }
-        if (Double.isInfinite(value)) {
-            return value > 0 ? "∞" : "-∞";
-        }
-
-        // Use scientific notation for very large or very small numbers
-        if (shouldUseScientific(value)) {
-            return formatScientific(value);
-        }
-
-        // Format with maximum decimal places
-        DecimalFormat decimalFormat = new DecimalFormat("0.##########", DecimalFormatSymbols.getInstance(Locale.US));
-        String formatted = decimalFormat.format(value);
-
-        // Remove trailing zeros
-        formatted = removeTrailingZeros(formatted);
+        return FORMATTER.get().format(value);
+    }
 
-        // Truncate if too long
-        return truncateDisplay(formatted);
+    /**
+     * Format a number for display into a caller-supplied builder without
+     * intermediate strings
+     * @param value The number to format
+     * @param out The builder to append to
+     * @return The builder
+     */
+    public static StringBuilder formatNumber(double value, StringBuilder out) {
+        return FORMATTER.get().format(value, out);
     }
 
     /**
@@ -76,6 +70,41 @@ public class FormatUtils {
         return Double.parseDouble(trimmed);
     }
 
+    /**
+     * Format an arbitrary-precision value without truncating its digits.
+     * Trailing zeros are dropped and very large or small magnitudes use
+     * scientific notation
+     * @param value The value to format
+     * @return The display string
+     */
+    public static String formatExact(BigDecimal value) {
+        BigDecimal stripped = value.stripTrailingZeros();
+        int exponent = stripped.precision() - stripped.scale() - 1;
+        if (stripped.signum() != 0 && (exponent >= MAX_EXACT_EXPONENT || exponent < MIN_EXACT_EXPONENT)) {
+            return stripped.toString();
+        }
+        return stripped.toPlainString();
+    }
+
+    /**
+     * Parse a display string to an exact decimal value
+     * @param displayText The text from the display
+     * @return The parsed number, exactly as typed
+     * @throws NumberFormatException If the text cannot be parsed
+     */
+    public static BigDecimal parseExact(String displayText) throws NumberFormatException {
+        if (displayText == null || displayText.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+
+        String trimmed = displayText.trim();
+        if (trimmed.equalsIgnoreCase("Error") || trimmed.equals("∞") || trimmed.equals("-∞")) {
+            return BigDecimal.ZERO;
+        }
+
+        return new BigDecimal(trimmed);
+    }
+
     /**
      * Check if a string represents a valid number
      * @param text The text to validate
@@ -122,14 +151,17 @@ public class FormatUtils {
         }
 
         // Remove trailing zeros
-        String result = numberString.replaceAll("0+$", "");
+        int end = numberString.length();
+        while (numberString.charAt(end - 1) == '0') {
+            end--;
+        }
 
         // Remove trailing decimal point if all decimals were zeros
-        if (result.endsWith(".")) {
-            result = result.substring(0, result.length() - 1);
+        if (numberString.charAt(end - 1) == '.') {
+            end--;
         }
 
-        return result;
+        return numberString.substring(0, end);
     }
 
     /**
@@ -165,8 +197,7 @@ public class FormatUtils {
      * @return The scientific notation string
      */
     public static String formatScientific(double value) {
-        DecimalFormat scientificFormat = new DecimalFormat("0.##########E0", DecimalFormatSymbols.getInstance(Locale.US));
-        return scientificFormat.format(value);
+        return FORMATTER.get().formatScientific(value);
     }
 
     /**
@@ -6,10 +6,75 @@ import scicalculator1.exception.*;
  * Helper class for mathematical utility functions
  * Provides additional mathematical operations and validations
  *
+ * Checked operations come in two forms: the classic one throws a
+ * CalculatorException, and an "OrError" variant returns a NaN whose payload
+ * carries the {@link ErrorCode}. The second form never throws or allocates and
+ * is the one the engine uses; decode results with {@link #errorCode(double)}
+ *
  * @author Abdelrahman
  */
 public class MathUtils {
 
+    /** Largest n whose factorial fits in a double */
+    public static final int MAX_FACTORIAL = 170;
+
+    // Quiet NaN; the low bits hold ErrorCode.ordinal() + 1
+    private static final long ERROR_NAN_BITS = 0x7ff8000000000000L;
+    private static final long ERROR_PAYLOAD_MASK = 0xffL;
+    private static final ErrorCode[] ERROR_CODES = ErrorCode.values();
+
+    // n! for n in [0, 170], each entry the same sequential product the loop gave
+    private static final double[] FACTORIALS = new double[MAX_FACTORIAL + 1];
+
+    // Lanczos approximation with g = 607/128 and 15 terms (P. Godfrey)
+    private static final double LANCZOS_G = 607.0 / 128.0;
+    private static final double[] LANCZOS = {
+        0.99999999999999709182,
+        57.156235665862923517,
+        -59.597960355475491248,
+        14.136097974741747174,
+        -0.49191381609762019978,
+        .33994649984811888699e-4,
+        .46523628927048575665e-4,
+        -.98374475304879564677e-4,
+        .15808870322491248884e-3,
+        -.21026444172410488319e-3,
+        .21743961811521264320e-3,
+        -.16431810653676389022e-3,
+        .84418223983852743293e-4,
+        -.26190838401581408670e-4,
+        .36899182659531622704e-5
+    };
+    private static final double HALF_LOG_2_PI = 0.5 * Math.log(2.0 * Math.PI);
+    private static final double SQRT_2_PI = Math.sqrt(2.0 * Math.PI);
+    private static final double LOG_PI = Math.log(Math.PI);
+    static final double ROUNDING_SHIFT = 0x1.8p52;
+
+    // Minimax coefficients of the fdlibm sine and cosine kernels, shared with
+    // the bulk kernels so both paths round identically
+    static final double S1 = -1.66666666666666324348e-01;
+    static final double S2 = 8.33333333332248946124e-03;
+    static final double S3 = -1.98412698298579493134e-04;
+    static final double S4 = 2.75573137070700676789e-06;
+    static final double S5 = -2.50507602534068634195e-08;
+    static final double S6 = 1.58969099521155010221e-10;
+    static final double C1 = 4.16666666666666019037e-02;
+    static final double C2 = -1.38888888888741095749e-03;
+    static final double C3 = 2.48015872894767294178e-05;
+    static final double C4 = -2.75573143513906633035e-07;
+    static final double C5 = 2.08757232129817482790e-09;
+    static final double C6 = -1.13596475577881948265e-11;
+
+    // Largest quadrant count whose multiple of 90 or 100 is still an exact double
+    static final double MAX_DIRECT_QUADRANT = 0x1p45;
+
+    static {
+        FACTORIALS[0] = 1.0;
+        for (int i = 1; i <= MAX_FACTORIAL; i++) {
+            FACTORIALS[i] = FACTORIALS[i - 1] * i;
+        }
+    }
+
     /**
      * Private constructor to prevent instantiation
      */
@@ -17,6 +82,33 @@ public class MathUtils {
         throw new AssertionError("Utility class should not be instantiated");
     }
 
+    // ======== ERROR STATUS ========
+    /**
+     * Encode an error as a NaN result
+     * @param code The error
+     * @return A NaN carrying the error code
+     */
+    public static double error(ErrorCode code) {
+        return Double.longBitsToDouble(ERROR_NAN_BITS | (code.ordinal() + 1));
+    }
+
+    /**
+     * Decode the error carried by a result
+     * @param result A result from an "OrError" operation
+     * @return The error code, INVALID_RESULT for an untagged NaN, OVERFLOW for
+     * infinity, or null if the result is a valid number
+     */
+    public static ErrorCode errorCode(double result) {
+        if (Double.isNaN(result)) {
+            int payload = (int) (Double.doubleToRawLongBits(result) & ERROR_PAYLOAD_MASK);
+            return payload > 0 && payload <= ERROR_CODES.length ? ERROR_CODES[payload - 1] : ErrorCode.INVALID_RESULT;
+        }
+        if (Double.isInfinite(result)) {
+            return ErrorCode.OVERFLOW;
+        }
+        return null;
+    }
+
     /**
      * Calculate factorial of a number
      * @param n The number to calculate factorial for
@@ -26,20 +118,177 @@ public class MathUtils {
      */
     public static double factorial(int n) throws InvalidExpressionException, OverflowException {
         if (n < 0) {
-            throw new InvalidExpressionException("Factorial is not defined for negative numbers");
+            throw (InvalidExpressionException) ErrorCode.FACTORIAL_NEGATIVE.exception();
         }
 
-        if (n > 170) {
-            throw new OverflowException("Factorial result is too large");
+        if (n > MAX_FACTORIAL) {
+            throw (OverflowException) ErrorCode.FACTORIAL_OVERFLOW.exception();
+        }
+
+        return factorialUnchecked(n);
+    }
+
+    /**
+     * Calculate factorial of a number without throwing
+     * @param n The number to calculate factorial for
+     * @return The factorial result, or an error NaN
+     */
+    public static double factorialOrError(int n) {
+        if (n < 0) {
+            return error(ErrorCode.FACTORIAL_NEGATIVE);
+        }
+        if (n > MAX_FACTORIAL) {
+            return error(ErrorCode.FACTORIAL_OVERFLOW);
         }
+        return factorialUnchecked(n);
+    }
+
+    /**
+     * Calculate factorial without range checks
+     * @param n The number to calculate factorial for, in [0, 170]
+     * @return The factorial result
+     */
+    public static double factorialUnchecked(int n) {
+        return FACTORIALS[n];
+    }
 
-        double result = 1.0;
-        for (int i = 2; i <= n; i++) {
-            result *= i;
+    /**
+     * Calculate the factorial of a real number as Γ(x + 1) without throwing.
+     * Whole numbers come from the lookup table, so 5! is exactly 120
+     * @param x The number to calculate factorial for
+     * @return The factorial result, or an error NaN for negative integers and
+     * results too large for a double
+     */
+    public static double factorialOrError(double x) {
+        if (x == Math.rint(x)) {
+            if (x < 0) {
+                return error(ErrorCode.FACTORIAL_NEGATIVE);
+            }
+            return x > MAX_FACTORIAL ? error(ErrorCode.FACTORIAL_OVERFLOW) : FACTORIALS[(int) x];
+        }
+        if (Double.isNaN(x)) {
+            return x;
         }
+        double result = gamma(x + 1.0);
+        return Double.isInfinite(result) ? error(ErrorCode.FACTORIAL_OVERFLOW) : result;
+    }
 
-        checkOverflow(result);
-        return result;
+    // ======== GAMMA FUNCTION ========
+    /**
+     * Calculate the gamma function, Γ(n) = (n - 1)! for positive integers
+     * @param x The argument
+     * @return Γ(x), NaN at the poles 0, -1, -2, ..., or infinity when the
+     * result is too large for a double
+     */
+    public static double gamma(double x) {
+        if (x == Math.rint(x)) {
+            if (x <= 0) {
+                return Double.NaN;
+            }
+            return x <= MAX_FACTORIAL + 1 ? FACTORIALS[(int) x - 1] : Double.POSITIVE_INFINITY;
+        }
+        if (x < 0.5) {
+            // Reflection: Γ(x)Γ(1 - x) = π / sin(πx)
+            return Math.PI / (sinPi(x) * gamma(1.0 - x));
+        }
+        if (x > MAX_FACTORIAL + 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double t = x + LANCZOS_G + 0.5;
+        // Split t^(x + 0.5) in two so it does not overflow before e^-t applies
+        double half = Math.pow(t, 0.5 * (x + 0.5));
+        return SQRT_2_PI * lanczosSum(x) / x * half * Math.exp(-t) * half;
+    }
+
+    /**
+     * Calculate the natural logarithm of the absolute value of the gamma
+     * function. Stays finite far beyond the range of {@link #gamma(double)},
+     * e.g. for ln(n!) = lgamma(n + 1) or ln C(n, k) = lgamma(n + 1) -
+     * lgamma(k + 1) - lgamma(n - k + 1)
+     * @param x The argument
+     * @return ln|Γ(x)|, or infinity at the poles 0, -1, -2, ...
+     */
+    public static double lgamma(double x) {
+        if (Double.isNaN(x)) {
+            return x;
+        }
+        if (x == Math.rint(x)) {
+            if (x <= 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+            if (x <= MAX_FACTORIAL + 1) {
+                return Math.log(FACTORIALS[(int) x - 1]);
+            }
+        }
+        if (x < 0.5) {
+            return LOG_PI - Math.log(Math.abs(sinPi(x))) - lgamma(1.0 - x);
+        }
+        double t = x + LANCZOS_G + 0.5;
+        return (x + 0.5) * Math.log(t) - t + HALF_LOG_2_PI + Math.log(lanczosSum(x) / x);
+    }
+
+    /**
+     * Sum the Lanczos series for x >= 0.5
+     */
+    private static double lanczosSum(double x) {
+        double sum = 0.0;
+        for (int i = LANCZOS.length - 1; i > 0; i--) {
+            sum += LANCZOS[i] / (x + i);
+        }
+        return sum + LANCZOS[0];
+    }
+
+    /**
+     * Calculate sin(πx), reducing x exactly so the reflection formula keeps
+     * full precision for large negative arguments
+     */
+    private static double sinPi(double x) {
+        double r = x % 2.0;
+        if (r > 1.0) {
+            r -= 2.0;
+        } else if (r < -1.0) {
+            r += 2.0;
+        }
+        // sin(πr) = sin(π(1 - r)) for r in (0.5, 1], keeping the argument small
+        if (r > 0.5) {
+            r = 1.0 - r;
+        } else if (r < -0.5) {
+            r = -1.0 - r;
+        }
+        return Math.sin(Math.PI * r);
+    }
+
+    /**
+     * Check if a divisor is treated as zero by division and modulo
+     * @param divisor The denominator
+     * @return True if dividing by this value is an error
+     */
+    public static boolean isZeroDivisor(double divisor) {
+        return divisor == 0.0 || Math.abs(divisor) < 1e-10;
+    }
+
+    /**
+     * Check if the tangent is undefined at an angle (90°, 270°, etc.)
+     * @param degrees The angle in degrees
+     * @return True if the tangent is undefined
+     */
+    public static boolean isTangentUndefined(double degrees) {
+        return isTangentUndefined(degrees, AngleUnit.DEGREES);
+    }
+
+    /**
+     * Check if the tangent is undefined at an angle
+     * @param angle The angle
+     * @param unit The unit of the angle
+     * @return True at odd multiples of a right angle; in radians, where π/2
+     * has no exact double, when the cosine is within 1e-10 of zero
+     */
+    public static boolean isTangentUndefined(double angle, AngleUnit unit) {
+        if (!unit.isExact()) {
+            return Math.abs(Math.cos(angle)) < 1e-10;
+        }
+        double quarter = unit.getQuarterTurn();
+        return Math.abs(angle % (2.0 * quarter)) == quarter;
     }
 
     /**
@@ -50,12 +299,22 @@ public class MathUtils {
      * @throws DivisionByZeroException If divisor is zero
      */
     public static double safeDivide(double dividend, double divisor) throws DivisionByZeroException {
-        if (divisor == 0.0 || Math.abs(divisor) < 1e-10) {
-            throw new DivisionByZeroException("Cannot divide by zero");
+        if (isZeroDivisor(divisor)) {
+            throw (DivisionByZeroException) ErrorCode.DIVISION_BY_ZERO.exception();
         }
         return dividend / divisor;
     }
 
+    /**
+     * Perform division without throwing
+     * @param dividend The numerator
+     * @param divisor The denominator
+     * @return The division result, or an error NaN
+     */
+    public static double divideOrError(double dividend, double divisor) {
+        return isZeroDivisor(divisor) ? error(ErrorCode.DIVISION_BY_ZERO) : dividend / divisor;
+    }
+
     /**
      * Safely perform modulo operation with zero checking
      * @param dividend The numerator
@@ -64,12 +323,22 @@ public class MathUtils {
      * @throws DivisionByZeroException If divisor is zero
      */
     public static double safeModulo(double dividend, double divisor) throws DivisionByZeroException {
-        if (divisor == 0.0 || Math.abs(divisor) < 1e-10) {
-            throw new DivisionByZeroException("Cannot perform modulo with zero");
+        if (isZeroDivisor(divisor)) {
+            throw (DivisionByZeroException) ErrorCode.MODULO_BY_ZERO.exception();
         }
         return dividend % divisor;
     }
 
+    /**
+     * Perform modulo without throwing
+     * @param dividend The numerator
+     * @param divisor The denominator
+     * @return The modulo result, or an error NaN
+     */
+    public static double moduloOrError(double dividend, double divisor) {
+        return isZeroDivisor(divisor) ? error(ErrorCode.MODULO_BY_ZERO) : dividend % divisor;
+    }
+
     /**
      * Check if a number is within valid range (not infinite or NaN)
      * @param value The value to check
@@ -104,7 +373,7 @@ public class MathUtils {
      */
     public static void checkOverflow(double value) throws OverflowException {
         if (Double.isInfinite(value)) {
-            throw new OverflowException("Value is too large");
+            throw (OverflowException) ErrorCode.OVERFLOW.exception();
         }
     }
 
@@ -114,7 +383,18 @@ public class MathUtils {
      * @return The sine value
      */
     public static double sin(double degrees) {
-        return Math.sin(toRadians(degrees));
+        return sin(degrees, AngleUnit.DEGREES);
+    }
+
+    /**
+     * Calculate sine of an angle
+     * @param angle The angle
+     * @param unit The unit of the angle
+     * @return The sine value, exactly 0 or ±1 at multiples of a right angle
+     * in degrees and gradians
+     */
+    public static double sin(double angle, AngleUnit unit) {
+        return unit.isExact() ? sinReduced(angle, unit, 0) : Math.sin(angle);
     }
 
     /**
@@ -123,7 +403,19 @@ public class MathUtils {
      * @return The cosine value
      */
     public static double cos(double degrees) {
-        return Math.cos(toRadians(degrees));
+        return cos(degrees, AngleUnit.DEGREES);
+    }
+
+    /**
+     * Calculate cosine of an angle
+     * @param angle The angle
+     * @param unit The unit of the angle
+     * @return The cosine value, exactly 0 or ±1 at multiples of a right angle
+     * in degrees and gradians
+     */
+    public static double cos(double angle, AngleUnit unit) {
+        // cos(x) = sin(x + 90°): shift by one quadrant
+        return unit.isExact() ? sinReduced(angle, unit, 1) : Math.cos(angle);
     }
 
     /**
@@ -133,11 +425,98 @@ public class MathUtils {
      * @throws InvalidExpressionException If tangent is undefined (at 90°, 270°, etc.)
      */
     public static double tan(double degrees) throws InvalidExpressionException {
-        double radians = toRadians(degrees);
-        if (Math.abs(Math.cos(radians)) < 1e-10) {
-            throw new InvalidExpressionException("Tangent undefined at this angle");
+        double result = tanOrError(degrees, AngleUnit.DEGREES);
+        if (errorCode(result) == ErrorCode.TANGENT_UNDEFINED) {
+            throw (InvalidExpressionException) ErrorCode.TANGENT_UNDEFINED.exception();
+        }
+        return result;
+    }
+
+    /**
+     * Calculate tangent of an angle in degrees without throwing
+     * @param degrees The angle in degrees
+     * @return The tangent value, or an error NaN where it is undefined
+     */
+    public static double tanOrError(double degrees) {
+        return tanOrError(degrees, AngleUnit.DEGREES);
+    }
+
+    /**
+     * Calculate tangent of an angle without throwing
+     * @param angle The angle
+     * @param unit The unit of the angle
+     * @return The tangent value, or an error NaN where it is undefined
+     */
+    public static double tanOrError(double angle, AngleUnit unit) {
+        if (!unit.isExact()) {
+            return isTangentUndefined(angle, unit) ? error(ErrorCode.TANGENT_UNDEFINED) : Math.tan(angle);
+        }
+        double quarter = unit.getQuarterTurn();
+        if (!(Math.abs(angle) <= MAX_DIRECT_QUADRANT * quarter)) {
+            angle %= 4.0 * quarter;
+        }
+        double shifted = angle * unit.getQuartersPerUnit() + ROUNDING_SHIFT;
+        double rem = angle - (shifted - ROUNDING_SHIFT) * quarter;
+        if ((Double.doubleToRawLongBits(shifted) & 1) == 0) {
+            return Math.tan(unit.toRadians(rem)) + 0.0;
+        }
+        // tan(x + 90°) = -1 / tan(x)
+        return rem == 0.0 ? error(ErrorCode.TANGENT_UNDEFINED) : -1.0 / Math.tan(unit.toRadians(rem));
+    }
+
+    /**
+     * Calculate sin(angle + quadrants × 90°) for an exact unit. The angle is
+     * reduced to about [-45°, 45°] in its own unit first; the reduction is
+     * exact, so only the final sin or cos rounds
+     */
+    private static double sinReduced(double angle, AngleUnit unit, int quadrants) {
+        double quarter = unit.getQuarterTurn();
+        if (!(Math.abs(angle) <= MAX_DIRECT_QUADRANT * quarter)) {
+            // Only huge angles pay for the floating-point remainder
+            angle %= 4.0 * quarter;
+        }
+        // Adding 1.5 × 2^52 rounds to the nearest whole quadrant and leaves it
+        // in the low bits
+        double shifted = angle * unit.getQuartersPerUnit() + ROUNDING_SHIFT;
+        int quadrant = (int) Double.doubleToRawLongBits(shifted) + quadrants;
+        double q = shifted - ROUNDING_SHIFT;
+        // Exact: q × quarter is representable and within a factor of two of angle
+        double x = unit.toRadians(angle - q * quarter);
+        // Both kernels are short polynomials; evaluating both and selecting
+        // avoids an unpredictable branch on the quadrant
+        double sine = sinKernel(x);
+        double cosine = cosKernel(x);
+        double result = (quadrant & 1) == 0 ? sine : cosine;
+        // Adding 0.0 turns the -0.0 of e.g. sin(-180°) into 0
+        return ((quadrant & 2) == 0 ? result : -result) + 0.0;
+    }
+
+    /**
+     * Sine on [-π/4, π/4] (fdlibm __kernel_sin, error below 1 ulp)
+     */
+    private static double sinKernel(double x) {
+        double z = x * x;
+        double v = z * x;
+        double r = S2 + z * (S3 + z * (S4 + z * (S5 + z * S6)));
+        return x + v * (S1 + z * r);
+    }
+
+    /**
+     * Cosine on [-π/4, π/4] (fdlibm __kernel_cos, error below 1 ulp)
+     */
+    private static double cosKernel(double x) {
+        double z = x * x;
+        double r = z * (C1 + z * (C2 + z * (C3 + z * (C4 + z * (C5 + z * C6)))));
+        double ax = Math.abs(x);
+        if (ax < 0.3) {
+            return 1.0 - (0.5 * z - z * r);
         }
-        return Math.tan(radians);
+        // qx is x/4 with the low word cleared, or 0.28125 above 0.78125
+        double qx = ax > 0.78125 ? 0.28125
+                : Double.longBitsToDouble((Double.doubleToRawLongBits(ax) - 0x0020000000000000L) & 0xffffffff00000000L);
+        double hz = 0.5 * z - qx;
+        double a = 1.0 - qx;
+        return a - (hz - z * r);
     }
 
     /**
@@ -148,11 +527,30 @@ public class MathUtils {
      */
     public static double asin(double value) throws InvalidExpressionException {
         if (value < -1.0 || value > 1.0) {
-            throw new InvalidExpressionException("Arc sine domain error: value must be between -1 and 1");
+            throw (InvalidExpressionException) ErrorCode.ASIN_DOMAIN.exception();
         }
         return toDegrees(Math.asin(value));
     }
 
+    /**
+     * Calculate arc sine in degrees without throwing
+     * @param value The value
+     * @return The angle in degrees, or an error NaN outside [-1, 1]
+     */
+    public static double asinOrError(double value) {
+        return asinOrError(value, AngleUnit.DEGREES);
+    }
+
+    /**
+     * Calculate arc sine without throwing
+     * @param value The value
+     * @param unit The unit of the result
+     * @return The angle, or an error NaN outside [-1, 1]
+     */
+    public static double asinOrError(double value, AngleUnit unit) {
+        return value < -1.0 || value > 1.0 ? error(ErrorCode.ASIN_DOMAIN) : unit.fromRadians(Math.asin(value));
+    }
+
     /**
      * Calculate arc cosine (inverse cosine) and return result in degrees
      * @param value The value (must be between -1 and 1)
@@ -161,11 +559,30 @@ public class MathUtils {
      */
     public static double acos(double value) throws InvalidExpressionException {
         if (value < -1.0 || value > 1.0) {
-            throw new InvalidExpressionException("Arc cosine domain error: value must be between -1 and 1");
+            throw (InvalidExpressionException) ErrorCode.ACOS_DOMAIN.exception();
         }
         return toDegrees(Math.acos(value));
     }
 
+    /**
+     * Calculate arc cosine in degrees without throwing
+     * @param value The value
+     * @return The angle in degrees, or an error NaN outside [-1, 1]
+     */
+    public static double acosOrError(double value) {
+        return acosOrError(value, AngleUnit.DEGREES);
+    }
+
+    /**
+     * Calculate arc cosine without throwing
+     * @param value The value
+     * @param unit The unit of the result
+     * @return The angle, or an error NaN outside [-1, 1]
+     */
+    public static double acosOrError(double value, AngleUnit unit) {
+        return value < -1.0 || value > 1.0 ? error(ErrorCode.ACOS_DOMAIN) : unit.fromRadians(Math.acos(value));
+    }
+
     /**
      * Calculate arc tangent (inverse tangent) and return result in degrees
      * @param value The value
@@ -176,6 +593,16 @@ public class MathUtils {
         return toDegrees(Math.atan(value));
     }
 
+    /**
+     * Calculate arc tangent
+     * @param value The value
+     * @param unit The unit of the result
+     * @return The angle
+     */
+    public static double atan(double value, AngleUnit unit) {
+        return unit.fromRadians(Math.atan(value));
+    }
+
     /**
      * Calculate base-10 logarithm
      * @param value The value (must be positive)
@@ -184,11 +611,20 @@ public class MathUtils {
      */
     public static double log10(double value) throws InvalidExpressionException {
         if (value <= 0) {
-            throw new InvalidExpressionException("Logarithm of non-positive number");
+            throw (InvalidExpressionException) ErrorCode.LOG_DOMAIN.exception();
         }
         return Math.log10(value);
     }
 
+    /**
+     * Calculate base-10 logarithm without throwing
+     * @param value The value
+     * @return The logarithm base 10, or an error NaN if value is not positive
+     */
+    public static double log10OrError(double value) {
+        return value <= 0 ? error(ErrorCode.LOG_DOMAIN) : Math.log10(value);
+    }
+
     /**
      * Calculate natural logarithm (base e)
      * @param value The value (must be positive)
@@ -197,11 +633,20 @@ public class MathUtils {
      */
     public static double ln(double value) throws InvalidExpressionException {
         if (value <= 0) {
-            throw new InvalidExpressionException("Natural log of non-positive number");
+            throw (InvalidExpressionException) ErrorCode.LN_DOMAIN.exception();
         }
         return Math.log(value);
     }
 
+    /**
+     * Calculate natural logarithm without throwing
+     * @param value The value
+     * @return The natural logarithm, or an error NaN if value is not positive
+     */
+    public static double lnOrError(double value) {
+        return value <= 0 ? error(ErrorCode.LN_DOMAIN) : Math.log(value);
+    }
+
     /**
      * Calculate square root
      * @param value The value (must be non-negative)
@@ -210,11 +655,20 @@ public class MathUtils {
      */
     public static double sqrt(double value) throws InvalidExpressionException {
         if (value < 0) {
-            throw new InvalidExpressionException("Square root of negative number");
+            throw (InvalidExpressionException) ErrorCode.SQRT_DOMAIN.exception();
         }
         return Math.sqrt(value);
     }
 
+    /**
+     * Calculate square root without throwing
+     * @param value The value
+     * @return The square root, or an error NaN if value is negative
+     */
+    public static double sqrtOrError(double value) {
+        return value < 0 ? error(ErrorCode.SQRT_DOMAIN) : Math.sqrt(value);
+    }
+
     /**
      * Calculate power (base raised to exponent)
      * @param base The base value
@@ -228,6 +682,28 @@ public class MathUtils {
         return result;
     }
 
+    /**
+     * Calculate power without throwing
+     * @param base The base value
+     * @param exponent The exponent
+     * @return The result of base^exponent, or an error NaN on overflow or
+     * when an operand is NaN, keeping that operand's error code
+     */
+    public static double powerOrError(double base, double exponent) {
+        double result = pow(base, exponent);
+        return Double.isInfinite(result) ? error(ErrorCode.OVERFLOW) : result;
+    }
+
+    // Math.pow gives 1 for NaN^0 and need not keep a NaN operand's payload,
+    // which would drop its error code; the NaN operand is returned instead
+    static double pow(double base, double exponent) {
+        double result = Math.pow(base, exponent);
+        if ((result == 1.0 || Double.isNaN(result)) && (Double.isNaN(base) || Double.isNaN(exponent))) {
+            return Double.isNaN(base) ? base : exponent;
+        }
+        return result;
+    }
+
     /**
      * Calculate reciprocal (1/x)
      * @param value The value
@@ -238,6 +714,15 @@ public class MathUtils {
         return safeDivide(1.0, value);
     }
 
+    /**
+     * Calculate reciprocal without throwing
+     * @param value The value
+     * @return The reciprocal, or an error NaN if value is zero
+     */
+    public static double reciprocalOrError(double value) {
+        return divideOrError(1.0, value);
+    }
+
     /**
      * Negate a value (change sign)
      * @param value The value to negate
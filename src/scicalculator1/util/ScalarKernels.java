@@ -0,0 +1,97 @@
+package scicalculator1.util;
+
+import scicalculator1.exception.ErrorCode;
+
+/**
+ * Plain loops over the MathUtils functions; the reference the SIMD kernels
+ * are checked against, and the fallback without the Vector API
+ */
+final class ScalarKernels implements BulkKernels {
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return false;
+    }
+
+    @Override
+    public void add(double[] a, double[] b, double[] out, int n) {
+        for (int i = 0; i < n; i++) {
+            out[i] = a[i] + b[i];
+        }
+    }
+
+    @Override
+    public void multiply(double[] a, double[] b, double[] out, int n) {
+        for (int i = 0; i < n; i++) {
+            out[i] = a[i] * b[i];
+        }
+    }
+
+    @Override
+    public int divide(double[] a, double[] b, double[] out, int n, long[] errors) {
+        int failures = 0;
+        for (int i = 0; i < n; i++) {
+            if (MathUtils.isZeroDivisor(b[i])) {
+                out[i] = MathUtils.error(ErrorCode.DIVISION_BY_ZERO);
+                failures += flag(errors, i);
+            } else {
+                out[i] = a[i] / b[i];
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public int sqrt(double[] a, double[] out, int n, long[] errors) {
+        int failures = 0;
+        for (int i = 0; i < n; i++) {
+            if (a[i] < 0) {
+                out[i] = MathUtils.error(ErrorCode.SQRT_DOMAIN);
+                failures += flag(errors, i);
+            } else {
+                out[i] = Math.sqrt(a[i]);
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public int power(double[] base, double[] exponent, double[] out, int n, long[] errors) {
+        int failures = 0;
+        for (int i = 0; i < n; i++) {
+            double result = MathUtils.pow(base[i], exponent[i]);
+            if (Double.isInfinite(result)) {
+                out[i] = MathUtils.error(ErrorCode.OVERFLOW);
+                failures += flag(errors, i);
+            } else {
+                out[i] = result;
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public void sin(double[] angles, AngleUnit unit, int quadrants, double[] out, int n) {
+        if (quadrants == 0) {
+            for (int i = 0; i < n; i++) {
+                out[i] = MathUtils.sin(angles[i], unit);
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                out[i] = MathUtils.cos(angles[i], unit);
+            }
+        }
+    }
+
+    static int flag(long[] errors, int i) {
+        if (errors != null) {
+            errors[i >>> 6] |= 1L << i;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,216 @@
+package scicalculator1.util;
+
+import java.math.BigInteger;
+
+/**
+ * Shortest round-trip decimal digits of a double, using the Ryu algorithm
+ * (Ulf Adams, PLDI 2018). After {@link #set(double)} the absolute value of the
+ * input equals {@code digits × 10^exponent} when parsed back, with the fewest
+ * possible digits and, among those, the closest to the exact binary value
+ *
+ * Instances hold the result of the last conversion and are not thread-safe;
+ * reuse one per thread to stay allocation-free
+ */
+final class ShortestDecimal {
+
+    private static final int MANTISSA_BITS = 52;
+    private static final long MANTISSA_MASK = (1L << MANTISSA_BITS) - 1;
+    private static final int EXPONENT_MASK = (1 << 11) - 1;
+    private static final int EXPONENT_BIAS = 1023;
+
+    private static final int POS_TABLE_SIZE = 326;
+    private static final int NEG_TABLE_SIZE = 291;
+    private static final int POW5_BITCOUNT = 121;
+    private static final int POW5_INV_BITCOUNT = 122;
+    private static final int QUARTER_BITS = 31;
+
+    // 5^i and 2^k / 5^i as four 31-bit limbs, most significant first
+    private static final int[][] POW5_SPLIT = new int[POS_TABLE_SIZE][4];
+    private static final int[][] POW5_INV_SPLIT = new int[NEG_TABLE_SIZE][4];
+
+    static {
+        BigInteger mask = BigInteger.ONE.shiftLeft(QUARTER_BITS).subtract(BigInteger.ONE);
+        for (int i = 0; i < POS_TABLE_SIZE; i++) {
+            BigInteger pow = BigInteger.valueOf(5).pow(i);
+            int pow5len = pow.bitLength();
+            if (pow5len != pow5bits(i)) {
+                throw new AssertionError("pow5bits mismatch at " + i);
+            }
+            for (int j = 0; j < 4; j++) {
+                POW5_SPLIT[i][j] = pow.shiftRight(pow5len - POW5_BITCOUNT + (3 - j) * QUARTER_BITS)
+                        .and(mask).intValue();
+            }
+            if (i < NEG_TABLE_SIZE) {
+                BigInteger inv = BigInteger.ONE.shiftLeft(pow5len - 1 + POW5_INV_BITCOUNT).divide(pow).add(BigInteger.ONE);
+                for (int j = 0; j < 4; j++) {
+                    BigInteger limb = inv.shiftRight((3 - j) * QUARTER_BITS);
+                    POW5_INV_SPLIT[i][j] = (j == 0 ? limb : limb.and(mask)).intValue();
+                }
+            }
+        }
+    }
+
+    /** Decimal significand of the last conversion, without trailing sign */
+    long digits;
+    /** Power of ten applied to {@link #digits} */
+    int exponent;
+
+    /**
+     * Convert a finite, non-zero double. The sign is ignored
+     *
+     * @param value The value to convert
+     */
+    void set(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        int ieeeExponent = (int) ((bits >>> MANTISSA_BITS) & EXPONENT_MASK);
+        long ieeeMantissa = bits & MANTISSA_MASK;
+
+        int e2;
+        long m2;
+        if (ieeeExponent == 0) {
+            e2 = 1 - EXPONENT_BIAS - MANTISSA_BITS - 2;
+            m2 = ieeeMantissa;
+        } else {
+            e2 = ieeeExponent - EXPONENT_BIAS - MANTISSA_BITS - 2;
+            m2 = ieeeMantissa | (1L << MANTISSA_BITS);
+        }
+        boolean even = (m2 & 1) == 0;
+
+        // Step 2: the rounding interval [mm, mp] around mv, all scaled by 4
+        long mv = 4 * m2;
+        long mp = 4 * m2 + 2;
+        int mmShift = (m2 != (1L << MANTISSA_BITS) || ieeeExponent <= 1) ? 1 : 0;
+        long mm = 4 * m2 - 1 - mmShift;
+
+        // Step 3: convert the interval to a decimal power base
+        long dv;
+        long dp;
+        long dm;
+        int e10;
+        boolean dmIsTrailingZeros = false;
+        boolean dvIsTrailingZeros = false;
+        if (e2 >= 0) {
+            int q = Math.max(0, ((e2 * 78913) >>> 18) - 1);
+            int k = POW5_INV_BITCOUNT + pow5bits(q) - 1;
+            int i = -e2 + q + k;
+            dv = mulPow5InvDivPow2(mv, q, i);
+            dp = mulPow5InvDivPow2(mp, q, i);
+            dm = mulPow5InvDivPow2(mm, q, i);
+            e10 = q;
+            if (q <= 21) {
+                if (mv % 5 == 0) {
+                    dvIsTrailingZeros = multipleOfPowerOf5(mv, q);
+                } else if (even) {
+                    dmIsTrailingZeros = multipleOfPowerOf5(mm, q);
+                } else if (multipleOfPowerOf5(mp, q)) {
+                    dp--;
+                }
+            }
+        } else {
+            int q = Math.max(0, ((-e2 * 732923) >>> 20) - 1);
+            int i = -e2 - q;
+            int k = pow5bits(i) - POW5_BITCOUNT;
+            int j = q - k;
+            dv = mulPow5DivPow2(mv, i, j);
+            dp = mulPow5DivPow2(mp, i, j);
+            dm = mulPow5DivPow2(mm, i, j);
+            e10 = q + e2;
+            if (q <= 1) {
+                dvIsTrailingZeros = true;
+                if (even) {
+                    dmIsTrailingZeros = mmShift == 1;
+                } else {
+                    dp--;
+                }
+            } else if (q < 63) {
+                dvIsTrailingZeros = (mv & ((1L << q) - 1)) == 0;
+            }
+        }
+
+        // Step 4: find the shortest representation in the interval
+        int removed = 0;
+        int lastRemovedDigit = 0;
+        long output;
+        if (dmIsTrailingZeros || dvIsTrailingZeros) {
+            while (dp / 10 > dm / 10) {
+                dmIsTrailingZeros &= dm % 10 == 0;
+                dvIsTrailingZeros &= lastRemovedDigit == 0;
+                lastRemovedDigit = (int) (dv % 10);
+                dp /= 10;
+                dv /= 10;
+                dm /= 10;
+                removed++;
+            }
+            if (dmIsTrailingZeros && even) {
+                while (dm % 10 == 0) {
+                    dvIsTrailingZeros &= lastRemovedDigit == 0;
+                    lastRemovedDigit = (int) (dv % 10);
+                    dp /= 10;
+                    dv /= 10;
+                    dm /= 10;
+                    removed++;
+                }
+            }
+            if (dvIsTrailingZeros && lastRemovedDigit == 5 && dv % 2 == 0) {
+                // Exactly halfway: round to even
+                lastRemovedDigit = 4;
+            }
+            output = dv + ((dv == dm && !(dmIsTrailingZeros && even)) || lastRemovedDigit >= 5 ? 1 : 0);
+        } else {
+            while (dp / 10 > dm / 10) {
+                lastRemovedDigit = (int) (dv % 10);
+                dp /= 10;
+                dv /= 10;
+                dm /= 10;
+                removed++;
+            }
+            output = dv + (dv == dm || lastRemovedDigit >= 5 ? 1 : 0);
+        }
+
+        digits = output;
+        exponent = e10 + removed;
+    }
+
+    private static int pow5bits(int e) {
+        return ((e * 1217359) >>> 19) + 1;
+    }
+
+    private static boolean multipleOfPowerOf5(long value, int q) {
+        int count = 0;
+        while (value > 0 && value % 5 == 0) {
+            value /= 5;
+            count++;
+        }
+        return count >= q;
+    }
+
+    private static long mulPow5DivPow2(long m, int i, int j) {
+        return mulShift(m, POW5_SPLIT[i], j);
+    }
+
+    private static long mulPow5InvDivPow2(long m, int q, int j) {
+        return mulShift(m, POW5_INV_SPLIT[q], j);
+    }
+
+    /**
+     * Compute (m × limbs) >> j, where limbs is a 124-bit number in four 31-bit
+     * pieces and m has at most 55 bits
+     */
+    private static long mulShift(long m, int[] limbs, int j) {
+        long mHigh = m >>> 31;
+        long mLow = m & 0x7fffffff;
+        long bits13 = mHigh * limbs[0];
+        long bits03 = mLow * limbs[0];
+        long bits12 = mHigh * limbs[1];
+        long bits02 = mLow * limbs[1];
+        long bits11 = mHigh * limbs[2];
+        long bits01 = mLow * limbs[2];
+        long bits10 = mHigh * limbs[3];
+        long bits00 = mLow * limbs[3];
+        int actualShift = j - 3 * 31 - 21;
+        return ((((((((bits00 >>> 31) + bits01 + bits10) >>> 31)
+                + bits02 + bits11) >>> 31)
+                + bits03 + bits12) >>> 21)
+                + (bits13 << 10)) >>> actualShift;
+    }
+}
@@ -0,0 +1,216 @@
+package scicalculator1.util;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import scicalculator1.exception.ErrorCode;
+
+/**
+ * Vector API kernels. Only loaded reflectively by {@link VectorMath} when the
+ * jdk.incubator.vector module is present
+ *
+ * Every lane performs the same IEEE operations in the same order as the
+ * scalar code (no fused multiply-add), so results are bit-identical. Power
+ * and radian trigonometry have no bit-exact vector form and stay scalar per
+ * lane; only their error masks are vectorized
+ */
+final class SimdKernels implements BulkKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    private static final double DIVIDE_ERROR = MathUtils.error(ErrorCode.DIVISION_BY_ZERO);
+    private static final double SQRT_ERROR = MathUtils.error(ErrorCode.SQRT_DOMAIN);
+    private static final double OVERFLOW_ERROR = MathUtils.error(ErrorCode.OVERFLOW);
+    // isZeroDivisor: |divisor| < 1e-10 also covers ±0
+    private static final double ZERO_DIVISOR = 1e-10;
+    private static final long HIGH_WORD_MASK = 0xffffffff00000000L;
+
+    @Override
+    public String getName() {
+        return "SIMD " + SPECIES.vectorBitSize() + "-bit";
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return true;
+    }
+
+    @Override
+    public void add(double[] a, double[] b, double[] out, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            DoubleVector.fromArray(SPECIES, a, i).add(DoubleVector.fromArray(SPECIES, b, i)).intoArray(out, i);
+        }
+        for (; i < n; i++) {
+            out[i] = a[i] + b[i];
+        }
+    }
+
+    @Override
+    public void multiply(double[] a, double[] b, double[] out, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            DoubleVector.fromArray(SPECIES, a, i).mul(DoubleVector.fromArray(SPECIES, b, i)).intoArray(out, i);
+        }
+        for (; i < n; i++) {
+            out[i] = a[i] * b[i];
+        }
+    }
+
+    @Override
+    public int divide(double[] a, double[] b, double[] out, int n, long[] errors) {
+        int failures = 0;
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            DoubleVector divisor = DoubleVector.fromArray(SPECIES, b, i);
+            VectorMask<Double> zero = divisor.abs().compare(VectorOperators.LT, ZERO_DIVISOR);
+            DoubleVector.fromArray(SPECIES, a, i).div(divisor).blend(DIVIDE_ERROR, zero).intoArray(out, i);
+            failures += flag(errors, i, zero);
+        }
+        for (; i < n; i++) {
+            if (MathUtils.isZeroDivisor(b[i])) {
+                out[i] = DIVIDE_ERROR;
+                failures += ScalarKernels.flag(errors, i);
+            } else {
+                out[i] = a[i] / b[i];
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public int sqrt(double[] a, double[] out, int n, long[] errors) {
+        int failures = 0;
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            DoubleVector value = DoubleVector.fromArray(SPECIES, a, i);
+            VectorMask<Double> negative = value.compare(VectorOperators.LT, 0.0);
+            value.lanewise(VectorOperators.SQRT).blend(SQRT_ERROR, negative).intoArray(out, i);
+            failures += flag(errors, i, negative);
+        }
+        for (; i < n; i++) {
+            if (a[i] < 0) {
+                out[i] = SQRT_ERROR;
+                failures += ScalarKernels.flag(errors, i);
+            } else {
+                out[i] = Math.sqrt(a[i]);
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public int power(double[] base, double[] exponent, double[] out, int n, long[] errors) {
+        // VectorOperators.POW is not correctly rounded like Math.pow
+        for (int i = 0; i < n; i++) {
+            out[i] = MathUtils.pow(base[i], exponent[i]);
+        }
+        int failures = 0;
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            DoubleVector result = DoubleVector.fromArray(SPECIES, out, i);
+            VectorMask<Double> overflow = result.test(VectorOperators.IS_INFINITE);
+            if (overflow.anyTrue()) {
+                result.blend(OVERFLOW_ERROR, overflow).intoArray(out, i);
+                failures += flag(errors, i, overflow);
+            }
+        }
+        for (; i < n; i++) {
+            if (Double.isInfinite(out[i])) {
+                out[i] = OVERFLOW_ERROR;
+                failures += ScalarKernels.flag(errors, i);
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public void sin(double[] angles, AngleUnit unit, int quadrants, double[] out, int n) {
+        if (!unit.isExact()) {
+            // Math.sin and Math.cos have no bit-exact vector form
+            for (int i = 0; i < n; i++) {
+                out[i] = quadrants == 0 ? Math.sin(angles[i]) : Math.cos(angles[i]);
+            }
+            return;
+        }
+        final double quarter = unit.getQuarterTurn();
+        final double quartersPerUnit = unit.getQuartersPerUnit();
+        final double toRadians = unit.toRadians(1.0);
+        final double limit = MathUtils.MAX_DIRECT_QUADRANT * quarter;
+
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            DoubleVector angle = DoubleVector.fromArray(SPECIES, angles, i);
+            // Huge, infinite and NaN angles need the remainder; rare, so scalar
+            if (!angle.abs().compare(VectorOperators.LE, limit).allTrue()) {
+                for (int j = i; j < i + LANES; j++) {
+                    out[j] = quadrants == 0 ? MathUtils.sin(angles[j], unit) : MathUtils.cos(angles[j], unit);
+                }
+                continue;
+            }
+            DoubleVector shifted = angle.mul(quartersPerUnit).add(MathUtils.ROUNDING_SHIFT);
+            LongVector quadrant = shifted.reinterpretAsLongs().add(quadrants);
+            DoubleVector q = shifted.sub(MathUtils.ROUNDING_SHIFT);
+            DoubleVector x = angle.sub(q.mul(quarter)).mul(toRadians);
+
+            DoubleVector sine = sinKernel(x);
+            DoubleVector cosine = cosKernel(x);
+            VectorMask<Double> odd = quadrant.and(1L).compare(VectorOperators.NE, 0L).cast(SPECIES);
+            VectorMask<Double> negate = quadrant.and(2L).compare(VectorOperators.NE, 0L).cast(SPECIES);
+            DoubleVector result = sine.blend(cosine, odd);
+            result = result.blend(result.neg(), negate);
+            result.add(0.0).intoArray(out, i);
+        }
+        for (; i < n; i++) {
+            out[i] = quadrants == 0 ? MathUtils.sin(angles[i], unit) : MathUtils.cos(angles[i], unit);
+        }
+    }
+
+    /**
+     * MathUtils.sinKernel lane-wise
+     */
+    private static DoubleVector sinKernel(DoubleVector x) {
+        DoubleVector z = x.mul(x);
+        DoubleVector v = z.mul(x);
+        DoubleVector r = z.mul(MathUtils.S6).add(MathUtils.S5).mul(z).add(MathUtils.S4)
+                .mul(z).add(MathUtils.S3).mul(z).add(MathUtils.S2);
+        return x.add(v.mul(z.mul(r).add(MathUtils.S1)));
+    }
+
+    /**
+     * MathUtils.cosKernel lane-wise. Lanes below 0.3 use qx = 0, which makes
+     * the general formula reduce exactly to the small-argument one
+     */
+    private static DoubleVector cosKernel(DoubleVector x) {
+        DoubleVector z = x.mul(x);
+        DoubleVector r = z.mul(MathUtils.C6).add(MathUtils.C5).mul(z).add(MathUtils.C4).mul(z).add(MathUtils.C3)
+                .mul(z).add(MathUtils.C2).mul(z).add(MathUtils.C1).mul(z);
+        DoubleVector ax = x.abs();
+        DoubleVector quarterX = ax.reinterpretAsLongs().sub(0x0020000000000000L).and(HIGH_WORD_MASK).reinterpretAsDoubles();
+        DoubleVector qx = quarterX
+                .blend(0.28125, ax.compare(VectorOperators.GT, 0.78125))
+                .blend(0.0, ax.compare(VectorOperators.LT, 0.3));
+        DoubleVector hz = z.mul(0.5).sub(qx);
+        DoubleVector a = qx.neg().add(1.0);
+        return a.sub(hz.sub(z.mul(r)));
+    }
+
+    /**
+     * Copy a lane mask into the error bitmap. LANES divides 64 and i is a
+     * multiple of it, so a vector never straddles two words
+     */
+    private static int flag(long[] errors, int i, VectorMask<Double> mask) {
+        if (!mask.anyTrue()) {
+            return 0;
+        }
+        if (errors == null) {
+            return mask.trueCount();
+        }
+        long bits = mask.toLong();
+        errors[i >>> 6] |= bits << (i & 63);
+        return Long.bitCount(bits);
+    }
+}
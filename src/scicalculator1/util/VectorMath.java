@@ -0,0 +1,198 @@
+package scicalculator1.util;
+
+import java.util.Arrays;
+
+/**
+ * Bulk versions of the MathUtils operations over primitive columns. When the
+ * JVM runs with {@code --add-modules jdk.incubator.vector} the loops use SIMD
+ * kernels; otherwise, or with {@code -Dscicalculator.simd=false}, they fall
+ * back to scalar loops. Both give bit-identical results
+ *
+ * Failing elements are set to a NaN carrying their ErrorCode (see
+ * {@link MathUtils#errorCode(double)}) and flagged in an error bitmap: bit i
+ * of word i / 64 is set when element i failed. The bitmap may be null when
+ * the caller only needs the count
+ */
+public final class VectorMath {
+
+    private static final VectorMath SCALAR = new VectorMath(new ScalarKernels());
+    private static final VectorMath DEFAULT = new VectorMath(loadKernels());
+
+    private final BulkKernels kernels;
+
+    private VectorMath(BulkKernels kernels) {
+        this.kernels = kernels;
+    }
+
+    /**
+     * Get the fastest implementation available in this JVM
+     *
+     * @return The SIMD implementation if the Vector API is present, otherwise
+     * the scalar one
+     */
+    public static VectorMath getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Get the scalar implementation, for comparison
+     *
+     * @return The scalar implementation
+     */
+    public static VectorMath scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * Check if this implementation uses SIMD instructions
+     *
+     * @return True for the Vector API kernels
+     */
+    public boolean isVectorized() {
+        return kernels.isVectorized();
+    }
+
+    /**
+     * Get a description of the implementation
+     *
+     * @return The name (e.g. "SIMD 256-bit" or "scalar")
+     */
+    public String getName() {
+        return kernels.getName();
+    }
+
+    @Override
+    public String toString() {
+        return "VectorMath[" + getName() + "]";
+    }
+
+    // ======== ARITHMETIC ========
+    /**
+     * Add element-wise
+     *
+     * @param a The first operands
+     * @param b The second operands, as long as a
+     * @param out Receives a[i] + b[i], at least as long as a
+     */
+    public void add(double[] a, double[] b, double[] out) {
+        checkLengths(a.length, b.length, out, null);
+        kernels.add(a, b, out, a.length);
+    }
+
+    /**
+     * Multiply element-wise
+     *
+     * @param a The first operands
+     * @param b The second operands, as long as a
+     * @param out Receives a[i] × b[i], at least as long as a
+     */
+    public void multiply(double[] a, double[] b, double[] out) {
+        checkLengths(a.length, b.length, out, null);
+        kernels.multiply(a, b, out, a.length);
+    }
+
+    /**
+     * Divide element-wise. Divisors that {@link MathUtils#isZeroDivisor}
+     * rejects give DIVISION_BY_ZERO
+     *
+     * @param a The dividends
+     * @param b The divisors, as long as a
+     * @param out Receives the quotients, at least as long as a
+     * @param errors Error bitmap of at least (n + 63) / 64 words, or null
+     * @return The number of zero divisors
+     */
+    public int divide(double[] a, double[] b, double[] out, long[] errors) {
+        checkLengths(a.length, b.length, out, errors);
+        clear(errors, a.length);
+        return kernels.divide(a, b, out, a.length, errors);
+    }
+
+    // ======== POWERS AND ROOTS ========
+    /**
+     * Square root element-wise. Negative values give SQRT_DOMAIN
+     *
+     * @param a The values
+     * @param out Receives the roots, at least as long as a
+     * @param errors Error bitmap of at least (n + 63) / 64 words, or null
+     * @return The number of negative values
+     */
+    public int sqrt(double[] a, double[] out, long[] errors) {
+        checkLengths(a.length, a.length, out, errors);
+        clear(errors, a.length);
+        return kernels.sqrt(a, out, a.length, errors);
+    }
+
+    /**
+     * Raise to a power element-wise. Infinite results give OVERFLOW
+     *
+     * @param base The bases
+     * @param exponent The exponents, as long as base
+     * @param out Receives the powers, at least as long as base
+     * @param errors Error bitmap of at least (n + 63) / 64 words, or null
+     * @return The number of overflows
+     */
+    public int power(double[] base, double[] exponent, double[] out, long[] errors) {
+        checkLengths(base.length, exponent.length, out, errors);
+        clear(errors, base.length);
+        return kernels.power(base, exponent, out, base.length, errors);
+    }
+
+    // ======== TRIGONOMETRY ========
+    /**
+     * Sine element-wise, as {@link MathUtils#sin(double, AngleUnit)}
+     *
+     * @param angles The angles
+     * @param unit The unit of the angles
+     * @param out Receives the sines, at least as long as angles
+     */
+    public void sin(double[] angles, AngleUnit unit, double[] out) {
+        checkLengths(angles.length, angles.length, out, null);
+        kernels.sin(angles, unit, 0, out, angles.length);
+    }
+
+    /**
+     * Cosine element-wise, as {@link MathUtils#cos(double, AngleUnit)}
+     *
+     * @param angles The angles
+     * @param unit The unit of the angles
+     * @param out Receives the cosines, at least as long as angles
+     */
+    public void cos(double[] angles, AngleUnit unit, double[] out) {
+        checkLengths(angles.length, angles.length, out, null);
+        kernels.sin(angles, unit, 1, out, angles.length);
+    }
+
+    private static void checkLengths(int n, int otherLength, double[] out, long[] errors) {
+        if (otherLength != n || out.length < n) {
+            throw new IllegalArgumentException("Operand and result arrays must have matching lengths");
+        }
+        if (errors != null && errors.length < (n + 63) >>> 6) {
+            throw new IllegalArgumentException("Error bitmap too small for " + n + " elements");
+        }
+    }
+
+    private static void clear(long[] errors, int n) {
+        if (errors != null) {
+            Arrays.fill(errors, 0, (n + 63) >>> 6, 0L);
+        }
+    }
+
+    /**
+     * Load the SIMD kernels by name, so this class still loads when the
+     * incubator module is not in the boot layer
+     */
+    private static BulkKernels loadKernels() {
+        if (!Boolean.parseBoolean(System.getProperty("scicalculator.simd", "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return SCALAR.kernels;
+        }
+        try {
+            return (BulkKernels) Class.forName("scicalculator1.util.SimdKernels")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            return SCALAR.kernels;
+        } catch (LinkageError e) {
+            return SCALAR.kernels;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package scicalculator1.view;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import scicalculator1.model.FunctionPlot;
+import scicalculator1.model.PlotPath;
+import scicalculator1.util.FormatUtils;
+
+/**
+ * Draws a {@link FunctionPlot} on a Canvas. Drag to pan, scroll to zoom
+ * around the pointer, double-click to fit the vertical range to the curve
+ *
+ * A frame is drawn at most once per pulse and only from tiles already
+ * sampled, so interaction never waits for the function: the curve is
+ * decimated to a few points per pixel column and drawn as one polyline per
+ * run. Missing tiles are sampled on a background thread, which always works
+ * on the latest view and asks for a frame after each tile
+ */
+public final class FunctionPlotView extends Region {
+
+    private static final Color AXIS = Color.web("#5a5a5a");
+    private static final Color CURVE = Color.web("#4bbefa");
+    private static final Color LABEL = Color.web("#a6a6a6");
+    private static final Font LABEL_FONT = Font.font(12);
+
+    // Zoom factor per scroll pixel
+    private static final double ZOOM_RATE = 1.002;
+    // Spans that still leave distinct doubles per pixel, relative to the
+    // coordinates, and stay finite
+    private static final double MIN_SPAN = 1e-9;
+    private static final double MAX_SPAN = 1e15;
+    // Pixel coordinates are clamped here; a pole's samples are far outside
+    private static final double MAX_PIXEL = 1e6;
+
+    private final Canvas canvas = new Canvas();
+    private final PlotPath path = new PlotPath();
+
+    // View in function coordinates; FX thread only
+    private double x0 = -360;
+    private double x1 = 360;
+    private double y0 = -2;
+    private double y1 = 2;
+    private boolean fitPending;
+    private FunctionPlot plot;
+
+    // Polyline of the current run, in pixels
+    private double[] runX = new double[256];
+    private double[] runY = new double[256];
+
+    // Pointer position of the last drag event
+    private double dragX;
+    private double dragY;
+
+    // ======== RENDERING ========
+    private final AtomicBoolean redrawPending = new AtomicBoolean();
+    // Draws once at the next pulse, then stops so idle frames cost nothing
+    private final AnimationTimer renderer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            stop();
+            redrawPending.set(false);
+            draw();
+        }
+    };
+
+    // ======== SAMPLING ========
+    private final ExecutorService sampler = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "calculator-plot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean sampling = new AtomicBoolean();
+    // Latest view drawn, read by the sampler
+    private volatile View view;
+
+    /**
+     * Create an empty plot
+     */
+    public FunctionPlotView() {
+        getStyleClass().add("plot");
+        getChildren().add(canvas);
+        setOnMousePressed(this::startDrag);
+        setOnMouseDragged(this::drag);
+        setOnScroll(this::zoom);
+        setOnMouseClicked(e -> {
+            if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2) {
+                fitPending = true;
+                requestRedraw();
+            }
+        });
+    }
+
+    /**
+     * Show a function, keeping the horizontal range and fitting the vertical
+     * one once it is sampled
+     *
+     * @param plot The function, or null to clear the plot
+     */
+    public void setPlot(FunctionPlot plot) {
+        this.plot = plot;
+        fitPending = true;
+        requestRedraw();
+    }
+
+    public FunctionPlot getPlot() {
+        return plot;
+    }
+
+    /**
+     * Show a range of x
+     *
+     * @param from The x at the left edge
+     * @param to The x at the right edge, greater than from
+     */
+    public void setRange(double from, double to) {
+        if (!(to > from)) {
+            throw new IllegalArgumentException("Empty range: [" + from + ", " + to + "]");
+        }
+        x0 = from;
+        x1 = to;
+        requestRedraw();
+    }
+
+    /**
+     * Stop the sampling thread, when the application exits
+     */
+    public void dispose() {
+        sampler.shutdownNow();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double width = snapSizeX(getWidth());
+        double height = snapSizeY(getHeight());
+        if (canvas.getWidth() != width || canvas.getHeight() != height) {
+            canvas.setWidth(width);
+            canvas.setHeight(height);
+            requestRedraw();
+        }
+    }
+
+    /**
+     * Draw at the next pulse; safe to call from any thread
+     */
+    private void requestRedraw() {
+        if (redrawPending.compareAndSet(false, true)) {
+            if (Platform.isFxApplicationThread()) {
+                renderer.start();
+            } else {
+                Platform.runLater(renderer::start);
+            }
+        }
+    }
+
+    private void draw() {
+        double w = canvas.getWidth();
+        double h = canvas.getHeight();
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.clearRect(0, 0, w, h);
+        int width = (int) w;
+        FunctionPlot current = plot;
+        if (width <= 0 || h <= 0) {
+            return;
+        }
+        boolean complete = true;
+        if (current != null) {
+            complete = current.decimate(x0, x1, width, path);
+            View next = new View(current, x0, x1, width);
+            if (!next.equals(view)) {
+                view = next;
+            }
+            if (fitPending && complete) {
+                fitPending = false;
+                fitVertical();
+            }
+        }
+        drawAxes(g, w, h);
+        if (current != null) {
+            drawCurve(g, w, h);
+        }
+        if (!complete) {
+            requestSampling();
+        }
+    }
+
+    private void drawAxes(GraphicsContext g, double w, double h) {
+        g.setStroke(AXIS);
+        g.setLineWidth(1);
+        if (x0 < 0 && x1 > 0) {
+            double px = Math.floor(-x0 / (x1 - x0) * w) + 0.5;
+            g.strokeLine(px, 0, px, h);
+        }
+        if (y0 < 0 && y1 > 0) {
+            double py = Math.floor(y1 / (y1 - y0) * h) + 0.5;
+            g.strokeLine(0, py, w, py);
+        }
+        g.setFill(LABEL);
+        g.setFont(LABEL_FONT);
+        g.fillText("x " + FormatUtils.formatNumber(x0) + " … " + FormatUtils.formatNumber(x1), 6, h - 6);
+        g.fillText("y " + FormatUtils.formatNumber(y0) + " … " + FormatUtils.formatNumber(y1), 6, 16);
+    }
+
+    private void drawCurve(GraphicsContext g, double w, double h) {
+        double sx = w / (x1 - x0);
+        double sy = h / (y1 - y0);
+        g.setStroke(CURVE);
+        g.setLineWidth(1.5);
+        int n = 0;
+        for (int i = 0; i < path.size(); i++) {
+            if (path.isBreak(i)) {
+                strokeRun(g, n);
+                n = 0;
+                continue;
+            }
+            if (n == runX.length) {
+                runX = Arrays.copyOf(runX, n * 2);
+                runY = Arrays.copyOf(runY, n * 2);
+            }
+            runX[n] = (path.getX(i) - x0) * sx;
+            runY[n++] = Math.max(-MAX_PIXEL, Math.min(MAX_PIXEL, (y1 - path.getY(i)) * sy));
+        }
+        strokeRun(g, n);
+    }
+
+    private void strokeRun(GraphicsContext g, int n) {
+        if (n > 1) {
+            g.strokePolyline(runX, runY, n);
+        }
+    }
+
+    // Fit most of the curve, ignoring poles
+    private void fitVertical() {
+        double low = path.quantile(0.02);
+        double high = path.quantile(0.98);
+        if (Double.isNaN(low)) {
+            return;
+        }
+        double span = high - low;
+        // A flat curve gets a band around its value
+        double margin = span > MIN_SPAN * Math.max(1.0, Math.abs(low))
+                ? 0.1 * span : Math.max(1.0, 0.1 * Math.abs(low));
+        y0 = low - margin;
+        y1 = high + margin;
+    }
+
+    // ======== INTERACTION ========
+    private void startDrag(MouseEvent e) {
+        dragX = e.getX();
+        dragY = e.getY();
+    }
+
+    private void drag(MouseEvent e) {
+        double dx = (e.getX() - dragX) / canvas.getWidth() * (x1 - x0);
+        double dy = (e.getY() - dragY) / canvas.getHeight() * (y1 - y0);
+        dragX = e.getX();
+        dragY = e.getY();
+        x0 -= dx;
+        x1 -= dx;
+        y0 += dy;
+        y1 += dy;
+        requestRedraw();
+    }
+
+    private void zoom(ScrollEvent e) {
+        if (canvas.getWidth() <= 0 || canvas.getHeight() <= 0) {
+            return;
+        }
+        double factor = Math.pow(ZOOM_RATE, -e.getDeltaY());
+        double fx = e.getX() / canvas.getWidth();
+        double fy = e.getY() / canvas.getHeight();
+        double px = x0 + fx * (x1 - x0);
+        double py = y1 - fy * (y1 - y0);
+        double xSpan = clampSpan((x1 - x0) * factor, px);
+        double ySpan = clampSpan((y1 - y0) * factor, py);
+        x0 = px - fx * xSpan;
+        x1 = x0 + xSpan;
+        y1 = py + fy * ySpan;
+        y0 = y1 - ySpan;
+        requestRedraw();
+        e.consume();
+    }
+
+    private static double clampSpan(double span, double center) {
+        return Math.max(MIN_SPAN * Math.max(1.0, Math.abs(center)), Math.min(MAX_SPAN, span));
+    }
+
+    // ======== BACKGROUND SAMPLING ========
+    private void requestSampling() {
+        if (sampling.compareAndSet(false, true)) {
+            sampler.execute(this::sample);
+        }
+    }
+
+    // Sample missing tiles of the latest view, one at a time, until none is
+    // missing; a view that changes meanwhile is picked up at the next tile
+    private void sample() {
+        View current;
+        do {
+            current = view;
+            try {
+                while (current != null && current.plot.computeTile(current.x0, current.x1, current.width)) {
+                    requestRedraw();
+                    current = view;
+                }
+            } finally {
+                sampling.set(false);
+            }
+        } while (view != current && sampling.compareAndSet(false, true));
+    }
+
+    /**
+     * A function and the range it is drawn over
+     */
+    private static final class View {
+
+        final FunctionPlot plot;
+        final double x0;
+        final double x1;
+        final int width;
+
+        View(FunctionPlot plot, double x0, double x1, int width) {
+            this.plot = plot;
+            this.x0 = x0;
+            this.x1 = x1;
+            this.width = width;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof View)) {
+                return false;
+            }
+            View other = (View) o;
+            return plot == other.plot && x0 == other.x0 && x1 == other.x1 && width == other.width;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(plot) ^ Double.hashCode(x0) ^ Double.hashCode(x1) ^ width;
+        }
+    }
+}